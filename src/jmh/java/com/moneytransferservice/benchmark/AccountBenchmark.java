@@ -0,0 +1,46 @@
+package com.moneytransferservice.benchmark;
+
+import com.moneytransferservice.model.Account;
+import org.javamoney.moneta.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the minor-units balance updates with the {@link Money} ones, run with {@code -prof gc}
+ * to see the allocation rate of each.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AccountBenchmark {
+
+    private final Money amount = Money.of(1.25, "USD");
+    private Account account;
+
+    @Setup
+    public void prepare() {
+        account = new Account().setName("Account").setMoney(Money.of(1_000_000, "USD"));
+    }
+
+    @Benchmark
+    public Account withdrawAndAcceptMinorUnits() {
+        return account.withdrawMoney(125).acceptMoney(125);
+    }
+
+    @Benchmark
+    public Account withdrawAndAcceptMoney() {
+        return account.withdrawMoney(amount).acceptMoney(amount);
+    }
+
+    @Benchmark
+    public Money readMoney() {
+        return account.getMoney();
+    }
+}
@@ -0,0 +1,104 @@
+package com.moneytransferservice.benchmark;
+
+import com.moneytransferservice.ledger.Ledger;
+import com.moneytransferservice.ledger.TransferResult;
+import com.moneytransferservice.model.Account;
+import com.moneytransferservice.model.Currencies;
+import com.moneytransferservice.model.Transfer;
+import com.moneytransferservice.repository.InMemoryRepository;
+import com.moneytransferservice.repository.TransferStore;
+import org.javamoney.moneta.Money;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transfers committed as one {@link Ledger#commitAll batch} of {@code batchSize} transfers
+ * against the same transfers committed one by one, between random accounts out of
+ * {@code accounts}. The {@code transfers} counter reports transfers per millisecond, which is
+ * what both have to be compared by; the primary score counts batches.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BatchBenchmark {
+
+    private static final int USD = Currencies.indexOf("USD");
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+
+        @Param({"1", "16", "256"})
+        int batchSize;
+
+        @Param({"10000"})
+        int accounts;
+
+        Ledger ledger;
+        UUID[] ids;
+
+        @Setup
+        public void prepare() {
+            ledger = new Ledger(new InMemoryRepository<>(), new TransferStore());
+            ids = new UUID[accounts];
+            for (int i = 0; i < accounts; i++) {
+                ids[i] = ledger.create(new Account().setName("Account").setMoney(Money.of(1_000_000_000, "USD"))).join();
+            }
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+
+        public long transfers;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            transfers = 0;
+        }
+    }
+
+    @Benchmark
+    public List<TransferResult> batch(Shared shared, Counters counters) {
+        final var results = shared.ledger.commitAll(transfers(shared), true).join();
+        counters.transfers += results.size();
+        return results;
+    }
+
+    @Benchmark
+    public TransferResult oneByOne(Shared shared, Counters counters) {
+        TransferResult result = null;
+        for (Transfer transfer : transfers(shared)) {
+            result = shared.ledger.commit(transfer).join();
+            counters.transfers++;
+        }
+        return result;
+    }
+
+    private static List<Transfer> transfers(Shared shared) {
+        final var random = ThreadLocalRandom.current();
+        final var transfers = new ArrayList<Transfer>(shared.batchSize);
+        for (int i = 0; i < shared.batchSize; i++) {
+            final var from = random.nextInt(shared.accounts);
+            final var to = (from + 1 + random.nextInt(shared.accounts - 1)) % shared.accounts;
+            transfers.add(new Transfer()
+                    .setFromAccount(shared.ids[from])
+                    .setToAccount(shared.ids[to])
+                    .setAmount(USD, 1));
+        }
+        return transfers;
+    }
+}
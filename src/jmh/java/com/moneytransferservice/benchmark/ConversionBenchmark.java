@@ -0,0 +1,84 @@
+package com.moneytransferservice.benchmark;
+
+import com.moneytransferservice.fx.RateTable;
+import com.moneytransferservice.model.Currencies;
+import org.javamoney.moneta.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javax.money.Monetary;
+import javax.money.MonetaryRounding;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converts amounts between random pairs of currencies with the {@link RateTable} and, for
+ * comparison, with {@link Money} arithmetic at the same rates. The latter leaves out the rate
+ * lookup of {@code MonetaryConversions}, which needs an online rate provider, so it is a lower
+ * bound of what converting through Moneta costs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConversionBenchmark {
+
+    private static final String[] CURRENCIES = {"EUR", "USD", "GBP", "JPY", "CHF", "CAD", "AUD", "SEK"};
+    private static final int SAMPLES = 1024;
+
+    private final long[] amounts = new long[SAMPLES];
+    private final int[] from = new int[SAMPLES];
+    private final int[] to = new int[SAMPLES];
+    private final BigDecimal[] decimalRates = new BigDecimal[SAMPLES];
+    private final MonetaryRounding[] roundings = new MonetaryRounding[SAMPLES];
+    private RateTable rates;
+    private int next;
+
+    @Setup
+    public void prepare() throws IOException {
+        final var random = ThreadLocalRandom.current();
+        final var euroRates = new double[CURRENCIES.length];
+        final var file = Files.createTempFile("rates", ".properties");
+        try {
+            final var lines = new StringBuilder();
+            for (int i = 0; i < CURRENCIES.length; i++) {
+                euroRates[i] = i == 0 ? 1 : random.nextDouble(0.5, 200);
+                lines.append("EUR/").append(CURRENCIES[i]).append(" = ").append(euroRates[i]).append('\n');
+            }
+            Files.writeString(file, lines);
+            rates = RateTable.load(file, "EUR");
+        } finally {
+            Files.delete(file);
+        }
+        for (int i = 0; i < SAMPLES; i++) {
+            final var base = random.nextInt(CURRENCIES.length);
+            final var quote = random.nextInt(CURRENCIES.length);
+            amounts[i] = random.nextLong(1, 100_000_000);
+            from[i] = Currencies.indexOf(CURRENCIES[base]);
+            to[i] = Currencies.indexOf(CURRENCIES[quote]);
+            decimalRates[i] = BigDecimal.valueOf(euroRates[quote] / euroRates[base]);
+            roundings[i] = Monetary.getRounding(Currencies.unitOf(to[i]));
+        }
+    }
+
+    @Benchmark
+    public long rateTable() {
+        final var i = next++ & (SAMPLES - 1);
+        return rates.convert(amounts[i], from[i], to[i]);
+    }
+
+    @Benchmark
+    public long money() {
+        final var i = next++ & (SAMPLES - 1);
+        final var converted = Money.of(Currencies.toMoney(amounts[i], from[i]).getNumberStripped()
+                .multiply(decimalRates[i]), Currencies.unitOf(to[i]));
+        return Currencies.toMinorUnits(converted.with(roundings[i]));
+    }
+}
@@ -0,0 +1,39 @@
+package com.moneytransferservice.benchmark;
+
+import com.moneytransferservice.repository.IdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Run with {@code -t} set to the number of cores to see {@code random} contend on its shared
+ * {@link java.security.SecureRandom}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IdGeneratorBenchmark {
+
+    @Param({"random", "time-ordered"})
+    private String generator;
+
+    private IdGenerator idGenerator;
+
+    @Setup
+    public void prepare() {
+        idGenerator = "random".equals(generator) ? IdGenerator.RANDOM : IdGenerator.TIME_ORDERED;
+    }
+
+    @Benchmark
+    public UUID next() {
+        return idGenerator.next();
+    }
+}
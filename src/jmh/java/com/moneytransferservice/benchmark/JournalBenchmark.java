@@ -0,0 +1,69 @@
+package com.moneytransferservice.benchmark;
+
+import com.moneytransferservice.journal.FileJournal;
+import com.moneytransferservice.ledger.Recovery;
+import com.moneytransferservice.model.Account;
+import com.moneytransferservice.repository.InMemoryRepository;
+import com.moneytransferservice.repository.TransferStore;
+import org.javamoney.moneta.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Durable appends for different group commit batch sizes, run with {@code -t <threads>} so that
+ * several appends are in flight at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JournalBenchmark {
+
+    @Param({"1", "64", "1024"})
+    private int batchSize;
+
+    @Param({"true"})
+    private boolean sync;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private Path directory;
+    private FileJournal journal;
+    private Account account;
+
+    @Setup
+    public void open() throws IOException {
+        directory = Files.createTempDirectory("journal-benchmark");
+        journal = FileJournal.open(directory, batchSize, sync, new Recovery(new InMemoryRepository<>(), new TransferStore()));
+        account = new Account().setId(UUID.randomUUID()).setName("Account").setMoney(Money.of(1000, "USD"));
+    }
+
+    @TearDown
+    public void close() throws IOException {
+        journal.close();
+        try (var files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public Void appendAccount() {
+        return journal.appendAccount(sequence.incrementAndGet(), account).join();
+    }
+}
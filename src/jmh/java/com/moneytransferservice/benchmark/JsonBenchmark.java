@@ -0,0 +1,84 @@
+package com.moneytransferservice.benchmark;
+
+import com.moneytransferservice.codec.ModelCodec;
+import com.moneytransferservice.model.Account;
+import com.moneytransferservice.model.Transfer;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.Json;
+import org.javamoney.moneta.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.zalando.jackson.datatype.money.MoneyModule;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the Jackson {@code MoneyModule} path the handlers used to take, from and to strings,
+ * with {@link ModelCodec} working on buffers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JsonBenchmark {
+
+    private Account account;
+    private Transfer transfer;
+    private String transferJson;
+    private Buffer transferBuffer;
+
+    @Setup
+    public void prepare() {
+        Json.mapper.registerModule(new MoneyModule());
+        account = new Account()
+                .setId(UUID.randomUUID())
+                .setName("Account")
+                .setMoney(Money.of(1234.56, "USD"));
+        transfer = new Transfer()
+                .setFromAccount(UUID.randomUUID())
+                .setToAccount(UUID.randomUUID())
+                .setAmount(Money.of(10.5, "USD"));
+        transferJson = Json.encode(transfer);
+        transferBuffer = Buffer.buffer(transferJson);
+    }
+
+    @Benchmark
+    public String encodeAccount() {
+        return Json.encode(account);
+    }
+
+    @Benchmark
+    public String encodeTransfer() {
+        return Json.encode(transfer);
+    }
+
+    @Benchmark
+    public Transfer decodeTransfer() {
+        return Json.decodeValue(transferJson, Transfer.class);
+    }
+
+    @Benchmark
+    public Transfer decodeTransferFromBuffer() {
+        return Json.decodeValue(transferBuffer.toString(), Transfer.class);
+    }
+
+    @Benchmark
+    public Buffer encodeAccountCodec() {
+        return ModelCodec.encode(account);
+    }
+
+    @Benchmark
+    public Buffer encodeTransferCodec() {
+        return ModelCodec.encode(transfer);
+    }
+
+    @Benchmark
+    public Transfer decodeTransferCodec() {
+        return ModelCodec.decodeTransfer(transferBuffer);
+    }
+}
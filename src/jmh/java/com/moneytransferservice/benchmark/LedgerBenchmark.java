@@ -0,0 +1,88 @@
+package com.moneytransferservice.benchmark;
+
+import com.moneytransferservice.ledger.Ledger;
+import com.moneytransferservice.ledger.TransferResult;
+import com.moneytransferservice.model.Account;
+import com.moneytransferservice.model.Currencies;
+import com.moneytransferservice.model.Transfer;
+import com.moneytransferservice.repository.InMemoryRepository;
+import com.moneytransferservice.repository.TransferStore;
+import org.javamoney.moneta.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transfer commits through the {@link Ledger}. Run with {@code -t <threads>} to see how it
+ * scales: {@code uncontended} moves money between a pair of accounts owned by each thread,
+ * {@code contended} makes every thread credit one hot account, which is split into
+ * {@code subBalances} sub-balances unless that is {@code 0}.
+ * <p>
+ * Every invocation commits new transfers, as a client would, so each one is recorded under a new
+ * id instead of overwriting the previous one.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LedgerBenchmark {
+
+    private static final int USD = Currencies.indexOf("USD");
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+
+        @Param({"0", "16"})
+        int subBalances;
+
+        Ledger ledger;
+        UUID hotAccount;
+
+        @Setup
+        public void prepare() {
+            ledger = new Ledger(new InMemoryRepository<>(), new TransferStore());
+            hotAccount = account(ledger);
+            if (subBalances > 0) {
+                ledger.split(hotAccount, subBalances);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Accounts {
+
+        UUID first;
+        UUID second;
+
+        @Setup
+        public void prepare(Shared shared) {
+            first = account(shared.ledger);
+            second = account(shared.ledger);
+        }
+    }
+
+    @Benchmark
+    public TransferResult uncontended(Shared shared, Accounts accounts) {
+        shared.ledger.commit(transfer(accounts.first, accounts.second, 100)).join();
+        return shared.ledger.commit(transfer(accounts.second, accounts.first, 100)).join();
+    }
+
+    @Benchmark
+    public TransferResult contended(Shared shared, Accounts accounts) {
+        return shared.ledger.commit(transfer(accounts.first, shared.hotAccount, 1)).join();
+    }
+
+    private static UUID account(Ledger ledger) {
+        return ledger.create(new Account().setName("Account").setMoney(Money.of(1_000_000_000, "USD"))).join();
+    }
+
+    private static Transfer transfer(UUID fromAccount, UUID toAccount, long minorUnits) {
+        return new Transfer().setFromAccount(fromAccount).setToAccount(toAccount).setAmount(USD, minorUnits);
+    }
+}
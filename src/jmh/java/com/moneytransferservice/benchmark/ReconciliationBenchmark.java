@@ -0,0 +1,81 @@
+package com.moneytransferservice.benchmark;
+
+import com.moneytransferservice.ledger.Ledger;
+import com.moneytransferservice.ledger.Reconciliation;
+import com.moneytransferservice.ledger.TransferResult;
+import com.moneytransferservice.model.Account;
+import com.moneytransferservice.model.Transfer;
+import com.moneytransferservice.repository.InMemoryRepository;
+import com.moneytransferservice.repository.TransferStore;
+import org.javamoney.moneta.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency distribution of transfer commits between random accounts, on their own in {@code idle}
+ * and next to back-to-back reconciliations of the ledger in the {@code reconciling} group, whose
+ * {@code reconcile} samples also show how long one reconciliation takes. Compare the p99 of the
+ * commits in both to see what reconciling costs live traffic.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReconciliationBenchmark {
+
+    @Param({"100000"})
+    private int accounts;
+
+    private Ledger ledger;
+    private UUID[] ids;
+
+    @Setup
+    public void prepare() {
+        final var accountRepository = new InMemoryRepository<Account>();
+        ids = new UUID[accounts];
+        for (int i = 0; i < accounts; i++) {
+            final var account = new Account().setName("Account " + i).setMoney(Money.of(1_000_000, "USD"));
+            ids[i] = accountRepository.create(account);
+            account.setId(ids[i]);
+        }
+        ledger = new Ledger(accountRepository, new TransferStore());
+    }
+
+    @Benchmark
+    public TransferResult idle() {
+        return commit();
+    }
+
+    @Benchmark
+    @Group("reconciling")
+    @GroupThreads(3)
+    public TransferResult commits() {
+        return commit();
+    }
+
+    @Benchmark
+    @Group("reconciling")
+    public Reconciliation reconcile() {
+        return ledger.reconcile(ForkJoinPool.commonPool());
+    }
+
+    private TransferResult commit() {
+        final var random = ThreadLocalRandom.current();
+        return ledger.commit(new Transfer()
+                .setFromAccount(ids[random.nextInt(accounts)])
+                .setToAccount(ids[random.nextInt(accounts)])
+                .setAmount(Money.of(1, "USD"))).join();
+    }
+}
@@ -0,0 +1,110 @@
+package com.moneytransferservice.benchmark;
+
+import com.moneytransferservice.journal.FileJournal;
+import com.moneytransferservice.journal.Snapshots;
+import com.moneytransferservice.ledger.Ledger;
+import com.moneytransferservice.ledger.Recovery;
+import com.moneytransferservice.model.Account;
+import com.moneytransferservice.model.Transfer;
+import com.moneytransferservice.repository.InMemoryRepository;
+import com.moneytransferservice.repository.TransferStore;
+import org.javamoney.moneta.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Time to recover a ledger on start: load the newest snapshot and the transfer history, then
+ * replay the journal tail of {@code tail} transfers recorded after it. The directory is prepared
+ * once, with {@code transfers} transfers recorded before the snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class RecoveryBenchmark {
+
+    @Param({"1000000", "10000000"})
+    private int accounts;
+
+    @Param({"1000000"})
+    private int transfers;
+
+    @Param({"100000"})
+    private int tail;
+
+    private Path directory;
+
+    @Setup
+    public void prepare() throws IOException {
+        directory = Files.createTempDirectory("recovery-benchmark");
+        final var accountRepository = new InMemoryRepository<Account>();
+        final var transferRepository = new TransferStore();
+        try (var journal = open(new Recovery(accountRepository, transferRepository))) {
+            final var ledger = new Ledger(accountRepository, transferRepository, journal);
+            final var ids = new UUID[accounts];
+            for (int i = 0; i < accounts; i++) {
+                final var account = new Account().setName("Account " + i).setMoney(Money.of(1_000_000, "USD"));
+                ledger.create(account);
+                ids[i] = account.getId();
+            }
+            commit(ledger, ids, transfers);
+            new Snapshots(directory).write(ledger, journal);
+            commit(ledger, ids, tail);
+            journal.flush().join();
+        }
+    }
+
+    @TearDown
+    public void delete() throws IOException {
+        try (var files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public long recover() throws IOException {
+        final var accountRepository = new InMemoryRepository<Account>();
+        final var transferRepository = new TransferStore();
+        final var recovery = new Recovery(accountRepository, transferRepository,
+                new Snapshots(directory).load(accountRepository, transferRepository));
+        open(recovery).close();
+        return recovery.lastLsn();
+    }
+
+    private FileJournal open(Recovery recovery) throws IOException {
+        return FileJournal.open(directory, FileJournal.DEFAULT_BATCH_SIZE, false, recovery);
+    }
+
+    private static void commit(Ledger ledger, UUID[] ids, int count) {
+        final var random = ThreadLocalRandom.current();
+        for (int i = 0; i < count; i++) {
+            ledger.commit(new Transfer()
+                    .setFromAccount(ids[random.nextInt(ids.length)])
+                    .setToAccount(ids[random.nextInt(ids.length)])
+                    .setAmount(Money.of(1, "USD")));
+        }
+    }
+}
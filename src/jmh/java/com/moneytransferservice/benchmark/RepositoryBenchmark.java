@@ -0,0 +1,57 @@
+package com.moneytransferservice.benchmark;
+
+import com.moneytransferservice.model.Account;
+import com.moneytransferservice.repository.InMemoryRepository;
+import com.moneytransferservice.repository.Repository;
+import org.javamoney.moneta.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RepositoryBenchmark {
+
+    @Param({"100000"})
+    private int accounts;
+
+    private Repository<Account> repository;
+    private UUID[] ids;
+    private Account account;
+
+    @Setup
+    public void prepare() {
+        repository = new InMemoryRepository<>();
+        ids = new UUID[accounts];
+        for (int i = 0; i < accounts; i++) {
+            ids[i] = repository.create(new Account().setName("Account " + i).setMoney(Money.of(i, "USD")));
+        }
+        account = new Account().setName("Created").setMoney(Money.of(1, "USD"));
+    }
+
+    @Benchmark
+    public UUID create() {
+        return repository.create(account);
+    }
+
+    @Benchmark
+    public Optional<Account> read() {
+        return repository.read(ids[ThreadLocalRandom.current().nextInt(accounts)]);
+    }
+
+    @Benchmark
+    public Account get() {
+        return repository.get(ids[ThreadLocalRandom.current().nextInt(accounts)]);
+    }
+}
@@ -0,0 +1,72 @@
+package com.moneytransferservice.benchmark;
+
+import com.moneytransferservice.model.Transfer;
+import com.moneytransferservice.repository.InMemoryRepository;
+import com.moneytransferservice.repository.Repository;
+import com.moneytransferservice.repository.TransferStore;
+import org.javamoney.moneta.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the map backed repository with the off-heap transfer store. Run with {@code -prof gc}
+ * to compare allocation and collection counts, the store pays for every read with a fresh
+ * transfer but leaves nothing behind for the collector to trace.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TransferStoreBenchmark {
+
+    @Param({"map", "store"})
+    private String repository;
+
+    @Param({"1000000"})
+    private int transfers;
+
+    private Repository<Transfer> map;
+    private TransferStore store;
+    private UUID[] ids;
+    private Transfer transfer;
+
+    @Setup
+    public void prepare() {
+        map = new InMemoryRepository<>();
+        store = new TransferStore();
+        ids = new UUID[transfers];
+        for (int i = 0; i < transfers; i++) {
+            final var transfer = new Transfer()
+                    .setFromAccount(UUID.randomUUID())
+                    .setToAccount(UUID.randomUUID())
+                    .setAmount(Money.of(i % 1000 + 1, "USD"))
+                    .lsn(i + 1);
+            ids[i] = "store".equals(repository) ? store.append(transfer) : map.create(transfer);
+        }
+        transfer = new Transfer()
+                .setFromAccount(UUID.randomUUID())
+                .setToAccount(UUID.randomUUID())
+                .setAmount(Money.of(1, "USD"));
+    }
+
+    @Benchmark
+    public UUID create() {
+        return "store".equals(repository) ? store.append(transfer) : map.create(transfer);
+    }
+
+    @Benchmark
+    public Optional<Transfer> read() {
+        final var id = ids[ThreadLocalRandom.current().nextInt(transfers)];
+        return "store".equals(repository) ? store.read(id) : map.read(id);
+    }
+}
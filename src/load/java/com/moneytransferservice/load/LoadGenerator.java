@@ -0,0 +1,357 @@
+package com.moneytransferservice.load;
+
+import com.moneytransferservice.bulk.AccountArchive;
+import com.moneytransferservice.metrics.LatencyHistogram;
+import com.moneytransferservice.model.Account;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import org.javamoney.moneta.Money;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Open-loop load generator for a running service.
+ * <p>
+ * It creates {@code accounts} accounts and then sends requests at a fixed {@code rate}, picking
+ * the operation by the weights of {@code mix} and the accounts with a Zipfian distribution of
+ * skew {@code zipf}. A request is sent when it is due, whether or not earlier requests were
+ * answered, and its latency is measured from when it was due rather than from when it was sent,
+ * so a stalled service is charged for every request it held up instead of only for the one it
+ * stalled on (coordinated omission). The time from sending to the response is reported as well
+ * as service time; the gap between both shows how far the generator or the connection pool
+ * queued requests.
+ * <p>
+ * A {@code batch} request commits {@code batchSize} transfers with one
+ * {@code POST /transfer/batch}; the report adds how many transfers per second went through them.
+ * <p>
+ * With {@code --bulk true} the accounts are created with one upload of an account archive to
+ * {@code POST /account/import} instead of one request each; either way the time it took is
+ * reported.
+ * <p>
+ * Requests go over up to {@code connections} kept-alive HTTP/1.1 connections, each pipelining up
+ * to {@code pipelining} requests, or with {@code --http2 true} over HTTP/2 connections
+ * multiplexing up to {@code streams} requests each, at most as many as the server allows.
+ * {@code --compression true} asks for compressed responses.
+ * <p>
+ * Options are passed as {@code --name value}, e.g.
+ * {@code --rate 5000 --duration 60 --mix commit=80,read=18,create=2} or
+ * {@code --mix batch=100 --batchSize 16}. Durations are in seconds,
+ * the request {@code timeout} in milliseconds.
+ */
+public class LoadGenerator extends AbstractVerticle {
+
+    private static final String ACCOUNT_BODY = "{\"name\":\"Load Account %d\",\"money\":{\"amount\":%d,\"currency\":\"%s\"}}";
+    private static final String TRANSFER_BODY = "{\"fromAccount\":\"%s\",\"toAccount\":\"%s\",\"amount\":{\"amount\":0.01,\"currency\":\"%s\"}}";
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+    private static final long TICK = 1;
+    /**
+     * Buckets per power of two, i.e. a relative error below 1%, so high percentiles are reported
+     * precisely enough to compare runs.
+     */
+    private static final int PRECISION = 128;
+
+    private final Operation[] operations = Operation.values();
+    private final int[] weights = new int[operations.length];
+    private final LatencyHistogram[] latencies = new LatencyHistogram[operations.length];
+    private final LatencyHistogram[] serviceTimes = new LatencyHistogram[operations.length];
+    private final long[] errors = new long[operations.length];
+    private WebClient client;
+    private ZipfianGenerator accountRanks;
+    private UUID[] accounts;
+    private String currency;
+    private int batchSize;
+    private int totalWeight;
+    private long completed;
+
+    enum Operation {
+        COMMIT, BATCH, READ, CREATE
+    }
+
+    public static void main(String[] args) {
+        final var config = new JsonObject();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Expected an option instead of " + args[i]);
+            }
+            config.put(args[i].substring(2), args[i + 1]);
+        }
+        final var vertx = Vertx.vertx();
+        vertx.deployVerticle(new LoadGenerator(), new DeploymentOptions().setConfig(config), result -> {
+            if (result.failed()) {
+                result.cause().printStackTrace();
+                vertx.close();
+            }
+        });
+    }
+
+    @Override
+    public void start(final Future<Void> future) {
+        currency = config().getString("currency", "USD");
+        batchSize = option("batchSize", 16);
+        for (String weight : config().getString("mix", "commit=80,read=18,create=2").split(",")) {
+            final var parts = weight.split("=");
+            final var operation = Operation.valueOf(parts[0].trim().toUpperCase());
+            weights[operation.ordinal()] = Integer.parseInt(parts[1].trim());
+            totalWeight += weights[operation.ordinal()];
+        }
+        for (int i = 0; i < operations.length; i++) {
+            latencies[i] = new LatencyHistogram(PRECISION);
+            serviceTimes[i] = new LatencyHistogram(PRECISION);
+        }
+        final var connections = option("connections", 64);
+        final var pipelining = option("pipelining", 0);
+        final var http2 = Boolean.parseBoolean(config().getString("http2", "false"));
+        client = WebClient.create(vertx, new WebClientOptions()
+                .setDefaultHost(config().getString("host", "localhost"))
+                .setDefaultPort(option("port", 8080))
+                .setMaxPoolSize(connections)
+                .setKeepAlive(true)
+                .setPipelining(pipelining > 1)
+                .setPipeliningLimit(Math.max(pipelining, 1))
+                .setProtocolVersion(http2 ? HttpVersion.HTTP_2 : HttpVersion.HTTP_1_1)
+                .setHttp2ClearTextUpgrade(false)
+                .setHttp2MaxPoolSize(connections)
+                .setHttp2MultiplexingLimit(option("streams", -1))
+                .setTryUseCompression(Boolean.parseBoolean(config().getString("compression", "false"))));
+        System.out.printf("Connecting over %s%n", http2 ? "HTTP/2 with prior knowledge"
+                : pipelining > 1 ? "HTTP/1.1 pipelining up to " + pipelining + " requests" : "HTTP/1.1");
+        final var count = option("accounts", 1000);
+        accountRanks = new ZipfianGenerator(count, Double.parseDouble(config().getString("zipf", "0.99")));
+        final var bulk = Boolean.parseBoolean(config().getString("bulk", "false"));
+        System.out.printf("Creating %d accounts%s%n", count, bulk ? " in bulk" : "");
+        final var creation = System.nanoTime();
+        final Handler<AsyncResult<UUID[]>> created = result -> {
+            if (result.failed()) {
+                future.fail(result.cause());
+                return;
+            }
+            System.out.printf("Created %d accounts in %d ms%n",
+                    count, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - creation));
+            accounts = result.result();
+            future.complete();
+            run();
+        };
+        if (bulk) {
+            importAccounts(count, created);
+        } else {
+            createAccounts(count, connections, created);
+        }
+    }
+
+    /**
+     * Creates all accounts with a single upload of an account archive, under ids chosen here.
+     */
+    private void importAccounts(final int count, final Handler<AsyncResult<UUID[]>> handler) {
+        final var created = new UUID[count];
+        final var archive = Buffer.buffer(count * 64).appendBytes(AccountArchive.header().array());
+        final var records = ByteBuffer.allocate(64 * 1024);
+        final var account = new Account().setMoney(Money.of(option("balance", 1_000_000_000), currency));
+        for (int i = 0; i < count; i++) {
+            created[i] = UUID.randomUUID();
+            account.setId(created[i]).setName("Load Account " + i);
+            if (!AccountArchive.encode(account, records)) {
+                archive.appendBytes(records.array(), 0, records.flip().limit());
+                records.clear();
+                AccountArchive.encode(account, records);
+            }
+        }
+        archive.appendBytes(records.array(), 0, records.flip().limit());
+        client.post("/account/import").timeout(Math.max(timeout(), count / 10)).sendBuffer(archive, response -> {
+            if (response.failed() || response.result().statusCode() != 200) {
+                handler.handle(Future.failedFuture(response.failed() ? response.cause()
+                        : new IllegalStateException("Account import failed with " + response.result().statusCode())));
+            } else {
+                handler.handle(Future.succeededFuture(created));
+            }
+        });
+    }
+
+    private void createAccounts(final int count, final int concurrency, final Handler<AsyncResult<UUID[]>> handler) {
+        final var created = new UUID[count];
+        final var progress = new int[2];
+        for (int i = 0; i < Math.min(concurrency, count); i++) {
+            createAccount(created, progress, handler);
+        }
+    }
+
+    /**
+     * Creates the next account once the previous one of the same slot was created, so that at
+     * most {@code concurrency} creations are in flight.
+     *
+     * @param progress index of the next account to create and number of created accounts
+     */
+    private void createAccount(final UUID[] created, final int[] progress, final Handler<AsyncResult<UUID[]>> handler) {
+        if (progress[0] >= created.length) {
+            return;
+        }
+        final var index = progress[0]++;
+        client.post("/account/").timeout(timeout()).sendBuffer(accountBody(index), response -> {
+            if (progress[0] > created.length) {
+                return;
+            }
+            if (response.failed() || response.result().statusCode() != 201) {
+                progress[0] = created.length + 1;
+                handler.handle(Future.failedFuture(response.failed() ? response.cause()
+                        : new IllegalStateException("Account creation failed with " + response.result().statusCode())));
+                return;
+            }
+            created[index] = UUID.fromString(response.result().bodyAsString());
+            if (++progress[1] == created.length) {
+                handler.handle(Future.succeededFuture(created));
+            } else {
+                createAccount(created, progress, handler);
+            }
+        });
+    }
+
+    private void run() {
+        final double rate = option("rate", 1000);
+        final var warmup = TimeUnit.SECONDS.toNanos(option("warmup", 5));
+        final var duration = TimeUnit.SECONDS.toNanos(option("duration", 30));
+        final var total = (long) ((warmup + duration) / 1e9 * rate);
+        final var start = System.nanoTime();
+        final var measured = start + warmup;
+        final var sent = new long[1];
+        System.out.printf("Sending %.0f requests/s for %d s after %d s of warm-up%n",
+                rate, TimeUnit.NANOSECONDS.toSeconds(duration), TimeUnit.NANOSECONDS.toSeconds(warmup));
+        vertx.setPeriodic(TICK, timer -> {
+            final var due = Math.min(total, (long) ((System.nanoTime() - start) / 1e9 * rate) + 1);
+            while (sent[0] < due) {
+                final var intended = start + (long) (sent[0]++ / rate * 1e9);
+                send(intended, intended >= measured, total);
+            }
+            if (sent[0] == total) {
+                vertx.cancelTimer(timer);
+            }
+        });
+    }
+
+    private void send(final long intended, final boolean measure, final long total) {
+        final var operation = nextOperation();
+        final var sent = System.nanoTime();
+        final Handler<AsyncResult<HttpResponse<Buffer>>> handler = response -> {
+            final var now = System.nanoTime();
+            if (measure) {
+                latencies[operation.ordinal()].record(now - intended);
+                serviceTimes[operation.ordinal()].record(now - sent);
+                if (response.failed() || response.result().statusCode() >= 300) {
+                    errors[operation.ordinal()]++;
+                }
+            }
+            if (++completed == total) {
+                report(now - intended);
+            }
+        };
+        switch (operation) {
+            case COMMIT:
+                client.post("/transfer/commit").timeout(timeout()).sendBuffer(transferBody(), handler);
+                break;
+            case BATCH:
+                final var batch = Buffer.buffer(batchSize * TRANSFER_BODY.length()).appendByte((byte) '[');
+                for (int i = 0; i < batchSize; i++) {
+                    if (i > 0) {
+                        batch.appendByte((byte) ',');
+                    }
+                    batch.appendBuffer(transferBody());
+                }
+                client.post("/transfer/batch").addQueryParam("mode", "best-effort").timeout(timeout())
+                        .sendBuffer(batch.appendByte((byte) ']'), handler);
+                break;
+            case READ:
+                client.get("/account/" + accounts[nextAccount()]).timeout(timeout()).send(handler);
+                break;
+            default:
+                client.post("/account/").timeout(timeout()).sendBuffer(accountBody(accounts.length), handler);
+        }
+    }
+
+    private void report(final long lastLatency) {
+        final var measured = option("duration", 30);
+        var requests = 0L;
+        for (LatencyHistogram latency : latencies) {
+            requests += latency.count();
+        }
+        System.out.printf("%nCompleted %d requests in %d s, %.0f requests/s, last one %.1f ms late%n",
+                requests, measured, (double) requests / measured, lastLatency / 1e6);
+        final var batches = latencies[Operation.BATCH.ordinal()].count();
+        if (batches > 0) {
+            System.out.printf("Sent %d transfers in batches of %d, %.0f transfers/s%n",
+                    batches * batchSize, batchSize, (double) batches * batchSize / measured);
+        }
+        printTable("Latency from the intended send time (ms)", latencies);
+        printTable("Service time from the actual send time (ms)", serviceTimes);
+        client.close();
+        vertx.close();
+    }
+
+    private void printTable(final String title, final LatencyHistogram[] recorders) {
+        System.out.printf("%n%s%n%-8s %9s %7s %9s", title, "request", "count", "errors", "mean");
+        for (double percentile : PERCENTILES) {
+            System.out.printf(" %9s", "p" + (percentile == (long) percentile
+                    ? Long.toString((long) percentile) : Double.toString(percentile)));
+        }
+        System.out.printf(" %9s%n", "max");
+        for (int i = 0; i < operations.length; i++) {
+            final var recorder = recorders[i];
+            if (recorder.count() == 0) {
+                continue;
+            }
+            System.out.printf("%-8s %9d %7d %9.2f", operations[i].name().toLowerCase(),
+                    recorder.count(), errors[i], recorder.mean() / 1e6);
+            for (double percentile : PERCENTILES) {
+                System.out.printf(" %9.2f", recorder.percentile(percentile) / 1e6);
+            }
+            System.out.printf(" %9.2f%n", recorder.max() / 1e6);
+        }
+    }
+
+    private Operation nextOperation() {
+        var weight = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Operation operation : operations) {
+            weight -= weights[operation.ordinal()];
+            if (weight < 0) {
+                return operation;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    private int nextAccount() {
+        return accountRanks.next();
+    }
+
+    private Buffer transferBody() {
+        final var from = nextAccount();
+        var to = nextAccount();
+        while (to == from && accounts.length > 1) {
+            to = nextAccount();
+        }
+        return Buffer.buffer(String.format(TRANSFER_BODY, accounts[from], accounts[to], currency));
+    }
+
+    private Buffer accountBody(final int index) {
+        return Buffer.buffer(String.format(ACCOUNT_BODY, index, option("balance", 1_000_000_000), currency));
+    }
+
+    private long timeout() {
+        return option("timeout", 10_000);
+    }
+
+    private int option(final String name, final int defaultValue) {
+        final var value = config().getValue(name);
+        return value == null ? defaultValue : Integer.parseInt(value.toString());
+    }
+}
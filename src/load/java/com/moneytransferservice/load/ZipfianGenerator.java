@@ -0,0 +1,53 @@
+package com.moneytransferservice.load;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Draws ranks from {@code 0} to {@code n - 1} with a Zipfian distribution, rank {@code 0} being
+ * the most popular, following Gray et al., "Quickly Generating Billion-Record Synthetic
+ * Databases", as YCSB does. Drawing is constant time; only the constructor is linear in
+ * {@code n}.
+ */
+final class ZipfianGenerator {
+
+    private final int n;
+    private final double theta;
+    private final double alpha;
+    private final double zetaN;
+    private final double eta;
+
+    /**
+     * @param theta skew of the distribution between {@code 0} (uniform) and {@code 1}
+     *              (exclusive), e.g. {@code 0.99} as in YCSB
+     */
+    ZipfianGenerator(int n, double theta) {
+        if (n <= 0 || theta < 0 || theta >= 1) {
+            throw new IllegalArgumentException("Invalid Zipfian distribution of " + n + " items with skew " + theta);
+        }
+        this.n = n;
+        this.theta = theta;
+        this.alpha = 1 / (1 - theta);
+        this.zetaN = zeta(n, theta);
+        this.eta = (1 - Math.pow(2.0 / n, 1 - theta)) / (1 - zeta(Math.min(n, 2), theta) / zetaN);
+    }
+
+    int next() {
+        final var u = ThreadLocalRandom.current().nextDouble();
+        final var uz = u * zetaN;
+        if (uz < 1) {
+            return 0;
+        }
+        if (uz < 1 + Math.pow(0.5, theta)) {
+            return Math.min(1, n - 1);
+        }
+        return Math.min((int) (n * Math.pow(eta * u - eta + 1, alpha)), n - 1);
+    }
+
+    private static double zeta(int n, double theta) {
+        var sum = 0.0;
+        for (int i = 1; i <= n; i++) {
+            sum += 1 / Math.pow(i, theta);
+        }
+        return sum;
+    }
+}
@@ -1,46 +1,156 @@
 package com.moneytransferservice;
 
+import com.moneytransferservice.bulk.AccountArchive;
+import com.moneytransferservice.bulk.AccountImport;
+import com.moneytransferservice.codec.ModelCodec;
+import com.moneytransferservice.feed.ChangeBatch;
+import com.moneytransferservice.feed.ChangeFanOut;
+import com.moneytransferservice.feed.ChangeFeed;
+import com.moneytransferservice.idempotency.IdempotencyCache;
+import com.moneytransferservice.ledger.Ledger;
+import com.moneytransferservice.ledger.Reconciliation;
+import com.moneytransferservice.ledger.TransferResult;
+import com.moneytransferservice.metrics.Metrics;
 import com.moneytransferservice.model.Account;
+import com.moneytransferservice.model.Currencies;
 import com.moneytransferservice.model.Transfer;
+import com.moneytransferservice.pipeline.TransferPipeline;
+import com.moneytransferservice.repository.InMemoryRepository;
 import com.moneytransferservice.repository.Repository;
+import com.moneytransferservice.repository.TransferStore;
+import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.QueryStringDecoder;
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.Future;
-import io.vertx.core.json.Json;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.Http2Settings;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.BodyHandler;
-import org.zalando.jackson.datatype.money.MoneyModule;
 
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongPredicate;
+import java.util.function.Supplier;
 
 public class Application extends AbstractVerticle {
 
     private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_ACCEPT_BACKLOG = -1;
+    private static final int DEFAULT_SOCKET_BUFFER_SIZE = -1;
+    private static final long DEFAULT_MAX_CONCURRENT_STREAMS = 100;
+    private static final int DEFAULT_CONNECTION_WINDOW_SIZE = -1;
+    private static final int DEFAULT_COMPRESSION_LEVEL = 6;
+    private static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+    private static final int DEFAULT_MAX_BATCH_SIZE = 1000;
     private static final String CONTENT_TYPE_HEADER = HttpHeaderNames.CONTENT_TYPE.toString();
     private static final String APPLICATION_JSON = "application/json; charset=utf-8";
+    private static final String BEST_EFFORT_MODE = "best-effort";
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int DEFAULT_HISTORY_PAGE_SIZE = 100;
+    private static final int STREAM_CHUNK_SIZE = 256;
+    private static final int EXPORT_CHUNK_SIZE = 128 * 1024;
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+    private static final String PREFER_HEADER = "Prefer";
+    private static final String PREFERENCE_APPLIED_HEADER = "Preference-Applied";
+    private static final String RESPOND_ASYNC = "respond-async";
+    private static final String PENDING_STATUS = "PENDING";
+    private static final String ETAG_HEADER = HttpHeaderNames.ETAG.toString();
+    private static final String IF_NONE_MATCH_HEADER = HttpHeaderNames.IF_NONE_MATCH.toString();
+    private static final String IF_MATCH_HEADER = HttpHeaderNames.IF_MATCH.toString();
+    private static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+    private static final String CHANGES_PATH = "/changes";
+    private static final long LAG_PROBE_INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
     private final Repository<Account> accountRepository;
-    private final Repository<Transfer> transferRepository;
+    private final Ledger ledger;
+    private final IdempotencyCache<CommitResponse> idempotencyCache;
+    private final Metrics metrics;
+    private final TransferPipeline pipeline;
+    private final ChangeFanOut changes;
+    private int maxBatchSize;
 
     public Application() {
-        this.accountRepository = new Repository<>();
-        this.transferRepository = new Repository<>();
+        this(new InMemoryRepository<>(), new TransferStore());
     }
 
     Application(Repository<Account> accountRepository,
-                Repository<Transfer> transferRepository) {
+                TransferStore transferRepository) {
+        this(accountRepository, new Ledger(accountRepository, transferRepository));
+    }
+
+    Application(Repository<Account> accountRepository, Ledger ledger) {
+        this(accountRepository, ledger, new IdempotencyCache<>(), new Metrics(), new TransferPipeline(ledger), null);
+    }
+
+    /**
+     * @param feed feed of the ledger's changes, streamed at {@code /changes}, or null
+     */
+    Application(Repository<Account> accountRepository,
+                Ledger ledger,
+                IdempotencyCache<CommitResponse> idempotencyCache,
+                Metrics metrics,
+                TransferPipeline pipeline,
+                ChangeFeed feed) {
         this.accountRepository = accountRepository;
-        this.transferRepository = transferRepository;
+        this.ledger = ledger;
+        this.idempotencyCache = idempotencyCache;
+        this.metrics = metrics;
+        this.pipeline = pipeline;
+        this.changes = feed == null ? null : new ChangeFanOut(feed);
     }
 
     @Override
     public void start(final Future<Void> future) {
-        Json.mapper.registerModule(new MoneyModule());
+        maxBatchSize = config().getInteger("transfer.maxBatchSize", DEFAULT_MAX_BATCH_SIZE);
+        probeEventLoopLag();
+        if (changes != null) {
+            vertx.eventBus().<ChangeBatch>consumer(ChangeFeed.ADDRESS, message -> changes.publish(message.body()));
+        }
+        startHttpServer(future);
+    }
+
+    private void probeEventLoopLag() {
+        final var lag = metrics.eventLoopLag(Thread.currentThread().getName());
+        final var expected = new long[]{System.nanoTime() + LAG_PROBE_INTERVAL};
+        vertx.setPeriodic(TimeUnit.NANOSECONDS.toMillis(LAG_PROBE_INTERVAL), timer -> {
+            final var now = System.nanoTime();
+            lag.record(now - expected[0]);
+            expected[0] = now + LAG_PROBE_INTERVAL;
+        });
+    }
+
+    private void startHttpServer(final Future<Void> future) {
         final var router = getRouter();
-        vertx.createHttpServer()
-                .requestHandler(router)
+        final var server = vertx.createHttpServer(serverOptions());
+        if (config().getBoolean("http.compression", false)) {
+            server.connectionHandler(IdentityEncodingStripper::install);
+        }
+        server.requestHandler(router)
+                .websocketHandler(this::streamChanges)
                 .listen(
                         config().getInteger("http.port", DEFAULT_PORT),
                         result -> {
@@ -53,27 +163,204 @@ public class Application extends AbstractVerticle {
                 );
     }
 
+    /**
+     * Server options from the config. HTTP/1.1 connections are kept alive and may pipeline
+     * requests; a clear text connection that starts with the HTTP/2 preface or asks for an h2c
+     * upgrade is served over HTTP/2 instead, multiplexing up to {@code http.maxConcurrentStreams}
+     * requests.
+     */
+    private HttpServerOptions serverOptions() {
+        return new HttpServerOptions()
+                .setTcpNoDelay(config().getBoolean("http.tcpNoDelay", true))
+                .setTcpFastOpen(config().getBoolean("http.tcpFastOpen", false))
+                .setTcpQuickAck(config().getBoolean("http.tcpQuickAck", false))
+                .setAcceptBacklog(config().getInteger("http.acceptBacklog", DEFAULT_ACCEPT_BACKLOG))
+                .setReceiveBufferSize(config().getInteger("http.receiveBufferSize", DEFAULT_SOCKET_BUFFER_SIZE))
+                .setSendBufferSize(config().getInteger("http.sendBufferSize", DEFAULT_SOCKET_BUFFER_SIZE))
+                .setIdleTimeout(config().getInteger("http.idleTimeout", 0))
+                .setInitialSettings(new Http2Settings().setMaxConcurrentStreams(
+                        config().getLong("http.maxConcurrentStreams", DEFAULT_MAX_CONCURRENT_STREAMS)))
+                .setHttp2ConnectionWindowSize(config().getInteger("http.connectionWindowSize",
+                        DEFAULT_CONNECTION_WINDOW_SIZE))
+                .setCompressionSupported(config().getBoolean("http.compression", false))
+                .setCompressionLevel(config().getInteger("http.compressionLevel", DEFAULT_COMPRESSION_LEVEL));
+    }
+
     private Router getRouter() {
         final var router = Router.router(vertx);
+        if (config().getBoolean("http.compression", false)) {
+            skipCompression(router, config().getInteger("http.compressionThreshold", DEFAULT_COMPRESSION_THRESHOLD));
+        }
+        // ahead of the body handler, so that archives are streamed instead of buffered
+        route(router, HttpMethod.POST, "/account/import", this::importAccounts);
+        route(router, HttpMethod.GET, "/account/export", this::exportAccounts);
         router.route("/*").handler(BodyHandler.create());
-        router.post("/account/").handler(this::createAccount);
-        router.get("/account/").handler(this::readAllAccounts);
-        router.get("/account/:uuid").handler(this::readAccount);
-        router.put("/account/").handler(this::updateAccount);
-        router.delete("/account/:uuid").handler(this::deleteAccount);
-        router.post("/transfer/commit").handler(this::commitMoneyTransfer);
+        route(router, HttpMethod.POST, "/account/", this::createAccount);
+        route(router, HttpMethod.GET, "/account/", this::readAllAccounts);
+        route(router, HttpMethod.GET, "/account/:uuid", this::readAccount);
+        route(router, HttpMethod.GET, "/account/:uuid/transfers", this::readAccountTransfers);
+        route(router, HttpMethod.PUT, "/account/", this::updateAccount);
+        route(router, HttpMethod.DELETE, "/account/:uuid", this::deleteAccount);
+        route(router, HttpMethod.POST, "/transfer/commit", this::commitMoneyTransfer);
+        route(router, HttpMethod.POST, "/transfer/batch", this::commitMoneyTransferBatch);
+        route(router, HttpMethod.GET, "/transfer/:uuid", this::readTransferStatus);
+        router.get("/metrics").handler(this::readMetrics);
+        router.get("/reconciliation").handler(this::readReconciliation);
+        router.get(CHANGES_PATH).handler(this::streamChanges);
         return router;
     }
 
-    private void createAccount(final RoutingContext context) {
+    /**
+     * Sends responses shorter than the threshold uncompressed, where compressing costs more time
+     * than the bytes it saves. Streamed responses have no length up front and stay compressed.
+     * Over HTTP/1.x the compressor skips responses marked {@code Content-Encoding: identity}, and
+     * the {@link IdentityEncodingStripper} removes that mark before it reaches the client; on a
+     * connection without the stripper short responses are compressed like any other.
+     */
+    private static void skipCompression(final Router router, final int threshold) {
+        router.route().handler(context -> {
+            final var response = context.response();
+            context.addHeadersEndHandler(ignored -> {
+                final var length = response.headers().get(HttpHeaderNames.CONTENT_LENGTH);
+                if (length == null || Long.parseLong(length) >= threshold) {
+                    return;
+                }
+                if (context.request().version() == HttpVersion.HTTP_2) {
+                    // the response starts out with the encoding the compressor will apply
+                    response.headers().remove(HttpHeaderNames.CONTENT_ENCODING);
+                } else if (IdentityEncodingStripper.isInstalled(context.request().connection())) {
+                    response.putHeader(HttpHeaderNames.CONTENT_ENCODING, HttpHeaderValues.IDENTITY);
+                }
+            });
+            context.next();
+        });
+    }
+
+    /**
+     * Once the ledger stopped after a journal failure, the route answers 503, reads included,
+     * since the ledger may hold mutations the journal lost.
+     */
+    private void route(final Router router,
+                       final HttpMethod method,
+                       final String path,
+                       final Handler<RoutingContext> handler) {
+        final var histogram = metrics.histogram(method.name(), path);
+        router.route(method, path).handler(context -> {
+            final var start = System.nanoTime();
+            context.addBodyEndHandler(ignored -> histogram.record(System.nanoTime() - start));
+            if (ledger.isStopped()) {
+                context.response().setStatusCode(HttpResponseStatus.SERVICE_UNAVAILABLE.code()).end();
+                return;
+            }
+            handler.handle(context);
+        });
+    }
+
+    private void readMetrics(final RoutingContext context) {
+        context.response()
+                .setStatusCode(HttpResponseStatus.OK.code())
+                .putHeader(CONTENT_TYPE_HEADER, Metrics.CONTENT_TYPE)
+                .end(metrics.scrape());
+    }
+
+    /**
+     * Reports the latest reconciliation of the ledger, running one first if none ran yet. Amounts
+     * are in minor units, and only currencies some account holds or was issued are listed. Only
+     * the first request runs one, because commits slow down while it runs.
+     */
+    private void readReconciliation(final RoutingContext context) {
+        final var latest = ledger.lastReconciliation();
+        if (latest != null) {
+            sendReconciliation(context, latest);
+            return;
+        }
+        vertx.<Reconciliation>executeBlocking(
+                reconciliation -> reconciliation.complete(ledger.reconcile(ForkJoinPool.commonPool())),
+                false,
+                result -> {
+                    if (result.failed()) {
+                        context.fail(result.cause());
+                    } else {
+                        sendReconciliation(context, result.result());
+                    }
+                });
+    }
+
+    private void sendReconciliation(final RoutingContext context, final Reconciliation reconciliation) {
+        final var currencies = new JsonObject();
+        for (int currency = 0; currency < Currencies.count(); currency++) {
+            if (!reconciliation.involves(currency)) {
+                continue;
+            }
+            currencies.put(Currencies.unitOf(currency).getCurrencyCode(), new JsonObject()
+                    .put("balance", reconciliation.balance(currency))
+                    .put("issued", reconciliation.issued(currency))
+                    .put("drift", reconciliation.drift(currency)));
+        }
+        context.response()
+                .setStatusCode(HttpResponseStatus.OK.code())
+                .putHeader(CONTENT_TYPE_HEADER, APPLICATION_JSON)
+                .end(new JsonObject()
+                        .put("lsn", reconciliation.lsn())
+                        .put("accounts", reconciliation.accounts())
+                        .put("balanced", reconciliation.isBalanced())
+                        .put("durationMillis", TimeUnit.NANOSECONDS.toMillis(reconciliation.nanos()))
+                        .put("currencies", currencies)
+                        .encode());
+    }
+
+    /**
+     * Streams the ledger's changes as server-sent events, resuming after the lsn of the
+     * {@code Last-Event-ID} header or the {@code after} parameter, or after the last published
+     * change without either.
+     */
+    private void streamChanges(final RoutingContext context) {
         try {
-            final var account = Json.decodeValue(context.getBodyAsString(), Account.class);
-            UUID uuid = accountRepository.create(account);
-            account.setId(uuid);
+            if (changes == null) {
+                context.next();
+                return;
+            }
+            final var lastEventId = context.request().getHeader(LAST_EVENT_ID_HEADER);
+            final var after = lastEventId != null ? lastEventId : context.request().getParam("after");
+            final var response = context.response();
+            if (!changes.subscribe(response, after == null ? changes.published() : Long.parseLong(after))
+                    && !response.headWritten()) {
+                response.setStatusCode(HttpResponseStatus.GONE.code()).end();
+            }
+        } catch (IllegalArgumentException e) {
             context.response()
-                    .setStatusCode(HttpResponseStatus.CREATED.code())
-                    .putHeader(CONTENT_TYPE_HEADER, APPLICATION_JSON)
-                    .end(uuid.toString());
+                    .setStatusCode(HttpResponseStatus.BAD_REQUEST.code())
+                    .end();
+        }
+    }
+
+    /**
+     * Streams the ledger's changes to a WebSocket at {@code /changes}, one text message per
+     * batch, resuming after the lsn of the {@code after} parameter.
+     */
+    private void streamChanges(final ServerWebSocket webSocket) {
+        if (changes == null || !CHANGES_PATH.equals(webSocket.path())) {
+            webSocket.reject();
+            return;
+        }
+        try {
+            final var after = new QueryStringDecoder(webSocket.uri()).parameters().get("after");
+            if (!changes.subscribe(webSocket, after == null ? changes.published() : Long.parseLong(after.get(0)))) {
+                webSocket.reject(HttpResponseStatus.GONE.code());
+            }
+        } catch (IllegalArgumentException e) {
+            webSocket.reject(HttpResponseStatus.BAD_REQUEST.code());
+        }
+    }
+
+    private void createAccount(final RoutingContext context) {
+        try {
+            final var account = ModelCodec.decodeAccount(context.getBody());
+            whenDurable(context, ledger.create(account), uuid ->
+                    context.response()
+                            .setStatusCode(HttpResponseStatus.CREATED.code())
+                            .putHeader(CONTENT_TYPE_HEADER, APPLICATION_JSON)
+                            .end(uuid.toString()));
         } catch (IllegalArgumentException e) {
             context.response()
                     .setStatusCode(HttpResponseStatus.BAD_REQUEST.code())
@@ -82,28 +369,172 @@ public class Application extends AbstractVerticle {
     }
 
     private void readAllAccounts(final RoutingContext context) {
-        accountRepository.readAll().ifPresent(accounts ->
-                context.response()
+        try {
+            final var limit = context.request().getParam("limit");
+            if (limit == null) {
+                streamAccounts(context.response()
                         .setStatusCode(HttpResponseStatus.OK.code())
                         .putHeader(CONTENT_TYPE_HEADER, APPLICATION_JSON)
-                        .end(Json.encode(accounts)));
+                        .setChunked(true)
+                        .write("["), accountRepository.iterator(), false);
+                return;
+            }
+            final var pageSize = Integer.parseInt(limit);
+            if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+                throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+            }
+            final var after = context.request().getParam("after");
+            final var page = accountRepository.readPage(
+                    after == null ? null : UUID.fromString(after), pageSize);
+            final var response = context.response()
+                    .setStatusCode(HttpResponseStatus.OK.code())
+                    .putHeader(CONTENT_TYPE_HEADER, APPLICATION_JSON);
+            if (page.size() == pageSize) {
+                response.putHeader(NEXT_CURSOR_HEADER, page.get(page.size() - 1).getId().toString());
+            }
+            response.end(ModelCodec.encodeAccounts(page));
+        } catch (IllegalArgumentException e) {
+            context.response()
+                    .setStatusCode(HttpResponseStatus.BAD_REQUEST.code())
+                    .end();
+        }
     }
 
-    private void readAccount(final RoutingContext context) {
-        try {
-            final var uuid = UUID.fromString(context.request().getParam("uuid"));
-            final var accountOptional = accountRepository.read(uuid);
-            if (accountOptional.isPresent()) {
-                final var account = accountOptional.get();
+    private void streamAccounts(final HttpServerResponse response,
+                                final Iterator<Account> accounts,
+                                final boolean continued) {
+        var separate = continued;
+        for (int i = 0; i < STREAM_CHUNK_SIZE && accounts.hasNext(); i++) {
+            if (response.closed()) {
+                return;
+            }
+            if (separate) {
+                response.write(",");
+            }
+            response.write(ModelCodec.encode(accounts.next()));
+            separate = true;
+            if (response.writeQueueFull()) {
+                response.drainHandler(ignored -> streamAccounts(response, accounts, true));
+                return;
+            }
+        }
+        if (!accounts.hasNext()) {
+            response.end("]");
+        } else if (!response.closed()) {
+            vertx.runOnContext(ignored -> streamAccounts(response, accounts, true));
+        }
+    }
+
+    /**
+     * Imports an account archive while it is uploaded, pausing the upload whenever enough chunks
+     * are in flight, and answers with the number of imported accounts once they are durable.
+     */
+    private void importAccounts(final RoutingContext context) {
+        final var request = context.request();
+        final var accountImport = new AccountImport(ledger, ForkJoinPool.commonPool());
+        final var vertxContext = vertx.getOrCreateContext();
+        final var rejected = new boolean[1];
+        request.handler(buffer -> {
+            if (rejected[0]) {
+                return;
+            }
+            try {
+                final var ready = accountImport.feed(buffer.getByteBuf().nioBuffer());
+                if (!ready.isDone()) {
+                    request.pause();
+                    ready.whenComplete((ignored, error) -> vertxContext.runOnContext(resume -> request.resume()));
+                }
+            } catch (IllegalArgumentException e) {
+                rejected[0] = true;
                 context.response()
-                        .setStatusCode(HttpResponseStatus.OK.code())
-                        .putHeader(CONTENT_TYPE_HEADER, APPLICATION_JSON)
-                        .end(Json.encode(account));
-            } else {
+                        .setStatusCode(HttpResponseStatus.BAD_REQUEST.code())
+                        .end();
+            }
+        });
+        request.endHandler(ignored -> {
+            if (rejected[0]) {
+                return;
+            }
+            try {
+                whenDurable(context, accountImport.finish(), count ->
+                        context.response()
+                                .setStatusCode(HttpResponseStatus.OK.code())
+                                .putHeader(CONTENT_TYPE_HEADER, APPLICATION_JSON)
+                                .end(new JsonObject().put("imported", count).encode()));
+            } catch (IllegalArgumentException e) {
                 context.response()
-                        .setStatusCode(HttpResponseStatus.NOT_FOUND.code())
+                        .setStatusCode(HttpResponseStatus.BAD_REQUEST.code())
                         .end();
             }
+        });
+    }
+
+    /**
+     * Streams all accounts as an account archive, encoding one chunk at a time.
+     */
+    private void exportAccounts(final RoutingContext context) {
+        final var response = context.response()
+                .setStatusCode(HttpResponseStatus.OK.code())
+                .putHeader(CONTENT_TYPE_HEADER, AccountArchive.CONTENT_TYPE)
+                .setChunked(true);
+        response.write(Buffer.buffer(Unpooled.wrappedBuffer(AccountArchive.header())));
+        exportAccounts(response, accountRepository.iterator(), null);
+    }
+
+    /**
+     * @param carried account that did not fit into the previous chunk, or {@code null}
+     */
+    private void exportAccounts(final HttpServerResponse response,
+                                final Iterator<Account> accounts,
+                                final Account carried) {
+        if (response.closed()) {
+            return;
+        }
+        final var chunk = ByteBuffer.allocate(EXPORT_CHUNK_SIZE);
+        var next = carried;
+        while (next != null || accounts.hasNext()) {
+            if (next == null) {
+                next = accounts.next();
+            }
+            if (!AccountArchive.encode(next, chunk)) {
+                break;
+            }
+            next = null;
+        }
+        response.write(Buffer.buffer(Unpooled.wrappedBuffer(chunk.flip())));
+        if (next == null && !accounts.hasNext()) {
+            response.end();
+            return;
+        }
+        final var remaining = next;
+        if (response.writeQueueFull()) {
+            response.drainHandler(ignored -> exportAccounts(response, accounts, remaining));
+        } else {
+            vertx.runOnContext(ignored -> exportAccounts(response, accounts, remaining));
+        }
+    }
+
+    private void readAccount(final RoutingContext context) {
+        try {
+            final var uuid = UUID.fromString(context.request().getParam("uuid"));
+            withAccount(context, uuid, account -> {
+                if (account == null) {
+                    context.response()
+                            .setStatusCode(HttpResponseStatus.NOT_FOUND.code())
+                            .end();
+                    return;
+                }
+                // taken before encoding, so a concurrent mutation can only make the tag older than the body
+                final var etag = etag(account.lsn());
+                final var response = context.response().putHeader(ETAG_HEADER, etag);
+                if (matches(context.request().getHeader(IF_NONE_MATCH_HEADER), etag, true)) {
+                    response.setStatusCode(HttpResponseStatus.NOT_MODIFIED.code()).end();
+                    return;
+                }
+                response.setStatusCode(HttpResponseStatus.OK.code())
+                        .putHeader(CONTENT_TYPE_HEADER, APPLICATION_JSON)
+                        .end(ModelCodec.encode(account));
+            });
         } catch (IllegalArgumentException e) {
             context.response()
                     .setStatusCode(HttpResponseStatus.BAD_REQUEST.code())
@@ -111,13 +542,57 @@ public class Application extends AbstractVerticle {
         }
     }
 
-    private void updateAccount(final RoutingContext context) {
+    private void readAccountTransfers(final RoutingContext context) {
         try {
-            final var account = Json.decodeValue(context.getBodyAsString(), Account.class);
-            accountRepository.update(account.getId(), account);
+            final var uuid = UUID.fromString(context.request().getParam("uuid"));
+            final var limit = context.request().getParam("limit");
+            final var pageSize = limit == null ? DEFAULT_HISTORY_PAGE_SIZE : Integer.parseInt(limit);
+            if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+                throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+            }
+            final var after = context.request().getParam("after");
+            final var afterLsn = after == null ? 0 : Long.parseLong(after);
+            withAccount(context, uuid, account -> {
+                if (account == null) {
+                    context.response()
+                            .setStatusCode(HttpResponseStatus.NOT_FOUND.code())
+                            .end();
+                    return;
+                }
+                final var page = ledger.transfersOf(uuid, afterLsn, pageSize);
+                final var response = context.response()
+                        .setStatusCode(HttpResponseStatus.OK.code())
+                        .putHeader(CONTENT_TYPE_HEADER, APPLICATION_JSON);
+                if (page.size() == pageSize) {
+                    response.putHeader(NEXT_CURSOR_HEADER, Long.toString(page.get(page.size() - 1).lsn()));
+                }
+                response.end(ModelCodec.encodeTransfers(page));
+            });
+        } catch (IllegalArgumentException e) {
             context.response()
-                    .setStatusCode(HttpResponseStatus.OK.code())
+                    .setStatusCode(HttpResponseStatus.BAD_REQUEST.code())
                     .end();
+        }
+    }
+
+    private void updateAccount(final RoutingContext context) {
+        try {
+            final var account = ModelCodec.decodeAccount(context.getBody());
+            final var ifMatch = context.request().getHeader(IF_MATCH_HEADER);
+            final LongPredicate precondition = ifMatch == null ? null : lsn -> matches(ifMatch, etag(lsn), false);
+            whenDurable(context, whenLoaded(Arrays.asList(account.getId()),
+                    () -> ledger.update(account.getId(), account, precondition)), lsn -> {
+                if (lsn == 0) {
+                    context.response()
+                            .setStatusCode(HttpResponseStatus.PRECONDITION_FAILED.code())
+                            .end();
+                    return;
+                }
+                context.response()
+                        .setStatusCode(HttpResponseStatus.OK.code())
+                        .putHeader(ETAG_HEADER, etag(lsn))
+                        .end();
+            });
         } catch (IllegalArgumentException e) {
             context.response()
                     .setStatusCode(HttpResponseStatus.BAD_REQUEST.code())
@@ -128,10 +603,10 @@ public class Application extends AbstractVerticle {
     private void deleteAccount(final RoutingContext context) {
         try {
             final var uuid = UUID.fromString(Objects.requireNonNull(context.request().getParam("uuid")));
-            accountRepository.delete(uuid);
-            context.response()
-                    .setStatusCode(HttpResponseStatus.NO_CONTENT.code())
-                    .end();
+            whenDurable(context, whenLoaded(List.of(uuid), () -> ledger.delete(uuid)), ignored ->
+                    context.response()
+                            .setStatusCode(HttpResponseStatus.NO_CONTENT.code())
+                            .end());
         } catch (IllegalArgumentException e) {
             context.response()
                     .setStatusCode(HttpResponseStatus.BAD_REQUEST.code())
@@ -141,46 +616,299 @@ public class Application extends AbstractVerticle {
 
     private void commitMoneyTransfer(final RoutingContext context) {
         try {
-            final var transfer = Json.decodeValue(context.getBodyAsString(), Transfer.class);
-            final var fromAccountOptional = accountRepository.read(transfer.getFromAccount());
-            final var toAccountOptional = accountRepository.read(transfer.getToAccount());
-            if (!fromAccountOptional.isPresent()) {
-                context.response()
-                        .setStatusCode(HttpResponseStatus.BAD_REQUEST.code())
-                        .end("The account from which the transition is made does not exist");
+            final var body = context.getBody();
+            final var transfer = ModelCodec.decodeTransfer(body).setId(null);
+            final var prefer = context.request().getHeader(PREFER_HEADER);
+            final var async = prefer != null && prefer.contains(RESPOND_ASYNC);
+            final var key = context.request().getHeader(IDEMPOTENCY_KEY_HEADER);
+            if (key == null) {
+                whenDurable(context, commit(transfer, async), response -> response.send(context));
                 return;
             }
-            if (!toAccountOptional.isPresent()) {
-                context.response()
-                        .setStatusCode(HttpResponseStatus.BAD_REQUEST.code())
-                        .end("The account to which the transition is made does not exist");
+            if (key.isEmpty() || key.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+                throw new IllegalArgumentException("Invalid idempotency key");
+            }
+            final var outcome = new CompletableFuture<CommitResponse>();
+            final var fingerprint = fingerprint(body);
+            final var previous = idempotencyCache.putIfAbsent(key, fingerprint, outcome);
+            if (previous != null) {
+                if (!previous.matches(fingerprint)) {
+                    context.response()
+                            .setStatusCode(HttpResponseStatus.UNPROCESSABLE_ENTITY.code())
+                            .end();
+                    return;
+                }
+                whenDurable(context, previous.outcome(), response -> response.send(context));
                 return;
             }
-            final var fromAccount = fromAccountOptional.get();
-            final var toAccount = toAccountOptional.get();
-            if (!fromAccount.getMoney().getCurrency().equals(transfer.getAmount().getCurrency())
-                    || !toAccount.getMoney().getCurrency().equals(transfer.getAmount().getCurrency())) {
+            commit(transfer, async).whenComplete((response, error) -> {
+                if (error != null || response.statusCode == HttpResponseStatus.TOO_MANY_REQUESTS.code()) {
+                    idempotencyCache.remove(key, outcome);
+                }
+                if (error != null) {
+                    outcome.completeExceptionally(error);
+                } else {
+                    outcome.complete(response);
+                }
+            });
+            whenDurable(context, outcome, response -> response.send(context));
+        } catch (IllegalArgumentException e) {
+            metrics.recordMalformedTransfer();
+            context.response()
+                    .setStatusCode(HttpResponseStatus.BAD_REQUEST.code())
+                    .end();
+        }
+    }
+
+    /**
+     * SHA-256 of the request body, so that a different request reusing a key is told apart from
+     * a retry unless it finds a collision of the digest.
+     */
+    private static byte[] fingerprint(final Buffer body) {
+        try {
+            final var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(body.getByteBuf().nioBuffer());
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private CompletableFuture<CommitResponse> commit(final Transfer transfer, final boolean async) {
+        if (async) {
+            final var outcome = pipeline.submit(transfer);
+            if (outcome == null) {
+                metrics.recordQueueFull();
+                return CompletableFuture.completedFuture(new CommitResponse(
+                        HttpResponseStatus.TOO_MANY_REQUESTS.code(), "The transfer queue is full"));
+            }
+            outcome.thenAccept(result -> {
+                if (!result.isCommitted()) {
+                    metrics.recordRejection(result);
+                }
+            });
+            return CompletableFuture.completedFuture(new CommitResponse(
+                    HttpResponseStatus.ACCEPTED.code(), transfer.getId().toString()));
+        }
+        return whenLoaded(Arrays.asList(transfer.getFromAccount(), transfer.getToAccount()),
+                () -> ledger.commit(transfer)).thenApply(result -> {
+            if (result.isCommitted()) {
+                return new CommitResponse(HttpResponseStatus.OK.code(), transfer.getId().toString());
+            }
+            metrics.recordRejection(result);
+            return new CommitResponse(HttpResponseStatus.BAD_REQUEST.code(), result.getMessage());
+        });
+    }
+
+    /**
+     * Commits the batch on the event loop while holding the locks of all of its accounts, so
+     * batches above the configured size are refused with 413 instead of stalling the loop.
+     */
+    private void commitMoneyTransferBatch(final RoutingContext context) {
+        try {
+            final var transfers = ModelCodec.decodeTransfers(context.getBody());
+            if (transfers.size() > maxBatchSize) {
                 context.response()
-                        .setStatusCode(HttpResponseStatus.BAD_REQUEST.code())
-                        .end("Invalid transfer сurrency specified");
+                        .setStatusCode(HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE.code())
+                        .end();
                 return;
             }
-            if (!fromAccount.checkMoneyAvailability(transfer.getAmount())) {
+            transfers.forEach(transfer -> transfer.setId(null));
+            final var atomic = !BEST_EFFORT_MODE.equals(context.request().getParam("mode"));
+            final var accounts = new ArrayList<UUID>(transfers.size() * 2);
+            transfers.forEach(transfer -> {
+                accounts.add(transfer.getFromAccount());
+                accounts.add(transfer.getToAccount());
+            });
+            whenDurable(context, whenLoaded(accounts, () -> ledger.commitAll(transfers, atomic)), results -> {
+                final var body = new JsonArray();
+                var committed = true;
+                for (int i = 0; i < results.size(); i++) {
+                    final var result = results.get(i);
+                    final var item = new JsonObject().put("status", result.name());
+                    if (result.isCommitted()) {
+                        item.put("id", transfers.get(i).getId().toString());
+                    } else {
+                        item.put("message", result.getMessage());
+                        committed = false;
+                    }
+                    body.add(item);
+                }
                 context.response()
-                        .setStatusCode(HttpResponseStatus.BAD_REQUEST.code())
-                        .end("Invalid transfer amount specified");
+                        .setStatusCode(atomic && !committed
+                                ? HttpResponseStatus.BAD_REQUEST.code()
+                                : HttpResponseStatus.OK.code())
+                        .putHeader(CONTENT_TYPE_HEADER, APPLICATION_JSON)
+                        .end(body.encode());
+            });
+        } catch (IllegalArgumentException e) {
+            context.response()
+                    .setStatusCode(HttpResponseStatus.BAD_REQUEST.code())
+                    .end();
+        }
+    }
+
+    private void readTransferStatus(final RoutingContext context) {
+        try {
+            final var uuid = UUID.fromString(context.request().getParam("uuid"));
+            final var outcome = pipeline.outcome(uuid);
+            if (outcome == null) {
+                if (ledger.readTransfer(uuid).isPresent()) {
+                    sendTransferStatus(context, uuid, TransferResult.COMMITTED.name(), null);
+                } else {
+                    context.response()
+                            .setStatusCode(HttpResponseStatus.NOT_FOUND.code())
+                            .end();
+                }
                 return;
             }
-            fromAccount.withdrawMoney(transfer.getAmount());
-            toAccount.acceptMoney(transfer.getAmount());
-            UUID transferUuid = transferRepository.create(transfer);
-            context.response()
-                    .setStatusCode(HttpResponseStatus.OK.code())
-                    .end(transferUuid.toString());
+            if (!outcome.isDone() && !Boolean.parseBoolean(context.request().getParam("wait"))) {
+                sendTransferStatus(context, uuid, PENDING_STATUS, null);
+                return;
+            }
+            whenDurable(context, outcome, result ->
+                    sendTransferStatus(context, uuid, result.name(), result.getMessage()));
         } catch (IllegalArgumentException e) {
             context.response()
                     .setStatusCode(HttpResponseStatus.BAD_REQUEST.code())
                     .end();
         }
     }
-}
\ No newline at end of file
+
+    private void sendTransferStatus(final RoutingContext context,
+                                    final UUID uuid,
+                                    final String status,
+                                    final String message) {
+        final var body = new JsonObject()
+                .put("id", uuid.toString())
+                .put("status", status);
+        if (message != null) {
+            body.put("message", message);
+        }
+        context.response()
+                .setStatusCode(HttpResponseStatus.OK.code())
+                .putHeader(CONTENT_TYPE_HEADER, APPLICATION_JSON)
+                .end(body.encode());
+    }
+
+    /**
+     * The lsn of an account is its version, so it makes a strong entity tag.
+     */
+    private static String etag(final long lsn) {
+        return "\"" + lsn + "\"";
+    }
+
+    /**
+     * @return whether an {@code If-Match} or {@code If-None-Match} header lists the entity tag,
+     * comparing weak tags as well only if {@code weak} is set
+     */
+    private static boolean matches(final String header, final String etag, final boolean weak) {
+        if (header == null) {
+            return false;
+        }
+        for (String tag : header.split(",")) {
+            final var trimmed = tag.trim();
+            if (trimmed.equals("*") || trimmed.equals(etag) || weak && trimmed.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the account on the event loop if the repository has it at hand and on a worker thread
+     * otherwise, so that the event loop never waits for a slower store.
+     */
+    private void withAccount(final RoutingContext context, final UUID uuid, final Handler<Account> handler) {
+        if (accountRepository.isLoaded(uuid)) {
+            handler.handle(accountRepository.get(uuid));
+            return;
+        }
+        vertx.<Account>executeBlocking(read -> read.complete(accountRepository.get(uuid)), false, result -> {
+            if (result.failed()) {
+                context.fail(result.cause());
+            } else {
+                handler.handle(result.result());
+            }
+        });
+    }
+
+    /**
+     * Runs a ledger mutation once the repository has its accounts at hand, loading the missing
+     * ones on a worker thread first, so that neither the event loop nor the locks the ledger
+     * takes wait for a slower store. An account evicted again meanwhile is read by the ledger.
+     */
+    private <T> CompletableFuture<T> whenLoaded(final Collection<UUID> uuids,
+                                                final Supplier<CompletableFuture<T>> mutation) {
+        final var missing = new ArrayList<UUID>();
+        for (UUID uuid : uuids) {
+            if (uuid == null) {
+                // the ledger rejects the mutation right away
+                return mutation.get();
+            }
+            if (!accountRepository.isLoaded(uuid)) {
+                missing.add(uuid);
+            }
+        }
+        if (missing.isEmpty()) {
+            return mutation.get();
+        }
+        final var outcome = new CompletableFuture<T>();
+        vertx.<Void>executeBlocking(load -> {
+            missing.forEach(accountRepository::get);
+            load.complete();
+        }, false, result -> {
+            if (result.failed()) {
+                outcome.completeExceptionally(result.cause());
+                return;
+            }
+            try {
+                mutation.get().whenComplete((value, error) -> {
+                    if (error != null) {
+                        outcome.completeExceptionally(error);
+                    } else {
+                        outcome.complete(value);
+                    }
+                });
+            } catch (RuntimeException e) {
+                outcome.completeExceptionally(e);
+            }
+        });
+        return outcome;
+    }
+
+    private <T> void whenDurable(final RoutingContext context,
+                                 final CompletableFuture<T> future,
+                                 final Handler<T> handler) {
+        final var vertxContext = vertx.getOrCreateContext();
+        future.whenComplete((result, error) -> vertxContext.runOnContext(ignored -> {
+            if (error != null) {
+                context.fail(error);
+            } else {
+                handler.handle(result);
+            }
+        }));
+    }
+
+    static final class CommitResponse {
+
+        private final int statusCode;
+        private final String body;
+
+        private CommitResponse(int statusCode, String body) {
+            this.statusCode = statusCode;
+            this.body = body;
+        }
+
+        private void send(final RoutingContext context) {
+            final var response = context.response().setStatusCode(statusCode);
+            if (statusCode == HttpResponseStatus.ACCEPTED.code()) {
+                response.putHeader(HttpHeaderNames.LOCATION.toString(), "/transfer/" + body)
+                        .putHeader(PREFERENCE_APPLIED_HEADER, RESPOND_ASYNC);
+            } else if (statusCode == HttpResponseStatus.TOO_MANY_REQUESTS.code()) {
+                response.putHeader(HttpHeaderNames.RETRY_AFTER.toString(), "1");
+            }
+            response.end(body);
+        }
+    }
+}
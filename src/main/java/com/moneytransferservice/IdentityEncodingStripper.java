@@ -0,0 +1,73 @@
+package com.moneytransferservice;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpResponse;
+import io.vertx.core.http.HttpConnection;
+import io.vertx.core.net.impl.ConnectionBase;
+
+/**
+ * Removes {@code Content-Encoding: identity} from HTTP/1.x responses once the compressor has
+ * passed them on. The header is how a response tells the compressor to leave it alone, but RFC
+ * 7231 advises against sending it to clients. HTTP/2 responses skip compression without it.
+ * <p>
+ * Vert.x keeps the pipeline of a connection to itself; only its internal {@link ConnectionBase}
+ * exposes it. A connection that is no such connection, or whose handlers are named differently,
+ * goes without the stripper, and callers must then not mark responses with the header.
+ */
+@ChannelHandler.Sharable
+final class IdentityEncodingStripper extends ChannelOutboundHandlerAdapter {
+
+    private static final IdentityEncodingStripper INSTANCE = new IdentityEncodingStripper();
+
+    // names Vert.x gives the handlers of an HTTP/1.x connection
+    private static final String ENCODER = "httpEncoder";
+    private static final String COMPRESSOR = "deflater";
+    private static final String NAME = "identityEncodingStripper";
+
+    private IdentityEncodingStripper() {
+    }
+
+    /**
+     * Adds the stripper between the compressor and the encoder of a compressing HTTP/1.x
+     * connection and leaves any other connection as it is.
+     *
+     * @return whether the stripper was added
+     */
+    static boolean install(HttpConnection connection) {
+        final var pipeline = pipeline(connection);
+        if (pipeline == null || pipeline.get(COMPRESSOR) == null || pipeline.get(ENCODER) == null) {
+            return false;
+        }
+        pipeline.addAfter(ENCODER, NAME, INSTANCE);
+        return true;
+    }
+
+    /**
+     * Must be called on the event loop of the connection.
+     */
+    static boolean isInstalled(HttpConnection connection) {
+        final var pipeline = pipeline(connection);
+        return pipeline != null && pipeline.get(NAME) != null;
+    }
+
+    private static ChannelPipeline pipeline(HttpConnection connection) {
+        return connection instanceof ConnectionBase ? ((ConnectionBase) connection).channel().pipeline() : null;
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof HttpResponse) {
+            final var headers = ((HttpResponse) msg).headers();
+            if (headers.containsValue(HttpHeaderNames.CONTENT_ENCODING, HttpHeaderValues.IDENTITY, true)) {
+                headers.remove(HttpHeaderNames.CONTENT_ENCODING);
+            }
+        }
+        super.write(ctx, msg, promise);
+    }
+}
@@ -0,0 +1,264 @@
+package com.moneytransferservice;
+
+import com.moneytransferservice.feed.ChangeFeed;
+import com.moneytransferservice.feed.ChangePublisher;
+import com.moneytransferservice.fx.RateTable;
+import com.moneytransferservice.idempotency.IdempotencyCache;
+import com.moneytransferservice.journal.FileAccountRepository;
+import com.moneytransferservice.journal.FileJournal;
+import com.moneytransferservice.journal.Journal;
+import com.moneytransferservice.journal.Snapshots;
+import com.moneytransferservice.ledger.Ledger;
+import com.moneytransferservice.ledger.Reconciliation;
+import com.moneytransferservice.ledger.Recovery;
+import com.moneytransferservice.metrics.LatencyHistogram;
+import com.moneytransferservice.metrics.Metrics;
+import com.moneytransferservice.model.Account;
+import com.moneytransferservice.pipeline.TransferPipeline;
+import com.moneytransferservice.repository.CachingRepository;
+import com.moneytransferservice.repository.InMemoryRepository;
+import com.moneytransferservice.repository.Repository;
+import com.moneytransferservice.repository.TransferStore;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Recovers the ledger and deploys one {@link Application} instance per event loop on top of it.
+ * <p>
+ * The instances share the HTTP port and a single {@link Ledger}. Its lock stripes already
+ * partition the accounts, and a transfer between two stripes only takes those two locks, so
+ * requests on different event loops proceed in parallel without a global lock.
+ */
+public class MainVerticle extends AbstractVerticle {
+
+    private static final long DEFAULT_SNAPSHOT_INTERVAL = 60_000;
+    private static final int DEFAULT_SUB_BALANCES = 16;
+    private static final int DEFAULT_ACCOUNT_CACHE_SIZE = 100_000;
+    private static final long DEFAULT_RATES_RELOAD_INTERVAL = 10_000;
+    private static final long DEFAULT_RECONCILIATION_INTERVAL = 300_000;
+    private static final Logger LOGGER = LoggerFactory.getLogger(MainVerticle.class);
+    private final TransferStore transferRepository = new TransferStore();
+    private Repository<Account> accountRepository = new InMemoryRepository<>();
+    private FileAccountRepository accountStore;
+    private CachingRepository<Account> accountCache;
+    private Journal journal;
+    private ChangeFeed feed;
+    private Snapshots snapshots;
+    private long recoveredLsn;
+    private Ledger ledger;
+    private TransferPipeline pipeline;
+    private RateTable rates = RateTable.NONE;
+    private long ratesModified;
+
+    @Override
+    public void start(final Future<Void> future) {
+        if (config().getBoolean("http.nativeTransport", false) && !vertx.isNativeTransportEnabled()) {
+            LOGGER.warn("Native transport is not available, falling back to NIO");
+        }
+        vertx.<Journal>executeBlocking(this::openStorage, false, journalResult -> {
+            if (journalResult.failed()) {
+                future.fail(journalResult.cause());
+                return;
+            }
+            journal = journalResult.result();
+            final var feedCapacity = config().getInteger("feed.capacity", ChangeFeed.DEFAULT_CAPACITY);
+            if (feedCapacity > 0) {
+                feed = new ChangeFeed(journal, feedCapacity, recoveredLsn);
+                vertx.deployVerticle(new ChangePublisher(feed,
+                        config().getLong("feed.interval", ChangePublisher.DEFAULT_INTERVAL)));
+            }
+            ledger = new Ledger(accountRepository, transferRepository, feed == null ? journal : feed, recoveredLsn);
+            ledger.rates(rates);
+            splitHotAccounts();
+            scheduleRateReloads();
+            scheduleReconciliations();
+            if (journal instanceof FileJournal) {
+                scheduleSnapshots((FileJournal) journal);
+            }
+            final var options = new DeploymentOptions()
+                    .setConfig(config())
+                    .setInstances(config().getInteger("instances",
+                            Runtime.getRuntime().availableProcessors()));
+            final var idempotencyCache = new IdempotencyCache<Application.CommitResponse>(
+                    config().getInteger("idempotency.capacity", IdempotencyCache.DEFAULT_CAPACITY),
+                    config().getLong("idempotency.ttl", IdempotencyCache.DEFAULT_TIME_TO_LIVE));
+            final var metrics = new Metrics(
+                    config().getInteger("metrics.subBuckets", LatencyHistogram.DEFAULT_SUB_BUCKETS));
+            if (accountCache != null) {
+                metrics.cache("accounts", accountCache);
+            }
+            pipeline = new TransferPipeline(ledger,
+                    config().getInteger("transfer.queueSize", TransferPipeline.DEFAULT_QUEUE_SIZE),
+                    config().getInteger("transfer.batchSize", TransferPipeline.DEFAULT_BATCH_SIZE));
+            vertx.deployVerticle(() -> new Application(accountRepository, ledger, idempotencyCache, metrics, pipeline, feed),
+                    options, result -> {
+                        if (result.succeeded()) {
+                            future.complete();
+                        } else {
+                            future.fail(result.cause());
+                        }
+                    });
+        });
+    }
+
+    @Override
+    public void stop() {
+        if (pipeline != null) {
+            pipeline.close();
+        }
+        // writes behind the journal, so it goes first
+        if (accountStore != null) {
+            accountStore.close();
+        }
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Loads the exchange rates and opens the account store, if they are configured, and recovers
+     * the journal into the store. The store is recovered from the journal, so it needs one.
+     */
+    private void openStorage(final Future<Journal> future) {
+        try {
+            final var ratesFile = config().getString("fx.rates");
+            if (ratesFile != null) {
+                ratesModified = Files.getLastModifiedTime(Paths.get(ratesFile)).toMillis();
+                rates = RateTable.load(Paths.get(ratesFile), config().getString("fx.base"));
+            }
+            final var directory = config().getString("journal.dir");
+            final var accountsDirectory = config().getString("accounts.dir");
+            if (accountsDirectory != null) {
+                if (directory == null) {
+                    future.fail(new IllegalStateException("accounts.dir requires journal.dir"));
+                    return;
+                }
+                accountStore = new FileAccountRepository(Paths.get(accountsDirectory));
+                accountCache = new CachingRepository<>(accountStore,
+                        config().getInteger("accounts.cacheSize", DEFAULT_ACCOUNT_CACHE_SIZE));
+                accountRepository = accountCache;
+            }
+            if (directory == null) {
+                future.complete(Journal.NONE);
+                return;
+            }
+            snapshots = new Snapshots(Paths.get(directory), accountStore);
+            final var recovery = new Recovery(accountRepository, transferRepository,
+                    snapshots.load(accountRepository, transferRepository));
+            final var fileJournal = FileJournal.open(
+                    Paths.get(directory),
+                    config().getInteger("journal.batchSize", FileJournal.DEFAULT_BATCH_SIZE),
+                    config().getBoolean("journal.sync", true),
+                    recovery);
+            recoveredLsn = recovery.lastLsn();
+            if (accountStore != null) {
+                if (accountStore.checkpointLsn() > recoveredLsn) {
+                    fileJournal.close();
+                    future.fail(new IllegalStateException("Account store in " + accountsDirectory
+                            + " is ahead of the journal in " + directory));
+                    return;
+                }
+                accountStore.writeBehind(fileJournal);
+            }
+            future.complete(fileJournal);
+        } catch (IOException e) {
+            future.fail(e);
+        }
+    }
+
+    private void splitHotAccounts() {
+        final var subBalances = config().getInteger("ledger.subBalances", DEFAULT_SUB_BALANCES);
+        config().getJsonArray("ledger.hotAccounts", new JsonArray()).forEach(uuid -> {
+            if (!ledger.split(UUID.fromString(uuid.toString()), subBalances)) {
+                LOGGER.warn("Hot account " + uuid + " does not exist");
+            }
+        });
+    }
+
+    /**
+     * Polls the exchange rate file and swaps in the new rates once it changed. Rates that fail to
+     * load are logged and the previous ones stay in place until the file changes again.
+     */
+    private void scheduleRateReloads() {
+        final var ratesFile = config().getString("fx.rates");
+        final long interval = config().getLong("fx.reloadInterval", DEFAULT_RATES_RELOAD_INTERVAL);
+        if (ratesFile == null || interval <= 0) {
+            return;
+        }
+        final var file = Paths.get(ratesFile);
+        vertx.setPeriodic(interval, timer ->
+                vertx.<RateTable>executeBlocking(reload -> {
+                    try {
+                        final var modified = Files.getLastModifiedTime(file).toMillis();
+                        if (modified == ratesModified) {
+                            reload.complete();
+                            return;
+                        }
+                        ratesModified = modified;
+                        reload.complete(RateTable.load(file, config().getString("fx.base")));
+                    } catch (IOException | IllegalArgumentException e) {
+                        reload.fail(e);
+                    }
+                }, true, result -> {
+                    if (result.failed()) {
+                        LOGGER.error("Failed to reload exchange rates from " + file, result.cause());
+                    } else if (result.result() != null) {
+                        ledger.rates(result.result());
+                        LOGGER.info("Reloaded exchange rates from " + file);
+                    }
+                }));
+    }
+
+    /**
+     * Reconciles the ledger periodically while transfers go on and logs any currency whose
+     * balances drifted from the issued money.
+     */
+    private void scheduleReconciliations() {
+        final long interval = config().getLong("reconciliation.interval", DEFAULT_RECONCILIATION_INTERVAL);
+        if (interval <= 0) {
+            return;
+        }
+        vertx.setPeriodic(interval, timer ->
+                vertx.<Reconciliation>executeBlocking(
+                        reconciliation -> reconciliation.complete(ledger.reconcile(ForkJoinPool.commonPool())),
+                        true,
+                        result -> {
+                            if (result.failed()) {
+                                LOGGER.error("Failed to reconcile the ledger", result.cause());
+                            } else if (!result.result().isBalanced()) {
+                                LOGGER.error("Ledger balances drifted from the issued money as of lsn "
+                                        + result.result().lsn());
+                            }
+                        }));
+    }
+
+    private void scheduleSnapshots(final FileJournal fileJournal) {
+        final long interval = config().getLong("snapshot.interval", DEFAULT_SNAPSHOT_INTERVAL);
+        if (interval <= 0) {
+            return;
+        }
+        vertx.setPeriodic(interval, timer ->
+                vertx.<Void>executeBlocking(snapshot -> {
+                    try {
+                        snapshots.write(ledger, fileJournal);
+                        snapshot.complete();
+                    } catch (IOException e) {
+                        snapshot.fail(e);
+                    }
+                }, true, result -> {
+                    if (result.failed()) {
+                        LOGGER.error("Failed to write snapshot", result.cause());
+                    }
+                }));
+    }
+}
@@ -0,0 +1,32 @@
+package com.moneytransferservice;
+
+import io.vertx.core.Launcher;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Vert.x launcher that applies the parts of the config which have to be known before Vert.x
+ * starts, that is before any verticle sees its config.
+ * <p>
+ * With {@code http.nativeTransport} Vert.x prefers the epoll transport, which the TCP options
+ * {@code http.tcpFastOpen} and {@code http.tcpQuickAck} depend on. Where epoll is not available
+ * Vert.x falls back to NIO, and {@link MainVerticle} logs a warning.
+ */
+public class ServiceLauncher extends Launcher {
+
+    private JsonObject config = new JsonObject();
+
+    public static void main(String[] args) {
+        new ServiceLauncher().dispatch(args);
+    }
+
+    @Override
+    public void afterConfigParsed(JsonObject config) {
+        this.config = config;
+    }
+
+    @Override
+    public void beforeStartingVertx(VertxOptions options) {
+        options.setPreferNativeTransport(config.getBoolean("http.nativeTransport", false));
+    }
+}
@@ -0,0 +1,204 @@
+package com.moneytransferservice.bulk;
+
+import com.moneytransferservice.model.Account;
+import com.moneytransferservice.model.Currencies;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Streamed binary format of bulk account imports and exports: {@code int magic, int version}
+ * followed by records of {@code int length, payload} up to the end of the stream.
+ * <p>
+ * The payload of a record is {@code long mostSigBits, long leastSigBits, byte codeLength,
+ * code, long minorUnits, int nameLength, name}, with the currency code in ASCII and the name in
+ * UTF-8. A zero id asks the importer to generate one, a negative name length stands for no name.
+ * <p>
+ * Malformed input is reported with an {@link IllegalArgumentException}.
+ */
+public final class AccountArchive {
+
+    public static final String CONTENT_TYPE = "application/vnd.money-transfer.accounts";
+    public static final int HEADER_SIZE = Integer.BYTES * 2;
+
+    private static final int MAGIC = 0x4d545341;
+    private static final int VERSION = 1;
+    private static final int MIN_PAYLOAD_SIZE = Long.BYTES * 3 + Byte.BYTES + Integer.BYTES;
+    private static final int MAX_PAYLOAD_SIZE = 64 * 1024;
+
+    private AccountArchive() {
+    }
+
+    public static ByteBuffer header() {
+        return ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip();
+    }
+
+    /**
+     * Appends the record of the account to the buffer.
+     *
+     * @return {@code false}, leaving the buffer as it was, if the record does not fit
+     */
+    public static boolean encode(Account account, ByteBuffer buffer) {
+        final var name = account.getName() == null
+                ? null : account.getName().getBytes(StandardCharsets.UTF_8);
+        final var currency = account.currency();
+        final var code = currency == Currencies.UNDEFINED
+                ? null : Currencies.unitOf(currency).getCurrencyCode();
+        final var codeLength = code == null ? 0 : code.length();
+        final var payloadSize = MIN_PAYLOAD_SIZE + codeLength + (name == null ? 0 : name.length);
+        if (payloadSize > MAX_PAYLOAD_SIZE) {
+            throw new IllegalArgumentException("Account " + account.getId() + " is too large to export");
+        }
+        if (buffer.remaining() < Integer.BYTES + payloadSize) {
+            return false;
+        }
+        final var uuid = account.getId();
+        buffer.putInt(payloadSize);
+        buffer.putLong(uuid == null ? 0 : uuid.getMostSignificantBits());
+        buffer.putLong(uuid == null ? 0 : uuid.getLeastSignificantBits());
+        buffer.put((byte) codeLength);
+        for (int i = 0; i < codeLength; i++) {
+            buffer.put((byte) code.charAt(i));
+        }
+        buffer.putLong(account.minorUnits());
+        buffer.putInt(name == null ? -1 : name.length);
+        if (name != null) {
+            buffer.put(name);
+        }
+        return true;
+    }
+
+    /**
+     * Decodes a stream that arrives in arbitrarily split pieces. Records split between pieces are
+     * carried over, so only those are copied.
+     */
+    public static final class Decoder {
+
+        private final ByteBuffer pending = ByteBuffer.allocate(Integer.BYTES + MAX_PAYLOAD_SIZE);
+        private boolean started;
+
+        /**
+         * Decodes every complete record of the piece, consuming it entirely.
+         */
+        public void feed(ByteBuffer piece, Consumer<Account> consumer) {
+            while (piece.hasRemaining()) {
+                if (pending.position() > 0) {
+                    complete(piece, consumer);
+                } else if (!started) {
+                    if (piece.remaining() < HEADER_SIZE) {
+                        carry(piece, HEADER_SIZE);
+                    } else {
+                        readHeader(piece);
+                    }
+                } else if (piece.remaining() < Integer.BYTES) {
+                    carry(piece, Integer.BYTES);
+                } else {
+                    final var size = payloadSize(piece.getInt(piece.position()));
+                    if (piece.remaining() < Integer.BYTES + size) {
+                        carry(piece, Integer.BYTES + size);
+                    } else {
+                        final var start = piece.position() + Integer.BYTES;
+                        consumer.accept(readAccount(piece.duplicate().position(start).limit(start + size)));
+                        piece.position(start + size);
+                    }
+                }
+            }
+        }
+
+        /**
+         * @throws IllegalArgumentException if the stream ended in the middle of a record
+         */
+        public void finish() {
+            if (!started || pending.position() > 0) {
+                throw new IllegalArgumentException("Truncated account archive");
+            }
+        }
+
+        /**
+         * Moves bytes of the piece into the carried over header or record and decodes it once it
+         * is complete.
+         */
+        private void complete(ByteBuffer piece, Consumer<Account> consumer) {
+            if (!started) {
+                carry(piece, HEADER_SIZE);
+                if (pending.position() == HEADER_SIZE) {
+                    readHeader(pending.flip());
+                    pending.clear();
+                }
+                return;
+            }
+            if (pending.position() < Integer.BYTES) {
+                carry(piece, Integer.BYTES);
+                if (pending.position() < Integer.BYTES) {
+                    return;
+                }
+            }
+            final var size = payloadSize(pending.getInt(0));
+            carry(piece, Integer.BYTES + size);
+            if (pending.position() == Integer.BYTES + size) {
+                consumer.accept(readAccount(pending.flip().position(Integer.BYTES)));
+                pending.clear();
+            }
+        }
+
+        private void carry(ByteBuffer piece, int upTo) {
+            final var count = Math.min(upTo - pending.position(), piece.remaining());
+            if (count > 0) {
+                pending.put(piece.duplicate().limit(piece.position() + count));
+                piece.position(piece.position() + count);
+            }
+        }
+
+        private void readHeader(ByteBuffer buffer) {
+            if (buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not an account archive");
+            }
+            final var version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported account archive version " + version);
+            }
+            started = true;
+        }
+
+        private static int payloadSize(int size) {
+            if (size < MIN_PAYLOAD_SIZE || size > MAX_PAYLOAD_SIZE) {
+                throw new IllegalArgumentException("Invalid account record length " + size);
+            }
+            return size;
+        }
+
+        private static Account readAccount(ByteBuffer record) {
+            final var most = record.getLong();
+            final var least = record.getLong();
+            final var account = new Account();
+            if (most != 0 || least != 0) {
+                account.setId(new UUID(most, least));
+            }
+            final var codeLength = record.get();
+            if (codeLength < 0 || codeLength > record.remaining() - Long.BYTES - Integer.BYTES) {
+                throw new IllegalArgumentException("Invalid currency code length " + codeLength);
+            }
+            final var code = new byte[codeLength];
+            record.get(code);
+            final var minorUnits = record.getLong();
+            account.setMoney(codeLength == 0
+                    ? Currencies.UNDEFINED
+                    : Currencies.indexOf(new String(code, StandardCharsets.US_ASCII)), minorUnits);
+            final var nameLength = record.getInt();
+            if (nameLength >= 0) {
+                if (nameLength != record.remaining()) {
+                    throw new IllegalArgumentException("Invalid account name length " + nameLength);
+                }
+                final var name = new byte[nameLength];
+                record.get(name);
+                account.setName(new String(name, StandardCharsets.UTF_8));
+            }
+            if (record.hasRemaining()) {
+                throw new IllegalArgumentException("Trailing bytes in account record");
+            }
+            return account;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.moneytransferservice.bulk;
+
+import com.moneytransferservice.model.Account;
+import com.moneytransferservice.model.Currencies;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Command line mode of bulk account transfers against a running service:
+ * <ul>
+ * <li>{@code generate <file>} writes an archive of {@code --accounts} accounts holding
+ * {@code --balance} minor units of {@code --currency} each, with ids left to the importer
+ * unless {@code --ids true}</li>
+ * <li>{@code import <file>} uploads an archive to {@code POST /account/import}</li>
+ * <li>{@code export <file>} downloads all accounts from {@code GET /account/export}</li>
+ * </ul>
+ * Files are streamed through NIO channels, the service is addressed with {@code --host} and
+ * {@code --port}.
+ */
+public final class AccountBulk {
+
+    private static final int WRITE_BUFFER_SIZE = 1024 * 1024;
+
+    private AccountBulk() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2 || args.length % 2 != 0) {
+            System.err.println("Usage: AccountBulk generate|import|export <file> [--name value]...");
+            System.exit(2);
+        }
+        final var file = Paths.get(args[1]);
+        final var options = new HashMap<String, String>();
+        for (int i = 2; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Expected an option instead of " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        final var start = System.nanoTime();
+        final String outcome;
+        switch (args[0]) {
+            case "generate":
+                outcome = generate(file, options);
+                break;
+            case "import":
+                outcome = send(HttpRequest.newBuilder(uri(options, "/account/import"))
+                        .header("Content-Type", AccountArchive.CONTENT_TYPE)
+                        .POST(HttpRequest.BodyPublishers.ofFile(file))
+                        .build(), HttpResponse.BodyHandlers.ofString()).body();
+                break;
+            case "export":
+                outcome = send(HttpRequest.newBuilder(uri(options, "/account/export")).GET().build(),
+                        HttpResponse.BodyHandlers.ofFile(file)).body() + " written";
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown command " + args[0]);
+        }
+        System.out.printf("%s in %d ms%n", outcome, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static String generate(Path file, Map<String, String> options) throws IOException {
+        final var count = Long.parseLong(options.getOrDefault("accounts", "1000000"));
+        final var currency = Currencies.indexOf(options.getOrDefault("currency", "USD"));
+        final var balance = Long.parseLong(options.getOrDefault("balance", "100000"));
+        final var ids = Boolean.parseBoolean(options.getOrDefault("ids", "false"));
+        try (var channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.write(AccountArchive.header());
+            final var buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+            final var account = new Account();
+            for (long i = 0; i < count; i++) {
+                account.setId(ids ? UUID.randomUUID() : null)
+                        .setName("Account " + i)
+                        .setMoney(currency, balance);
+                if (!AccountArchive.encode(account, buffer)) {
+                    write(channel, buffer);
+                    AccountArchive.encode(account, buffer);
+                }
+            }
+            write(channel, buffer);
+        }
+        return count + " accounts generated";
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static URI uri(Map<String, String> options, String path) {
+        return URI.create("http://" + options.getOrDefault("host", "localhost")
+                + ":" + options.getOrDefault("port", "8080") + path);
+    }
+
+    private static <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler)
+            throws IOException, InterruptedException {
+        final var response = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build()
+                .send(request, handler);
+        if (response.statusCode() != 200) {
+            throw new IOException(request.method() + " " + request.uri() + " failed with " + response.statusCode());
+        }
+        return response;
+    }
+}
@@ -0,0 +1,113 @@
+package com.moneytransferservice.bulk;
+
+import com.moneytransferservice.ledger.Ledger;
+import com.moneytransferservice.model.Account;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Imports an {@link AccountArchive account archive} into the ledger while it is still arriving.
+ * <p>
+ * Decoded accounts are collected into chunks, and every full chunk is created on the executor,
+ * so chunks are imported in parallel while the next ones are decoded. The accounts go through
+ * the ledger like single creations, so they are journaled and counted as issued money, just
+ * without a request, a JSON document and a response each. An account that carries an id is
+ * created, or replaces the existing one, under that id, so importing an export restores it.
+ * <p>
+ * At most {@code maxChunks} chunks are in flight. The archive is fed from a single thread, which
+ * stops feeding until the future returned by {@link #feed} completes. The import is not atomic:
+ * chunks before a malformed record stay imported.
+ */
+public final class AccountImport {
+
+    public static final int DEFAULT_CHUNK_SIZE = 4096;
+    public static final int DEFAULT_MAX_CHUNKS = Runtime.getRuntime().availableProcessors() * 2;
+
+    private static final CompletableFuture<Void> READY = CompletableFuture.completedFuture(null);
+
+    private final Ledger ledger;
+    private final Executor executor;
+    private final int chunkSize;
+    private final int maxChunks;
+    private final AccountArchive.Decoder decoder = new AccountArchive.Decoder();
+    private final ArrayDeque<CompletableFuture<Void>> inFlight = new ArrayDeque<>();
+    private final List<CompletableFuture<Void>> chunks = new ArrayList<>();
+    private List<Account> chunk;
+    private long count;
+
+    public AccountImport(Ledger ledger, Executor executor) {
+        this(ledger, executor, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_CHUNKS);
+    }
+
+    public AccountImport(Ledger ledger, Executor executor, int chunkSize, int maxChunks) {
+        if (chunkSize <= 0 || maxChunks <= 0) {
+            throw new IllegalArgumentException("Chunk size and chunks in flight must be positive");
+        }
+        this.ledger = ledger;
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+        this.maxChunks = maxChunks;
+        this.chunk = new ArrayList<>(chunkSize);
+    }
+
+    /**
+     * Decodes the next piece of the archive and starts importing every chunk it completes.
+     *
+     * @return a future that completes once another piece may be fed
+     */
+    public CompletableFuture<Void> feed(ByteBuffer piece) {
+        decoder.feed(piece, this::add);
+        while (!inFlight.isEmpty() && inFlight.peek().isDone()) {
+            inFlight.poll();
+        }
+        return inFlight.size() < maxChunks ? READY : inFlight.peek();
+    }
+
+    /**
+     * Imports the last, partial chunk after the archive ended.
+     *
+     * @return the number of imported accounts, once all of them are durable
+     * @throws IllegalArgumentException if the archive ended in the middle of a record
+     */
+    public CompletableFuture<Long> finish() {
+        decoder.finish();
+        if (!chunk.isEmpty()) {
+            submit();
+        }
+        final var imported = count;
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0])).thenApply(ignored -> imported);
+    }
+
+    private void add(Account account) {
+        chunk.add(account);
+        count++;
+        if (chunk.size() == chunkSize) {
+            submit();
+        }
+    }
+
+    private void submit() {
+        final var accounts = chunk;
+        chunk = new ArrayList<>(chunkSize);
+        final var imported = CompletableFuture.supplyAsync(() -> importChunk(accounts), executor)
+                .thenCompose(appends -> appends);
+        inFlight.add(imported);
+        chunks.add(imported);
+    }
+
+    private CompletableFuture<Void> importChunk(List<Account> accounts) {
+        final var appends = new CompletableFuture[accounts.size()];
+        for (int i = 0; i < appends.length; i++) {
+            final var account = accounts.get(i);
+            appends[i] = account.getId() == null
+                    ? ledger.create(account)
+                    : ledger.update(account.getId(), account);
+        }
+        return CompletableFuture.allOf(appends);
+    }
+}
@@ -0,0 +1,701 @@
+package com.moneytransferservice.codec;
+
+import com.moneytransferservice.model.Account;
+import com.moneytransferservice.model.Currencies;
+import com.moneytransferservice.model.Transfer;
+import io.netty.buffer.ByteBuf;
+import io.vertx.core.buffer.Buffer;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * JSON codec for accounts and transfers that works on the request and response bytes directly.
+ * <p>
+ * Decoding walks the bytes of the request {@link Buffer} and converts money amounts straight to
+ * minor units, so neither the body nor the amounts pass through {@link String}, a Jackson tree
+ * or {@link org.javamoney.moneta.Money}. Encoding appends to a presized {@link Buffer}. The
+ * produced JSON is the one Jackson writes with the {@code MoneyModule}, including field order.
+ * <p>
+ * Malformed input is reported with an {@link IllegalArgumentException}.
+ */
+public final class ModelCodec {
+
+    private static final int MAX_INTEGER_DIGITS = 19;
+    private static final byte[] ACCOUNT_NAME = ascii("{\"name\":");
+    private static final byte[] ACCOUNT_ID = ascii(",\"id\":");
+    private static final byte[] ACCOUNT_MONEY = ascii(",\"money\":");
+    private static final byte[] TRANSFER_FROM_ACCOUNT = ascii("{\"fromAccount\":");
+    private static final byte[] TRANSFER_TO_ACCOUNT = ascii(",\"toAccount\":");
+    private static final byte[] TRANSFER_ID = ascii(",\"id\":");
+    private static final byte[] TRANSFER_AMOUNT = ascii(",\"amount\":");
+    private static final byte[] CHANGE_LSN = ascii("{\"lsn\":");
+    private static final byte[] CHANGE_ACCOUNT = ascii(",\"account\":");
+    private static final byte[] CHANGE_DELETED_ACCOUNT = ascii(",\"deletedAccount\":");
+    private static final byte[] CHANGE_TRANSFER = ascii(",\"transfer\":");
+    private static final byte[] MONEY_AMOUNT = ascii("{\"amount\":");
+    private static final byte[] MONEY_CURRENCY = ascii(",\"currency\":\"");
+    private static final byte[] NULL = ascii("null");
+    private static final byte[] HEX = ascii("0123456789abcdef");
+    private static final byte[] ESCAPE_HEX = ascii("0123456789ABCDEF");
+    private static final int ACCOUNT_SIZE = 128;
+    private static final int TRANSFER_SIZE = 192;
+
+    private static final String[] ACCOUNT_FIELDS = {"name", "id", "money"};
+    private static final String[] TRANSFER_FIELDS = {"id", "fromAccount", "toAccount", "amount"};
+    private static final String[] MONEY_FIELDS = {"amount", "currency", "formatted"};
+
+    private ModelCodec() {
+    }
+
+    public static Account decodeAccount(Buffer buffer) {
+        final var reader = new Reader(buffer);
+        final var account = reader.readAccount();
+        reader.finish();
+        return account;
+    }
+
+    public static Transfer decodeTransfer(Buffer buffer) {
+        final var reader = new Reader(buffer);
+        final var transfer = reader.readTransfer();
+        reader.finish();
+        return transfer;
+    }
+
+    public static List<Transfer> decodeTransfers(Buffer buffer) {
+        final var reader = new Reader(buffer);
+        final var transfers = new ArrayList<Transfer>();
+        reader.expect('[');
+        if (!reader.consume(']')) {
+            do {
+                transfers.add(reader.readTransfer());
+            } while (reader.consume(','));
+            reader.expect(']');
+        }
+        reader.finish();
+        return transfers;
+    }
+
+    public static Buffer encode(Account account) {
+        final var buffer = Buffer.buffer(ACCOUNT_SIZE);
+        writeAccount(buffer, account);
+        return buffer;
+    }
+
+    public static Buffer encode(Transfer transfer) {
+        final var buffer = Buffer.buffer(TRANSFER_SIZE);
+        writeTransfer(buffer, transfer);
+        return buffer;
+    }
+
+    public static Buffer encodeAccounts(List<Account> accounts) {
+        final var buffer = Buffer.buffer(2 + accounts.size() * ACCOUNT_SIZE);
+        buffer.appendByte((byte) '[');
+        for (int i = 0; i < accounts.size(); i++) {
+            if (i > 0) {
+                buffer.appendByte((byte) ',');
+            }
+            writeAccount(buffer, accounts.get(i));
+        }
+        return buffer.appendByte((byte) ']');
+    }
+
+    public static Buffer encodeTransfers(List<Transfer> transfers) {
+        final var buffer = Buffer.buffer(2 + transfers.size() * TRANSFER_SIZE);
+        buffer.appendByte((byte) '[');
+        for (int i = 0; i < transfers.size(); i++) {
+            if (i > 0) {
+                buffer.appendByte((byte) ',');
+            }
+            writeTransfer(buffer, transfers.get(i));
+        }
+        return buffer.appendByte((byte) ']');
+    }
+
+    /**
+     * Encodes a change of the account with the lsn of the change, e.g.
+     * {@code {"lsn":42,"account":{...}}}.
+     */
+    public static Buffer encodeChange(long lsn, Account account) {
+        final var buffer = Buffer.buffer(32 + ACCOUNT_SIZE);
+        buffer.appendBytes(CHANGE_LSN);
+        writeAmount(buffer, lsn, 0);
+        buffer.appendBytes(CHANGE_ACCOUNT);
+        writeAccount(buffer, account);
+        return buffer.appendByte((byte) '}');
+    }
+
+    public static Buffer encodeChange(long lsn, UUID deletedAccount) {
+        final var buffer = Buffer.buffer(96);
+        buffer.appendBytes(CHANGE_LSN);
+        writeAmount(buffer, lsn, 0);
+        buffer.appendBytes(CHANGE_DELETED_ACCOUNT);
+        writeUuid(buffer, deletedAccount);
+        return buffer.appendByte((byte) '}');
+    }
+
+    public static Buffer encodeChange(long lsn, Transfer transfer) {
+        final var buffer = Buffer.buffer(32 + TRANSFER_SIZE);
+        buffer.appendBytes(CHANGE_LSN);
+        writeAmount(buffer, lsn, 0);
+        buffer.appendBytes(CHANGE_TRANSFER);
+        writeTransfer(buffer, transfer);
+        return buffer.appendByte((byte) '}');
+    }
+
+    private static void writeAccount(Buffer buffer, Account account) {
+        buffer.appendBytes(ACCOUNT_NAME);
+        writeString(buffer, account.getName());
+        buffer.appendBytes(ACCOUNT_ID);
+        writeUuid(buffer, account.getId());
+        buffer.appendBytes(ACCOUNT_MONEY);
+        writeMoney(buffer, account.currency(), account.minorUnits());
+        buffer.appendByte((byte) '}');
+    }
+
+    private static void writeTransfer(Buffer buffer, Transfer transfer) {
+        buffer.appendBytes(TRANSFER_FROM_ACCOUNT);
+        writeUuid(buffer, transfer.getFromAccount());
+        buffer.appendBytes(TRANSFER_TO_ACCOUNT);
+        writeUuid(buffer, transfer.getToAccount());
+        buffer.appendBytes(TRANSFER_ID);
+        writeUuid(buffer, transfer.getId());
+        buffer.appendBytes(TRANSFER_AMOUNT);
+        writeMoney(buffer, transfer.currency(), transfer.minorUnits());
+        buffer.appendByte((byte) '}');
+    }
+
+    private static void writeMoney(Buffer buffer, int currency, long minorUnits) {
+        if (currency == Currencies.UNDEFINED) {
+            buffer.appendBytes(NULL);
+            return;
+        }
+        buffer.appendBytes(MONEY_AMOUNT);
+        writeAmount(buffer, minorUnits, Currencies.fractionDigits(currency));
+        buffer.appendBytes(MONEY_CURRENCY)
+                .appendString(Currencies.unitOf(currency).getCurrencyCode(), "US-ASCII")
+                .appendByte((byte) '"')
+                .appendByte((byte) '}');
+    }
+
+    private static void writeAmount(Buffer buffer, long minorUnits, int fractionDigits) {
+        if (minorUnits < 0) {
+            buffer.appendByte((byte) '-');
+        }
+        final var digits = new byte[20];
+        var count = 0;
+        var value = minorUnits;
+        do {
+            digits[count++] = (byte) ('0' + Math.abs(value % 10));
+            value /= 10;
+        } while (value != 0 || count <= fractionDigits);
+        while (count > 0) {
+            if (count == fractionDigits) {
+                buffer.appendByte((byte) '.');
+            }
+            buffer.appendByte(digits[--count]);
+        }
+    }
+
+    private static void writeUuid(Buffer buffer, UUID uuid) {
+        if (uuid == null) {
+            buffer.appendBytes(NULL);
+            return;
+        }
+        buffer.appendByte((byte) '"');
+        writeHex(buffer, uuid.getMostSignificantBits() >>> 32, 8);
+        buffer.appendByte((byte) '-');
+        writeHex(buffer, uuid.getMostSignificantBits() >>> 16, 4);
+        buffer.appendByte((byte) '-');
+        writeHex(buffer, uuid.getMostSignificantBits(), 4);
+        buffer.appendByte((byte) '-');
+        writeHex(buffer, uuid.getLeastSignificantBits() >>> 48, 4);
+        buffer.appendByte((byte) '-');
+        writeHex(buffer, uuid.getLeastSignificantBits(), 12);
+        buffer.appendByte((byte) '"');
+    }
+
+    private static void writeHex(Buffer buffer, long value, int digits) {
+        for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4) {
+            buffer.appendByte(HEX[(int) (value >>> shift) & 0xf]);
+        }
+    }
+
+    private static void writeString(Buffer buffer, String value) {
+        if (value == null) {
+            buffer.appendBytes(NULL);
+            return;
+        }
+        buffer.appendByte((byte) '"');
+        for (int i = 0; i < value.length(); i++) {
+            final var c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                buffer.appendByte((byte) '\\').appendByte((byte) c);
+            } else if (c < 0x20) {
+                writeControlCharacter(buffer, c);
+            } else if (c < 0x80) {
+                buffer.appendByte((byte) c);
+            } else if (c < 0x800) {
+                buffer.appendByte((byte) (0xc0 | c >> 6))
+                        .appendByte((byte) (0x80 | c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                final var codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.appendByte((byte) (0xf0 | codePoint >> 18))
+                        .appendByte((byte) (0x80 | codePoint >> 12 & 0x3f))
+                        .appendByte((byte) (0x80 | codePoint >> 6 & 0x3f))
+                        .appendByte((byte) (0x80 | codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                buffer.appendByte((byte) '?');
+            } else {
+                buffer.appendByte((byte) (0xe0 | c >> 12))
+                        .appendByte((byte) (0x80 | c >> 6 & 0x3f))
+                        .appendByte((byte) (0x80 | c & 0x3f));
+            }
+        }
+        buffer.appendByte((byte) '"');
+    }
+
+    private static void writeControlCharacter(Buffer buffer, char c) {
+        buffer.appendByte((byte) '\\');
+        switch (c) {
+            case '\b':
+                buffer.appendByte((byte) 'b');
+                break;
+            case '\t':
+                buffer.appendByte((byte) 't');
+                break;
+            case '\n':
+                buffer.appendByte((byte) 'n');
+                break;
+            case '\f':
+                buffer.appendByte((byte) 'f');
+                break;
+            case '\r':
+                buffer.appendByte((byte) 'r');
+                break;
+            default:
+                buffer.appendByte((byte) 'u').appendByte((byte) '0').appendByte((byte) '0')
+                        .appendByte(ESCAPE_HEX[c >> 4])
+                        .appendByte(ESCAPE_HEX[c & 0xf]);
+        }
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static final class Reader {
+
+        private final ByteBuf bytes;
+        private final int end;
+        private int position;
+        private int currency;
+        private long minorUnits;
+
+        private Reader(Buffer buffer) {
+            if (buffer == null) {
+                throw new IllegalArgumentException("Missing JSON body");
+            }
+            this.bytes = buffer.getByteBuf();
+            this.position = bytes.readerIndex();
+            this.end = bytes.writerIndex();
+        }
+
+        private Account readAccount() {
+            final var account = new Account();
+            expect('{');
+            if (!consume('}')) {
+                do {
+                    switch (readField(ACCOUNT_FIELDS)) {
+                        case 0:
+                            account.setName(readString());
+                            break;
+                        case 1:
+                            account.setId(readUuid());
+                            break;
+                        default:
+                            if (readMoney()) {
+                                account.setMoney(currency, minorUnits);
+                            } else {
+                                account.setMoney(Currencies.UNDEFINED, 0);
+                            }
+                    }
+                } while (consume(','));
+                expect('}');
+            }
+            return account;
+        }
+
+        private Transfer readTransfer() {
+            final var transfer = new Transfer();
+            expect('{');
+            if (!consume('}')) {
+                do {
+                    switch (readField(TRANSFER_FIELDS)) {
+                        case 0:
+                            transfer.setId(readUuid());
+                            break;
+                        case 1:
+                            transfer.setFromAccount(readUuid());
+                            break;
+                        case 2:
+                            transfer.setToAccount(readUuid());
+                            break;
+                        default:
+                            if (readMoney()) {
+                                transfer.setAmount(currency, minorUnits);
+                            } else {
+                                transfer.setAmount(Currencies.UNDEFINED, 0);
+                            }
+                    }
+                } while (consume(','));
+                expect('}');
+            }
+            return transfer;
+        }
+
+        /**
+         * Reads a money object into {@link #currency} and {@link #minorUnits}.
+         *
+         * @return {@code false} if the money is {@code null}
+         */
+        private boolean readMoney() {
+            if (consumeNull()) {
+                return false;
+            }
+            var amountStart = -1;
+            var amountEnd = -1;
+            String currencyCode = null;
+            expect('{');
+            if (!consume('}')) {
+                do {
+                    switch (readField(MONEY_FIELDS)) {
+                        case 0:
+                            if (peek() == '"') {
+                                position++;
+                                amountStart = position;
+                                amountEnd = skipString();
+                            } else {
+                                amountStart = position;
+                                amountEnd = skipNumber();
+                            }
+                            break;
+                        case 1:
+                            currencyCode = readString();
+                            break;
+                        default:
+                            readString();
+                    }
+                } while (consume(','));
+                expect('}');
+            }
+            if (amountStart < 0 || currencyCode == null) {
+                throw error("Money requires an amount and a currency");
+            }
+            currency = Currencies.indexOf(currencyCode);
+            minorUnits = parseMinorUnits(amountStart, amountEnd, Currencies.fractionDigits(currency));
+            return true;
+        }
+
+        private long parseMinorUnits(int start, int end, int fractionDigits) {
+            var index = start;
+            final var negative = index < end && bytes.getByte(index) == '-';
+            if (negative) {
+                index++;
+            }
+            var value = 0L;
+            var digits = 0;
+            var fraction = -1;
+            try {
+                for (; index < end; index++) {
+                    final var c = bytes.getByte(index);
+                    if (c >= '0' && c <= '9') {
+                        digits++;
+                        if (fraction == fractionDigits) {
+                            if (c != '0') {
+                                throw error("Amount does not fit into minor units");
+                            }
+                            continue;
+                        }
+                        if (fraction >= 0) {
+                            fraction++;
+                        }
+                        value = Math.addExact(Math.multiplyExact(value, 10), c - '0');
+                    } else if (c == '.' && fraction < 0) {
+                        fraction = 0;
+                    } else if (c == 'e' || c == 'E') {
+                        return parseScientificMinorUnits(start, end, fractionDigits);
+                    } else {
+                        throw error("Invalid amount");
+                    }
+                }
+                if (digits == 0) {
+                    throw error("Invalid amount");
+                }
+                for (int i = Math.max(fraction, 0); i < fractionDigits; i++) {
+                    value = Math.multiplyExact(value, 10);
+                }
+            } catch (ArithmeticException e) {
+                throw error("Amount does not fit into minor units");
+            }
+            return negative ? -value : value;
+        }
+
+        /**
+         * Parses an amount in scientific notation. The magnitude is checked on the unscaled
+         * digits first, because expanding an amount like {@code 1e400000000} into minor units
+         * would keep the event loop busy for minutes.
+         */
+        private long parseScientificMinorUnits(int start, int end, int fractionDigits) {
+            final BigDecimal amount;
+            try {
+                amount = new BigDecimal(bytes.toString(start, end - start, StandardCharsets.US_ASCII))
+                        .stripTrailingZeros();
+            } catch (ArithmeticException | NumberFormatException e) {
+                throw error("Invalid amount");
+            }
+            if (amount.signum() == 0) {
+                return 0;
+            }
+            if ((long) amount.precision() - amount.scale() > MAX_INTEGER_DIGITS || amount.scale() > fractionDigits) {
+                throw error("Amount does not fit into minor units");
+            }
+            try {
+                return amount.movePointRight(fractionDigits).longValueExact();
+            } catch (ArithmeticException e) {
+                throw error("Amount does not fit into minor units");
+            }
+        }
+
+        /**
+         * Reads a field name and the following colon.
+         *
+         * @return the index of the field name among the known ones
+         */
+        private int readField(String[] names) {
+            expect('"');
+            final var start = position;
+            final var end = skipString();
+            final var length = end - start;
+            for (int i = 0; i < names.length; i++) {
+                if (matches(start, length, names[i])) {
+                    expect(':');
+                    return i;
+                }
+            }
+            throw error("Unknown field " + bytes.toString(start, length, StandardCharsets.UTF_8));
+        }
+
+        private boolean matches(int start, int length, String name) {
+            if (length != name.length()) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (bytes.getByte(start + i) != name.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private UUID readUuid() {
+            if (consumeNull()) {
+                return null;
+            }
+            expect('"');
+            final var start = position;
+            if (skipString() - start != 36) {
+                throw error("Invalid UUID");
+            }
+            if (bytes.getByte(start + 8) != '-' || bytes.getByte(start + 13) != '-'
+                    || bytes.getByte(start + 18) != '-' || bytes.getByte(start + 23) != '-') {
+                throw error("Invalid UUID");
+            }
+            final var mostSignificantBits = hex(start, 8) << 32
+                    | hex(start + 9, 4) << 16
+                    | hex(start + 14, 4);
+            final var leastSignificantBits = hex(start + 19, 4) << 48
+                    | hex(start + 24, 12);
+            return new UUID(mostSignificantBits, leastSignificantBits);
+        }
+
+        private long hex(int start, int digits) {
+            var value = 0L;
+            for (int i = start; i < start + digits; i++) {
+                final var c = bytes.getByte(i);
+                final int digit;
+                if (c >= '0' && c <= '9') {
+                    digit = c - '0';
+                } else if (c >= 'a' && c <= 'f') {
+                    digit = c - 'a' + 10;
+                } else if (c >= 'A' && c <= 'F') {
+                    digit = c - 'A' + 10;
+                } else {
+                    throw error("Invalid UUID");
+                }
+                value = value << 4 | digit;
+            }
+            return value;
+        }
+
+        private String readString() {
+            if (consumeNull()) {
+                return null;
+            }
+            expect('"');
+            final var start = position;
+            var segmentStart = start;
+            StringBuilder builder = null;
+            while (true) {
+                final var c = next();
+                if (c == '"') {
+                    break;
+                }
+                if (c == '\\') {
+                    if (builder == null) {
+                        builder = new StringBuilder();
+                    }
+                    builder.append(bytes.toString(segmentStart, position - 1 - segmentStart, StandardCharsets.UTF_8));
+                    builder.append(unescape());
+                    segmentStart = position;
+                } else if (c >= 0 && c < 0x20) {
+                    throw error("Unescaped control character");
+                }
+            }
+            final var segment = bytes.toString(segmentStart, position - 1 - segmentStart, StandardCharsets.UTF_8);
+            return builder == null ? segment : builder.append(segment).toString();
+        }
+
+        private char unescape() {
+            final var c = next();
+            switch (c) {
+                case '"':
+                case '\\':
+                case '/':
+                    return (char) c;
+                case 'b':
+                    return '\b';
+                case 'f':
+                    return '\f';
+                case 'n':
+                    return '\n';
+                case 'r':
+                    return '\r';
+                case 't':
+                    return '\t';
+                case 'u':
+                    if (position + 4 > end) {
+                        throw error("Unexpected end of JSON");
+                    }
+                    position += 4;
+                    try {
+                        return (char) hex(position - 4, 4);
+                    } catch (IllegalArgumentException e) {
+                        throw error("Invalid escape");
+                    }
+                default:
+                    throw error("Invalid escape");
+            }
+        }
+
+        /**
+         * Skips the rest of a string whose opening quote has been read.
+         *
+         * @return the position of the closing quote
+         */
+        private int skipString() {
+            while (true) {
+                final var c = next();
+                if (c == '"') {
+                    return position - 1;
+                }
+                if (c == '\\') {
+                    next();
+                } else if (c >= 0 && c < 0x20) {
+                    throw error("Unescaped control character");
+                }
+            }
+        }
+
+        /**
+         * @return the position right after the number
+         */
+        private int skipNumber() {
+            while (position < end) {
+                final var c = bytes.getByte(position);
+                if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+                    position++;
+                } else {
+                    break;
+                }
+            }
+            return position;
+        }
+
+        private byte next() {
+            if (position >= end) {
+                throw error("Unexpected end of JSON");
+            }
+            return bytes.getByte(position++);
+        }
+
+        private byte peek() {
+            skipWhitespace();
+            if (position >= end) {
+                throw error("Unexpected end of JSON");
+            }
+            return bytes.getByte(position);
+        }
+
+        private void expect(char c) {
+            if (peek() != c) {
+                throw error("Expected '" + c + "'");
+            }
+            position++;
+        }
+
+        private boolean consume(char c) {
+            if (peek() == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean consumeNull() {
+            if (peek() != 'n') {
+                return false;
+            }
+            if (position + NULL.length > end || !matches(position, NULL.length, "null")) {
+                throw error("Invalid literal");
+            }
+            position += NULL.length;
+            return true;
+        }
+
+        private void finish() {
+            skipWhitespace();
+            if (position != end) {
+                throw error("Unexpected content after JSON");
+            }
+        }
+
+        private void skipWhitespace() {
+            while (position < end) {
+                final var c = bytes.getByte(position);
+                if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                    return;
+                }
+                position++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at offset " + (position - bytes.readerIndex()));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.moneytransferservice.feed;
+
+import com.moneytransferservice.codec.ModelCodec;
+import com.moneytransferservice.model.Account;
+import com.moneytransferservice.model.Transfer;
+import io.vertx.core.buffer.Buffer;
+
+import java.util.UUID;
+
+/**
+ * Committed mutation of the ledger, identified by its lsn.
+ * <p>
+ * A change keeps what it needs to be encoded later and is encoded once, by the
+ * {@link ChangeFeed#drain publisher}, into the JSON every subscriber receives.
+ */
+public final class Change {
+
+    private final long lsn;
+    private final Account account;
+    private final UUID deletedAccount;
+    private final Transfer transfer;
+    private Buffer json;
+
+    private Change(long lsn, Account account, UUID deletedAccount, Transfer transfer) {
+        this.lsn = lsn;
+        this.account = account;
+        this.deletedAccount = deletedAccount;
+        this.transfer = transfer;
+    }
+
+    /**
+     * Copies the account, since the ledger keeps mutating it in place.
+     */
+    static Change account(long lsn, Account account) {
+        return new Change(lsn, new Account()
+                .setId(account.getId())
+                .setName(account.getName())
+                .setMoney(account.currency(), account.minorUnits())
+                .lsn(lsn), null, null);
+    }
+
+    static Change accountDeletion(long lsn, UUID uuid) {
+        return new Change(lsn, null, uuid, null);
+    }
+
+    static Change transfer(long lsn, Transfer transfer) {
+        return new Change(lsn, null, null, transfer);
+    }
+
+    /**
+     * Stands in for a mutation whose journal record failed, so the feed can move past its lsn
+     * without publishing it.
+     */
+    static Change failed(long lsn) {
+        return new Change(lsn, null, null, null);
+    }
+
+    public long lsn() {
+        return lsn;
+    }
+
+    /**
+     * @return the JSON of the change, e.g. {@code {"lsn":42,"transfer":{...}}}
+     */
+    public Buffer json() {
+        return json;
+    }
+
+    boolean isFailed() {
+        return account == null && deletedAccount == null && transfer == null;
+    }
+
+    void encode() {
+        if (account != null) {
+            json = ModelCodec.encodeChange(lsn, account);
+        } else if (deletedAccount != null) {
+            json = ModelCodec.encodeChange(lsn, deletedAccount);
+        } else {
+            json = ModelCodec.encodeChange(lsn, transfer);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.moneytransferservice.feed;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageCodec;
+
+import java.util.List;
+
+/**
+ * Changes with the lsns from {@link #after} (exclusive) to {@link #last} (inclusive), in lsn
+ * order. Lsns of failed mutations are covered by the range but have no change.
+ * <p>
+ * A batch is immutable and shared by all subscribers, so the event bus passes it by reference
+ * and the server-sent events and WebSocket frames are encoded only once per batch.
+ */
+public final class ChangeBatch {
+
+    /**
+     * Codec that passes batches by reference between verticles of the same Vert.x instance.
+     * Batches are not sent over a clustered event bus.
+     */
+    public static final MessageCodec<ChangeBatch, ChangeBatch> CODEC = new MessageCodec<>() {
+
+        @Override
+        public void encodeToWire(Buffer buffer, ChangeBatch batch) {
+            throw new UnsupportedOperationException("Change batches are not sent over the wire");
+        }
+
+        @Override
+        public ChangeBatch decodeFromWire(int position, Buffer buffer) {
+            throw new UnsupportedOperationException("Change batches are not sent over the wire");
+        }
+
+        @Override
+        public ChangeBatch transform(ChangeBatch batch) {
+            return batch;
+        }
+
+        @Override
+        public String name() {
+            return ChangeBatch.class.getName();
+        }
+
+        @Override
+        public byte systemCodecID() {
+            return -1;
+        }
+    };
+
+    private final long after;
+    private final long last;
+    private final List<Change> changes;
+    private volatile Buffer events;
+    private volatile String json;
+
+    ChangeBatch(long after, long last, List<Change> changes) {
+        this.after = after;
+        this.last = last;
+        this.changes = changes;
+    }
+
+    public long after() {
+        return after;
+    }
+
+    public long last() {
+        return last;
+    }
+
+    public List<Change> changes() {
+        return changes;
+    }
+
+    /**
+     * @return the changes as server-sent events with the lsn as event id, so a client resumes
+     * with the {@code Last-Event-ID} it got last
+     */
+    public Buffer events() {
+        var events = this.events;
+        if (events == null) {
+            events = Buffer.buffer(changes.size() * 256);
+            for (Change change : changes) {
+                events.appendString("id: ").appendString(Long.toString(change.lsn()))
+                        .appendString("\ndata: ").appendBuffer(change.json())
+                        .appendString("\n\n");
+            }
+            this.events = events;
+        }
+        return events;
+    }
+
+    /**
+     * @return the changes as a JSON array
+     */
+    public String json() {
+        var json = this.json;
+        if (json == null) {
+            final var buffer = Buffer.buffer(2 + changes.size() * 256).appendByte((byte) '[');
+            for (int i = 0; i < changes.size(); i++) {
+                if (i > 0) {
+                    buffer.appendByte((byte) ',');
+                }
+                buffer.appendBuffer(changes.get(i).json());
+            }
+            json = buffer.appendByte((byte) ']').toString();
+            this.json = json;
+        }
+        return json;
+    }
+}
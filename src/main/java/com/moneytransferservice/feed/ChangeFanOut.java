@@ -0,0 +1,171 @@
+package com.moneytransferservice.feed;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.streams.WriteStream;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams published {@link ChangeBatch batches} to the server-sent event and WebSocket
+ * subscribers of one event loop. Not thread-safe, all methods are called on that event loop.
+ * <p>
+ * A subscriber gets a batch as it is only if the batch follows the last change it got and its
+ * connection keeps up. Otherwise it skips published batches until its connection drained and then
+ * catches up from the {@link ChangeFeed#replay ring}, so a slow subscriber costs nothing but its
+ * own connection. A subscriber that fell so far behind that the changes it missed are gone from
+ * the ring is disconnected, and resuming after its last change is refused.
+ */
+public class ChangeFanOut {
+
+    private static final int REPLAY_BATCH_SIZE = 1024;
+    private static final String EVENT_STREAM = "text/event-stream";
+
+    private final ChangeFeed feed;
+    private final List<Subscriber> subscribers = new ArrayList<>();
+
+    public ChangeFanOut(ChangeFeed feed) {
+        this.feed = feed;
+    }
+
+    /**
+     * Streams the changes after an lsn as server-sent events.
+     *
+     * @return false if the changes after the lsn are not kept anymore
+     */
+    public boolean subscribe(HttpServerResponse response, long after) {
+        if (!feed.resumable(after)) {
+            return false;
+        }
+        response.putHeader(HttpHeaderNames.CONTENT_TYPE, EVENT_STREAM)
+                .putHeader(HttpHeaderNames.CACHE_CONTROL, HttpHeaderValues.NO_CACHE)
+                .setChunked(true)
+                .write(":\n\n");
+        final Subscriber subscriber = new Subscriber(response, after) {
+            @Override
+            void send(ChangeBatch batch) {
+                response.write(batch.events());
+            }
+
+            @Override
+            void close() {
+                response.close();
+            }
+        };
+        response.closeHandler(ignored -> subscriber.closed = true);
+        return add(subscriber);
+    }
+
+    /**
+     * Streams the changes after an lsn as text messages, each a JSON array of changes.
+     *
+     * @return false if the changes after the lsn are not kept anymore
+     */
+    public boolean subscribe(ServerWebSocket webSocket, long after) {
+        if (!feed.resumable(after)) {
+            return false;
+        }
+        final Subscriber subscriber = new Subscriber(webSocket, after) {
+            @Override
+            void send(ChangeBatch batch) {
+                if (!batch.changes().isEmpty()) {
+                    webSocket.writeTextMessage(batch.json());
+                }
+            }
+
+            @Override
+            void close() {
+                webSocket.close();
+            }
+        };
+        webSocket.closeHandler(ignored -> subscriber.closed = true);
+        return add(subscriber);
+    }
+
+    public void publish(ChangeBatch batch) {
+        subscribers.removeIf(subscriber -> !subscriber.receive(batch));
+    }
+
+    /**
+     * @return the lsn of the last published change, which new subscribers start after by default
+     */
+    public long published() {
+        return feed.published();
+    }
+
+    public int size() {
+        return subscribers.size();
+    }
+
+    private boolean add(Subscriber subscriber) {
+        if (!subscriber.catchUp()) {
+            return false;
+        }
+        subscribers.add(subscriber);
+        return true;
+    }
+
+    private abstract class Subscriber {
+
+        private final WriteStream<?> stream;
+        private long last;
+        private boolean congested;
+        private boolean closed;
+
+        private Subscriber(WriteStream<?> stream, long last) {
+            this.stream = stream;
+            this.last = last;
+        }
+
+        abstract void send(ChangeBatch batch);
+
+        abstract void close();
+
+        /**
+         * @return false once the subscriber is gone
+         */
+        private boolean receive(ChangeBatch batch) {
+            if (closed) {
+                return false;
+            }
+            if (congested || batch.last() <= last) {
+                return true;
+            }
+            if (batch.after() != last) {
+                return catchUp();
+            }
+            send(batch);
+            last = batch.last();
+            congestWhenFull();
+            return true;
+        }
+
+        private boolean catchUp() {
+            while (!congested && !closed && last < feed.published()) {
+                final var batch = feed.replay(last, REPLAY_BATCH_SIZE);
+                if (batch == null) {
+                    closed = true;
+                    close();
+                    return false;
+                }
+                send(batch);
+                last = batch.last();
+                congestWhenFull();
+            }
+            return !closed;
+        }
+
+        private void congestWhenFull() {
+            if (stream.writeQueueFull()) {
+                congested = true;
+                stream.drainHandler(ignored -> {
+                    congested = false;
+                    catchUp();
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.moneytransferservice.feed;
+
+import com.moneytransferservice.journal.Journal;
+import com.moneytransferservice.model.Account;
+import com.moneytransferservice.model.Transfer;
+
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Journal that passes every record on to another journal and, once the record is durable, keeps
+ * the change in a ring of the most recent changes, indexed by lsn.
+ * <p>
+ * The ledger only ever stores into the ring and never waits for the feed, so neither a slow
+ * subscriber nor a slow publisher holds back a commit; a change that is not drained before
+ * {@code capacity} newer ones are stored is lost and reported by moving the {@link #floor}. The
+ * {@link ChangePublisher} drains the ring in lsn order into {@link ChangeBatch batches}, and
+ * subscribers that fell behind the published batches {@link #replay catch up} from the ring.
+ * <p>
+ * Records complete in any order, so a change is published only after all changes with lower
+ * lsns were. Changes of records that failed are skipped.
+ */
+public class ChangeFeed implements Journal {
+
+    public static final String ADDRESS = "ledger.changes";
+    public static final int DEFAULT_CAPACITY = 65_536;
+
+    private final Journal journal;
+    private final AtomicReferenceArray<Change> changes;
+    private final int mask;
+    private volatile long published;
+    private volatile long floor;
+
+    /**
+     * @param capacity number of changes kept for replay, a power of two
+     * @param lastLsn  lsn of the last mutation before the feed starts, which subscribers may
+     *                 resume after
+     */
+    public ChangeFeed(Journal journal, int capacity, long lastLsn) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two");
+        }
+        this.journal = journal;
+        this.changes = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.published = lastLsn;
+        this.floor = lastLsn;
+    }
+
+    @Override
+    public CompletableFuture<Void> appendAccount(long lsn, Account account) {
+        return store(journal.appendAccount(lsn, account), Change.account(lsn, account));
+    }
+
+    @Override
+    public CompletableFuture<Void> appendAccountDeletion(long lsn, UUID uuid) {
+        return store(journal.appendAccountDeletion(lsn, uuid), Change.accountDeletion(lsn, uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> appendTransfer(long lsn, Transfer transfer) {
+        return store(journal.appendTransfer(lsn, transfer), Change.transfer(lsn, transfer));
+    }
+
+    @Override
+    public void close() {
+        journal.close();
+    }
+
+    /**
+     * @return the lsn of the last published change
+     */
+    public long published() {
+        return published;
+    }
+
+    /**
+     * @return the lowest lsn subscribers may resume after; changes up to it are not kept
+     */
+    public long floor() {
+        return floor;
+    }
+
+    /**
+     * @return whether all changes after the lsn are still kept or yet to be published
+     */
+    public boolean resumable(long after) {
+        return after >= floor && after <= published;
+    }
+
+    /**
+     * Encodes and publishes the durable changes that follow the last published one, up to the
+     * first change that is not durable yet. Must not be called concurrently.
+     *
+     * @return the published changes, or null if there are none
+     */
+    public ChangeBatch drain(int limit) {
+        final var after = published;
+        var lsn = after;
+        final var batch = new ArrayList<Change>();
+        while (batch.size() < limit) {
+            final var change = changes.get((int) (lsn + 1) & mask);
+            if (change == null || change.lsn() <= lsn) {
+                break;
+            }
+            if (change.lsn() > lsn + 1) {
+                // overwritten before it was drained, so were all older changes in the ring
+                lsn = change.lsn() - changes.length();
+                floor = lsn;
+                continue;
+            }
+            lsn = change.lsn();
+            if (!change.isFailed()) {
+                change.encode();
+                batch.add(change);
+            }
+        }
+        if (lsn == after) {
+            return null;
+        }
+        published = lsn;
+        return new ChangeBatch(after, lsn, batch);
+    }
+
+    /**
+     * Reads up to {@code limit} published changes that follow an lsn.
+     *
+     * @return the changes, or null if some of them are not kept anymore
+     */
+    public ChangeBatch replay(long after, int limit) {
+        if (!resumable(after)) {
+            return null;
+        }
+        final var last = Math.min(published, after + limit);
+        final var batch = new ArrayList<Change>((int) (last - after));
+        for (long lsn = after + 1; lsn <= last; lsn++) {
+            final var change = changes.get((int) lsn & mask);
+            if (change == null || change.lsn() != lsn) {
+                return null;
+            }
+            if (!change.isFailed()) {
+                batch.add(change);
+            }
+        }
+        return new ChangeBatch(after, last, batch);
+    }
+
+    private CompletableFuture<Void> store(CompletableFuture<Void> append, Change change) {
+        append.whenComplete((ignored, error) ->
+                changes.set((int) change.lsn() & mask, error == null ? change : Change.failed(change.lsn())));
+        return append;
+    }
+}
@@ -0,0 +1,42 @@
+package com.moneytransferservice.feed;
+
+import io.vertx.core.AbstractVerticle;
+
+/**
+ * Periodically drains the {@link ChangeFeed} and publishes the changes as {@link ChangeBatch
+ * batches} on the event bus at {@link ChangeFeed#ADDRESS}, so every commit between two ticks costs
+ * the event bus a single message regardless of the number of changes and subscribers.
+ */
+public class ChangePublisher extends AbstractVerticle {
+
+    public static final long DEFAULT_INTERVAL = 10;
+    private static final int MAX_BATCH_SIZE = 4096;
+
+    private final ChangeFeed feed;
+    private final long interval;
+
+    public ChangePublisher(ChangeFeed feed) {
+        this(feed, DEFAULT_INTERVAL);
+    }
+
+    public ChangePublisher(ChangeFeed feed, long interval) {
+        this.feed = feed;
+        this.interval = interval;
+    }
+
+    @Override
+    public void start() {
+        vertx.eventBus().registerDefaultCodec(ChangeBatch.class, ChangeBatch.CODEC);
+        vertx.setPeriodic(interval, timer -> {
+            ChangeBatch batch;
+            while ((batch = feed.drain(MAX_BATCH_SIZE)) != null) {
+                vertx.eventBus().publish(ChangeFeed.ADDRESS, batch);
+            }
+        });
+    }
+
+    @Override
+    public void stop() {
+        vertx.eventBus().unregisterDefaultCodec(ChangeBatch.class);
+    }
+}
@@ -0,0 +1,223 @@
+package com.moneytransferservice.fx;
+
+import com.moneytransferservice.model.Currencies;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.Properties;
+
+/**
+ * Immutable table of exchange rates between the {@link Currencies}.
+ * <p>
+ * Rates are kept to {@value #PRECISION} significant digits as a fixed-point factor per pair of
+ * currency indexes, a {@code long} and a power of ten to divide by, already scaled by the
+ * difference of their fraction digits. Converting an amount of minor units is then an exact
+ * integer multiplication and a division rounding half up, without any allocation or lookup.
+ * <p>
+ * The file format is a properties file with lines like {@code EUR/USD = 1.0842}, meaning that one
+ * euro buys 1.0842 dollars. The inverse of every listed pair is derived unless it is listed
+ * itself. Given a base currency, so is every other pair crossed through it, e.g. {@code GBP/USD}
+ * from {@code EUR/GBP} and {@code EUR/USD} with the base {@code EUR}.
+ */
+public final class RateTable {
+
+    /**
+     * Returned by {@link #convert} for a pair of currencies without a rate.
+     */
+    public static final long NO_RATE = -1;
+
+    /**
+     * Returned by {@link #convert} if the converted amount does not fit into a {@code long}.
+     */
+    public static final long OVERFLOW = -2;
+
+    /**
+     * Table without any rates, which only converts between equal currencies.
+     */
+    public static final RateTable NONE = new RateTable(new long[0], new int[0]);
+
+    private static final int PRECISION = 18;
+    private static final MathContext ROUNDING = new MathContext(PRECISION, RoundingMode.HALF_UP);
+    private static final long[] POWERS_OF_TEN = new long[PRECISION + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= PRECISION; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final long[] factors;
+    private final int[] scales;
+
+    private RateTable(long[] factors, int[] scales) {
+        this.factors = factors;
+        this.scales = scales;
+    }
+
+    /**
+     * Loads the rates without crossing pairs through a base currency.
+     */
+    public static RateTable load(Path file) throws IOException {
+        return load(file, null);
+    }
+
+    /**
+     * @param baseCurrency the currency code to derive the rates of unlisted pairs through, or
+     *                     {@code null} to only derive inverse rates
+     */
+    public static RateTable load(Path file, String baseCurrency) throws IOException {
+        final var properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        final var count = Currencies.count();
+        final var rates = new BigDecimal[count * count];
+        final var listed = new BitSet(count * count);
+        final var currencies = new BitSet(count);
+        for (String pair : properties.stringPropertyNames()) {
+            final var currencyCodes = pair.split("/");
+            if (currencyCodes.length != 2) {
+                throw new IllegalArgumentException("Invalid currency pair " + pair + " in " + file);
+            }
+            final var base = Currencies.indexOf(currencyCodes[0].trim());
+            final var quote = Currencies.indexOf(currencyCodes[1].trim());
+            final var rate = new BigDecimal(properties.getProperty(pair).trim()).round(ROUNDING);
+            if (rate.signum() <= 0) {
+                throw new IllegalArgumentException("Invalid rate of " + pair + " in " + file);
+            }
+            rates[base * count + quote] = rate;
+            listed.set(base * count + quote);
+            currencies.set(base);
+            currencies.set(quote);
+        }
+        for (int base = currencies.nextSetBit(0); base >= 0; base = currencies.nextSetBit(base + 1)) {
+            for (int quote = currencies.nextSetBit(0); quote >= 0; quote = currencies.nextSetBit(quote + 1)) {
+                if (listed.get(base * count + quote) && !listed.get(quote * count + base)) {
+                    rates[quote * count + base] = BigDecimal.ONE.divide(rates[base * count + quote], ROUNDING);
+                }
+            }
+        }
+        if (baseCurrency != null) {
+            final var via = Currencies.indexOf(baseCurrency);
+            for (int base = currencies.nextSetBit(0); base >= 0; base = currencies.nextSetBit(base + 1)) {
+                for (int quote = currencies.nextSetBit(0); quote >= 0; quote = currencies.nextSetBit(quote + 1)) {
+                    final var toBase = rates[base * count + via];
+                    final var fromBase = rates[via * count + quote];
+                    if (base != quote && rates[base * count + quote] == null && toBase != null && fromBase != null) {
+                        rates[base * count + quote] = toBase.multiply(fromBase, ROUNDING);
+                    }
+                }
+            }
+        }
+        final var factors = new long[count * count];
+        final var scales = new int[count * count];
+        for (int base = 0; base < count; base++) {
+            for (int quote = 0; quote < count; quote++) {
+                final var rate = rates[base * count + quote];
+                if (rate == null) {
+                    scales[base * count + quote] = -1;
+                    continue;
+                }
+                var factor = rate.movePointRight(Currencies.fractionDigits(quote) - Currencies.fractionDigits(base));
+                if (factor.scale() < 0) {
+                    factor = factor.setScale(0, RoundingMode.UNNECESSARY);
+                }
+                if (factor.scale() > PRECISION) {
+                    factor = factor.setScale(PRECISION, RoundingMode.HALF_UP);
+                }
+                if (factor.precision() > PRECISION) {
+                    throw new IllegalArgumentException("Rate of " + Currencies.unitOf(base) + "/"
+                            + Currencies.unitOf(quote) + " in " + file + " is out of range");
+                }
+                factors[base * count + quote] = factor.unscaledValue().longValueExact();
+                scales[base * count + quote] = factor.scale();
+            }
+        }
+        return new RateTable(factors, scales);
+    }
+
+    /**
+     * Converts an amount of minor units between currencies, rounding half up to a minor unit of
+     * the target currency. Amounts in the same currency are returned as they are.
+     *
+     * @param minorUnits the amount, not negative
+     * @return the converted amount, {@link #NO_RATE} if there is no rate between the currencies
+     * or {@link #OVERFLOW} if the converted amount does not fit into a {@code long}
+     */
+    public long convert(long minorUnits, int from, int to) {
+        if (minorUnits < 0) {
+            throw new IllegalArgumentException("Amount must not be negative");
+        }
+        if (from == to) {
+            return minorUnits;
+        }
+        if (factors.length == 0) {
+            return NO_RATE;
+        }
+        final var index = from * Currencies.count() + to;
+        final var scale = scales[index];
+        if (scale < 0) {
+            return NO_RATE;
+        }
+        final var factor = factors[index];
+        final var divisor = POWERS_OF_TEN[scale];
+        final var high = Math.multiplyHigh(minorUnits, factor);
+        final var low = minorUnits * factor;
+        if (high == 0 && low >= 0) {
+            final var quotient = low / divisor;
+            final var remainder = low - quotient * divisor;
+            return remainder >= divisor - remainder ? quotient + 1 : quotient;
+        }
+        // the quotient of the 128 bit product has to fit into 63 bits, which needs high < divisor / 2
+        if (high >= divisor >>> 1) {
+            return OVERFLOW;
+        }
+        final var quotient = divide(high, low, divisor);
+        final var remainder = low - quotient * divisor;
+        final var rounded = remainder >= divisor - remainder ? quotient + 1 : quotient;
+        return rounded < 0 ? OVERFLOW : rounded;
+    }
+
+    /**
+     * Divides the unsigned 128 bit number {@code high:low} by the divisor, with {@code high} less
+     * than the divisor, by long division in 32 bit digits (Knuth's algorithm D).
+     */
+    private static long divide(long high, long low, long divisor) {
+        final var shift = Long.numberOfLeadingZeros(divisor);
+        final var normalized = divisor << shift;
+        final var divisorHigh = normalized >>> 32;
+        final var divisorLow = normalized & 0xFFFFFFFFL;
+        final var numeratorHigh = high << shift | (shift == 0 ? 0 : low >>> (Long.SIZE - shift));
+        final var numeratorLow = low << shift;
+        final var quotientHigh = digit(numeratorHigh, numeratorLow >>> 32, divisorHigh, divisorLow);
+        final var partial = (numeratorHigh << 32) + (numeratorLow >>> 32) - quotientHigh * normalized;
+        final var quotientLow = digit(partial, numeratorLow & 0xFFFFFFFFL, divisorHigh, divisorLow);
+        return quotientHigh << 32 | quotientLow;
+    }
+
+    /**
+     * @return the 32 bit quotient digit of {@code numerator:next} divided by the normalized
+     * divisor {@code divisorHigh:divisorLow}
+     */
+    private static long digit(long numerator, long next, long divisorHigh, long divisorLow) {
+        var quotient = Long.divideUnsigned(numerator, divisorHigh);
+        var remainder = numerator - quotient * divisorHigh;
+        while (quotient >>> 32 != 0
+                || Long.compareUnsigned(quotient * divisorLow, remainder << 32 | next) > 0) {
+            quotient--;
+            remainder += divisorHigh;
+            if (remainder >>> 32 != 0) {
+                break;
+            }
+        }
+        return quotient;
+    }
+}
@@ -0,0 +1,191 @@
+package com.moneytransferservice.idempotency;
+
+import java.security.MessageDigest;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded cache of recent idempotency keys mapped to the outcome of the request that first used
+ * them.
+ * <p>
+ * Lookups are plain {@link ConcurrentHashMap} reads. Entries are also kept in insertion order,
+ * which is expiration order as every entry lives for the same time, so eviction only ever looks
+ * at the oldest entry: it drops entries while they are expired or the cache holds more than
+ * {@code capacity} of them. Entries that were removed or replaced before their turn no longer
+ * count towards the capacity and are dropped without being counted once they are the oldest.
+ * Behind a live oldest entry they would linger for up to the time to live, so once their number
+ * exceeds an eighth of the capacity the insertion order is compacted in one pass, which keeps
+ * the cost of a removal constant on average.
+ * <p>
+ * The outcome is registered before the request is executed, so a retry that arrives while the
+ * original request is still in flight waits for its outcome instead of executing again.
+ */
+public class IdempotencyCache<V> {
+
+    public static final int DEFAULT_CAPACITY = 1_000_000;
+    public static final long DEFAULT_TIME_TO_LIVE = TimeUnit.HOURS.toMillis(24);
+
+    private final ConcurrentHashMap<String, Entry<V>> entries;
+    private final ConcurrentLinkedQueue<Entry<V>> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    /**
+     * Approximate number of removed or replaced entries still in the insertion order.
+     */
+    private final AtomicInteger dead = new AtomicInteger();
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private final int capacity;
+    private final long timeToLive;
+    private final LongSupplier clock;
+
+    public IdempotencyCache() {
+        this(DEFAULT_CAPACITY, DEFAULT_TIME_TO_LIVE);
+    }
+
+    public IdempotencyCache(int capacity, long timeToLive) {
+        this(capacity, timeToLive, System::currentTimeMillis);
+    }
+
+    IdempotencyCache(int capacity, long timeToLive, LongSupplier clock) {
+        if (capacity <= 0 || timeToLive <= 0) {
+            throw new IllegalArgumentException("Idempotency cache capacity and time to live must be positive");
+        }
+        this.entries = new ConcurrentHashMap<>(Math.min(capacity, 1 << 16));
+        this.capacity = capacity;
+        this.timeToLive = timeToLive;
+        this.clock = clock;
+    }
+
+    /**
+     * Registers the outcome under the key unless a live entry already exists for it.
+     *
+     * @param fingerprint digest of the request, so that a key reused for a different request can
+     *                    be told apart from a retry, or {@code null} if keys are never reused
+     * @return the existing entry or {@code null} if the given outcome was registered
+     */
+    public Entry<V> putIfAbsent(String key, byte[] fingerprint, CompletableFuture<V> outcome) {
+        final var now = clock.getAsLong();
+        final var existing = entries.get(key);
+        if (existing != null && !existing.isExpired(now)) {
+            return existing;
+        }
+        final var entry = new Entry<>(key, fingerprint, outcome, now + timeToLive);
+        while (true) {
+            final var previous = entries.putIfAbsent(key, entry);
+            if (previous == null) {
+                break;
+            }
+            if (!previous.isExpired(now)) {
+                return previous;
+            }
+            if (entries.replace(key, previous, entry)) {
+                bury(previous);
+                break;
+            }
+        }
+        insertionOrder.add(entry);
+        size.incrementAndGet();
+        evict(now);
+        return null;
+    }
+
+    /**
+     * @return the live entry registered under the key or {@code null} if there is none
+     */
+    public Entry<V> get(String key) {
+        final var entry = entries.get(key);
+        return entry == null || entry.isExpired(clock.getAsLong()) ? null : entry;
+    }
+
+    /**
+     * Forgets the outcome registered under the key, e.g. because the request failed and may be
+     * retried.
+     */
+    public void remove(String key, CompletableFuture<V> outcome) {
+        final var entry = entries.get(key);
+        if (entry != null && entry.outcome == outcome && entries.remove(key, entry)) {
+            bury(entry);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    int queued() {
+        return insertionOrder.size();
+    }
+
+    private void evict(long now) {
+        Entry<V> oldest;
+        while ((oldest = insertionOrder.peek()) != null
+                && (!oldest.counted.get() || size.get() > capacity || oldest.isExpired(now))) {
+            if (insertionOrder.remove(oldest)) {
+                if (!discard(oldest)) {
+                    dead.decrementAndGet();
+                }
+                entries.remove(oldest.key, oldest);
+            }
+        }
+    }
+
+    /**
+     * Discards an entry no longer in the map but still in the insertion order, and compacts the
+     * insertion order once too many of those piled up.
+     */
+    private void bury(Entry<V> entry) {
+        if (discard(entry) && dead.incrementAndGet() > capacity / 8 && compacting.compareAndSet(false, true)) {
+            try {
+                dead.set(0);
+                insertionOrder.removeIf(queued -> !queued.counted.get());
+            } finally {
+                compacting.set(false);
+            }
+        }
+    }
+
+    /**
+     * Stops counting the entry towards the capacity, once however often it is removed.
+     *
+     * @return whether the entry was counted until now
+     */
+    private boolean discard(Entry<V> entry) {
+        if (entry.counted.compareAndSet(true, false)) {
+            size.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    public static final class Entry<V> {
+
+        private final String key;
+        private final byte[] fingerprint;
+        private final CompletableFuture<V> outcome;
+        private final long expiresAt;
+        private final AtomicBoolean counted = new AtomicBoolean(true);
+
+        private Entry(String key, byte[] fingerprint, CompletableFuture<V> outcome, long expiresAt) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+            this.outcome = outcome;
+            this.expiresAt = expiresAt;
+        }
+
+        public boolean matches(byte[] fingerprint) {
+            return MessageDigest.isEqual(this.fingerprint, fingerprint);
+        }
+
+        public CompletableFuture<V> outcome() {
+            return outcome;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package com.moneytransferservice.journal;
+
+import com.moneytransferservice.model.Account;
+import com.moneytransferservice.model.Transfer;
+import com.moneytransferservice.repository.IdGenerator;
+import com.moneytransferservice.repository.Repository;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+/**
+ * Account repository that keeps one file per account, each holding a single journal record of
+ * the account. A file is replaced by writing a temporary file and moving it over the old one, so
+ * readers see either the old or the new record.
+ * <p>
+ * Every read decodes the file, so this repository is meant to sit behind a
+ * {@link com.moneytransferservice.repository.CachingRepository}. Pages are ordered by account id.
+ * <p>
+ * Writes go to the files right away until the repository is told to {@link #writeBehind write
+ * behind} a journal. From then on a write only encodes the account and keeps the record pending,
+ * where reads find it, and a writer thread moves the pending records into the files once the
+ * journal has made them durable. Callers holding locks never wait for the disk, and the files
+ * never run ahead of the journal.
+ * <p>
+ * The files are not synced as they are written. A {@link #checkpoint checkpoint} syncs them and
+ * records the lsn up to which they hold every mutation, so that recovery only has to replay the
+ * journal after it.
+ */
+public class FileAccountRepository implements Repository<Account>, AutoCloseable {
+
+    private static final String SUFFIX = ".account";
+    private static final String CHECKPOINT = "checkpoint";
+    private static final ByteBuffer DELETED = ByteBuffer.allocate(0);
+    private static final long WRITE_INTERVAL = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final Path directory;
+    private final IdGenerator idGenerator;
+    /**
+     * The latest record of every account written since the writer last caught up, or
+     * {@link #DELETED} for a deleted account.
+     */
+    private final ConcurrentHashMap<UUID, ByteBuffer> pending = new ConcurrentHashMap<>();
+    private final Set<UUID> unsynced = ConcurrentHashMap.newKeySet();
+    private volatile FileJournal journal;
+    private Thread writer;
+    private volatile boolean closed;
+
+    public FileAccountRepository(Path directory) throws IOException {
+        this(directory, IdGenerator.TIME_ORDERED);
+    }
+
+    public FileAccountRepository(Path directory, IdGenerator idGenerator) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.idGenerator = idGenerator;
+    }
+
+    /**
+     * Keeps writes pending from now on and writes them once the journal has made them durable.
+     * Every write must follow the journal append of its mutation.
+     */
+    public synchronized void writeBehind(FileJournal journal) {
+        if (this.journal != null) {
+            throw new IllegalStateException("Account store already writes behind a journal");
+        }
+        this.journal = journal;
+        this.writer = new Thread(this::writeLoop, "account-store-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Also assigns the id to the account, since it is part of the stored record.
+     */
+    @Override
+    public UUID create(Account account) {
+        final var uuid = idGenerator.next();
+        write(uuid, JournalCodec.encodeAccount(account.lsn(), account.setId(uuid)));
+        return uuid;
+    }
+
+    @Override
+    public Account get(UUID uuid) {
+        final var record = pending.get(uuid);
+        if (record != null) {
+            return record == DELETED ? null : decode(uuid, record.array(), record.limit());
+        }
+        final byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file(uuid));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return decode(uuid, bytes, bytes.length);
+    }
+
+    @Override
+    public Optional<List<Account>> readAll() {
+        return Optional.of(read(ids()));
+    }
+
+    @Override
+    public List<Account> readPage(UUID after, int limit) {
+        return read(ids().stream()
+                .filter(uuid -> after == null || uuid.compareTo(after) > 0)
+                .limit(limit)
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public Iterator<Account> iterator() {
+        final var ids = ids().iterator();
+        return new Iterator<>() {
+
+            private Account next = advance();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Account next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                final var account = next;
+                next = advance();
+                return account;
+            }
+
+            private Account advance() {
+                while (ids.hasNext()) {
+                    final var account = get(ids.next());
+                    if (account != null) {
+                        return account;
+                    }
+                }
+                return null;
+            }
+        };
+    }
+
+    @Override
+    public void update(UUID uuid, Account account) {
+        write(uuid, JournalCodec.encodeAccount(account.lsn(), account));
+    }
+
+    @Override
+    public void delete(UUID uuid) {
+        write(uuid, DELETED);
+    }
+
+    @Override
+    public void modified(UUID uuid, Account account) {
+        write(uuid, JournalCodec.encodeAccount(account.lsn(), account));
+    }
+
+    /**
+     * Deletes all accounts. Only meant for rebuilding the store before it writes behind.
+     */
+    public void clear() {
+        ids().forEach(this::delete);
+    }
+
+    /**
+     * Writes the pending records, waiting for the journal first, syncs every file written since
+     * the previous checkpoint and records that the files hold every mutation up to the lsn. The
+     * caller makes sure that every mutation up to the lsn was written to this repository.
+     */
+    public synchronized void checkpoint(long lsn) throws IOException {
+        writePending();
+        for (UUID uuid : unsynced) {
+            unsynced.remove(uuid);
+            try (var channel = FileChannel.open(file(uuid), StandardOpenOption.READ)) {
+                channel.force(true);
+            } catch (NoSuchFileException ignored) {
+                // deleted, which syncing the directory makes durable
+            }
+        }
+        final var temporary = Files.createTempFile(directory, CHECKPOINT, ".tmp");
+        Files.write(temporary, ByteBuffer.allocate(Long.BYTES).putLong(lsn).array());
+        try (var channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(CHECKPOINT), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        try (var channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * @return the lsn of the latest checkpoint or {@code 0} if there is none
+     */
+    public long checkpointLsn() throws IOException {
+        try {
+            return ByteBuffer.wrap(Files.readAllBytes(directory.resolve(CHECKPOINT))).getLong();
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Stops the writer once it wrote every pending record.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.join();
+            writePending();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void write(UUID uuid, ByteBuffer record) {
+        if (journal != null) {
+            pending.put(uuid, record);
+            return;
+        }
+        try {
+            writeFile(uuid, record);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeLoop() {
+        while (!closed) {
+            try {
+                if (writePending() > 0) {
+                    continue;
+                }
+            } catch (IOException | RuntimeException e) {
+                // the records stay pending, a checkpoint reports the failure
+            }
+            LockSupport.parkNanos(WRITE_INTERVAL);
+        }
+    }
+
+    /**
+     * Writes the records pending when called, once the journal has made them durable. A record
+     * replaced meanwhile stays pending, since its mutation may not be durable yet.
+     *
+     * @return the number of written records
+     */
+    private synchronized int writePending() throws IOException {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        final var records = new HashMap<>(pending);
+        journal.flush().join();
+        for (var entry : records.entrySet()) {
+            final var uuid = entry.getKey();
+            final var record = entry.getValue();
+            writeFile(uuid, record);
+            pending.computeIfPresent(uuid, (key, current) -> current == record ? null : current);
+        }
+        return records.size();
+    }
+
+    private void writeFile(UUID uuid, ByteBuffer record) throws IOException {
+        if (record == DELETED) {
+            Files.deleteIfExists(file(uuid));
+            return;
+        }
+        final var temporary = Files.createTempFile(directory, uuid.toString(), ".tmp");
+        final var bytes = record.duplicate();
+        try (var channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+        Files.move(temporary, file(uuid), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        unsynced.add(uuid);
+    }
+
+    private Account decode(UUID uuid, byte[] record, int length) {
+        final var visitor = new AccountReader();
+        try {
+            if (JournalCodec.decode(new DataInputStream(new ByteArrayInputStream(record, 0, length)), visitor,
+                    new long[1]) < 0 || visitor.account == null) {
+                throw new IllegalStateException("Corrupted account file " + file(uuid));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return visitor.account;
+    }
+
+    private List<Account> read(List<UUID> ids) {
+        final var accounts = new ArrayList<Account>(ids.size());
+        for (UUID uuid : ids) {
+            final var account = get(uuid);
+            if (account != null) {
+                accounts.add(account);
+            }
+        }
+        return accounts;
+    }
+
+    /**
+     * @return the ids of the stored and pending accounts, some of which may have been deleted
+     */
+    private List<UUID> ids() {
+        final var ids = new TreeSet<UUID>();
+        try (var files = Files.list(directory)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(SUFFIX))
+                    .map(name -> UUID.fromString(name.substring(0, name.length() - SUFFIX.length())))
+                    .forEach(ids::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ids.addAll(pending.keySet());
+        return new ArrayList<>(ids);
+    }
+
+    private Path file(UUID uuid) {
+        return directory.resolve(uuid + SUFFIX);
+    }
+
+    private static final class AccountReader implements JournalVisitor {
+
+        private Account account;
+
+        @Override
+        public void account(long lsn, Account account) {
+            this.account = account;
+        }
+
+        @Override
+        public void accountDeletion(long lsn, UUID uuid) {
+        }
+
+        @Override
+        public void transfer(long lsn, Transfer transfer) {
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package com.moneytransferservice.journal;
+
+import com.moneytransferservice.model.Account;
+import com.moneytransferservice.model.Transfer;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Append-only journal with group commit, stored as a directory of segment files.
+ * <p>
+ * Appending threads only encode the record and enqueue it. A single writer thread drains up to
+ * {@code batchSize} queued records, writes them with one {@link FileChannel#write} pass and makes
+ * them durable with one {@link FileChannel#force}, so every request in flight shares one fsync.
+ * <p>
+ * Records are not strictly ordered by lsn across accounts, so a segment is only discarded once
+ * the highest lsn it contains is covered by a snapshot.
+ * <p>
+ * A failed write or sync fails the journal for good: the records of the batch are cut off again,
+ * and every record after them fails too, {@link #flush flushes} included. Their mutations are
+ * applied already, so nothing after them may be logged on top of a gap.
+ */
+public class FileJournal implements Journal {
+
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+    private final int batchSize;
+    private final boolean sync;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final ConcurrentLinkedDeque<Segment> closedSegments;
+    private final Thread writer;
+    private FileChannel channel;
+    private Segment segment;
+    private volatile boolean rollRequested;
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    private FileJournal(Path directory, List<Segment> segments, FileChannel channel,
+                        int batchSize, boolean sync) {
+        this.directory = directory;
+        this.closedSegments = new ConcurrentLinkedDeque<>(segments.subList(0, segments.size() - 1));
+        this.segment = segments.get(segments.size() - 1);
+        this.channel = channel;
+        this.batchSize = batchSize;
+        this.sync = sync;
+        this.writer = new Thread(this::writeLoop, "journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Replays every valid record of every segment into the visitor, cuts off a torn or corrupted
+     * tail of the last segment left by a crash and opens the journal for appending after the
+     * last valid record.
+     */
+    public static FileJournal open(Path directory, int batchSize, boolean sync,
+                                   JournalVisitor visitor) throws IOException {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Journal batch size must be positive");
+        }
+        Files.createDirectories(directory);
+        final var segments = listSegments(directory);
+        if (segments.isEmpty()) {
+            segments.add(new Segment(directory.resolve(segmentName(1)), 1));
+        }
+        FileChannel channel = null;
+        try {
+            for (int i = 0; i < segments.size(); i++) {
+                final var last = i == segments.size() - 1;
+                channel = FileChannel.open(segments.get(i).path,
+                        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                final var position = replay(channel, segments.get(i), visitor);
+                if (position < channel.size()) {
+                    if (!last) {
+                        throw new IOException("Journal segment " + segments.get(i).path + " is corrupted");
+                    }
+                    channel.truncate(position);
+                }
+                if (!last) {
+                    channel.close();
+                }
+            }
+            channel.position(channel.size());
+            return new FileJournal(directory, segments, channel, batchSize, sync);
+        } catch (IOException | RuntimeException e) {
+            if (channel != null) {
+                channel.close();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> appendAccount(long lsn, Account account) {
+        return enqueue(lsn, JournalCodec.encodeAccount(lsn, account));
+    }
+
+    @Override
+    public CompletableFuture<Void> appendAccountDeletion(long lsn, UUID uuid) {
+        return enqueue(lsn, JournalCodec.encodeAccountDeletion(lsn, uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> appendTransfer(long lsn, Transfer transfer) {
+        return enqueue(lsn, JournalCodec.encodeTransfer(lsn, transfer));
+    }
+
+    /**
+     * @return a future completed once every record enqueued before the call is durable
+     */
+    public CompletableFuture<Void> flush() {
+        return enqueue(0, ByteBuffer.allocate(0));
+    }
+
+    /**
+     * Makes the writer continue in a new segment, so that the current one can be discarded
+     * after the next snapshot.
+     */
+    public void roll() {
+        rollRequested = true;
+    }
+
+    /**
+     * Deletes closed segments that only contain records up to the given lsn.
+     */
+    public void discard(long lsn) throws IOException {
+        for (var iterator = closedSegments.iterator(); iterator.hasNext(); ) {
+            final var closedSegment = iterator.next();
+            if (closedSegment.maxLsn <= lsn) {
+                Files.deleteIfExists(closedSegment.path);
+                iterator.remove();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writer.join();
+            channel.close();
+            Entry entry;
+            while ((entry = queue.poll()) != null) {
+                entry.future.completeExceptionally(new IllegalStateException("Journal is closed"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<Segment> listSegments(Path directory) throws IOException {
+        try (var files = Files.list(directory)) {
+            return files
+                    .filter(file -> {
+                        final var name = file.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .map(file -> {
+                        final var name = file.getFileName().toString();
+                        return new Segment(file, Long.parseLong(name.substring(
+                                SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                    })
+                    .sorted((left, right) -> Long.compare(left.index, right.index))
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    private static String segmentName(long index) {
+        return String.format("%s%020d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX);
+    }
+
+    private static long replay(FileChannel channel, Segment segment, JournalVisitor visitor) throws IOException {
+        final var lsn = new long[1];
+        var position = 0L;
+        final var input = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(channel.position(0)), INITIAL_BUFFER_SIZE));
+        int size;
+        while ((size = JournalCodec.decode(input, visitor, lsn)) > 0) {
+            position += size;
+            segment.maxLsn = Math.max(segment.maxLsn, lsn[0]);
+        }
+        return position;
+    }
+
+    private CompletableFuture<Void> enqueue(long lsn, ByteBuffer record) {
+        final var entry = new Entry(lsn, record);
+        if (closed) {
+            entry.future.completeExceptionally(new IllegalStateException("Journal is closed"));
+        } else if (failure != null) {
+            entry.future.completeExceptionally(failed());
+        } else {
+            queue.add(entry);
+        }
+        return entry.future;
+    }
+
+    private void writeLoop() {
+        final List<Entry> batch = new ArrayList<>(batchSize);
+        var buffer = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                final var first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (failure != null) {
+                for (Entry entry : batch) {
+                    entry.future.completeExceptionally(failed());
+                }
+                batch.clear();
+                continue;
+            }
+            var size = 0;
+            var maxLsn = 0L;
+            for (Entry entry : batch) {
+                size += entry.record.remaining();
+                maxLsn = Math.max(maxLsn, entry.lsn);
+            }
+            if (size > buffer.capacity()) {
+                buffer = ByteBuffer.allocateDirect(Math.max(size, buffer.capacity() * 2));
+            }
+            buffer.clear();
+            for (Entry entry : batch) {
+                buffer.put(entry.record);
+            }
+            buffer.flip();
+            var position = -1L;
+            try {
+                if (rollRequested) {
+                    rollSegment();
+                }
+                position = channel.position();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                if (sync) {
+                    channel.force(false);
+                }
+                segment.maxLsn = Math.max(segment.maxLsn, maxLsn);
+                for (Entry entry : batch) {
+                    entry.future.complete(null);
+                }
+            } catch (IOException e) {
+                failure = e;
+                rollback(position);
+                for (Entry entry : batch) {
+                    entry.future.completeExceptionally(e);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private IllegalStateException failed() {
+        return new IllegalStateException("Journal failed", failure);
+    }
+
+    private void rollSegment() throws IOException {
+        rollRequested = false;
+        if (channel.position() == 0) {
+            return;
+        }
+        final var next = new Segment(directory.resolve(segmentName(segment.index + 1)), segment.index + 1);
+        final var nextChannel = FileChannel.open(next.path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.force(false);
+        channel.close();
+        closedSegments.add(segment);
+        segment = next;
+        channel = nextChannel;
+    }
+
+    private void rollback(long position) {
+        if (position < 0) {
+            return;
+        }
+        try {
+            channel.truncate(position);
+            channel.position(position);
+        } catch (IOException ignored) {
+            // the torn tail is cut off again by the next recovery
+        }
+    }
+
+    private static final class Segment {
+
+        private final Path path;
+        private final long index;
+        private volatile long maxLsn;
+
+        private Segment(Path path, long index) {
+            this.path = path;
+            this.index = index;
+        }
+    }
+
+    private static final class Entry {
+
+        private final long lsn;
+        private final ByteBuffer record;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Entry(long lsn, ByteBuffer record) {
+            this.lsn = lsn;
+            this.record = record;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.moneytransferservice.journal;
+
+import com.moneytransferservice.model.Account;
+import com.moneytransferservice.model.Transfer;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Durable log of account and transfer mutations.
+ * <p>
+ * Records must be appended in the order the mutations were applied, i.e. while the caller still
+ * holds the locks that guard the mutated accounts. The log sequence number (lsn) of a record is
+ * assigned by the caller and increases with every mutation. The returned future completes once
+ * the record is durable.
+ */
+public interface Journal extends AutoCloseable {
+
+    Journal NONE = new Journal() {
+        private final CompletableFuture<Void> done = CompletableFuture.completedFuture(null);
+
+        @Override
+        public CompletableFuture<Void> appendAccount(long lsn, Account account) {
+            return done;
+        }
+
+        @Override
+        public CompletableFuture<Void> appendAccountDeletion(long lsn, UUID uuid) {
+            return done;
+        }
+
+        @Override
+        public CompletableFuture<Void> appendTransfer(long lsn, Transfer transfer) {
+            return done;
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    CompletableFuture<Void> appendAccount(long lsn, Account account);
+
+    CompletableFuture<Void> appendAccountDeletion(long lsn, UUID uuid);
+
+    CompletableFuture<Void> appendTransfer(long lsn, Transfer transfer);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,209 @@
+package com.moneytransferservice.journal;
+
+import com.moneytransferservice.model.Account;
+import com.moneytransferservice.model.Currencies;
+import com.moneytransferservice.model.Transfer;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Binary layout of journal records: {@code int length, int crc32, byte type, long lsn, payload},
+ * where {@code length} and {@code crc32} cover everything after the checksum.
+ */
+final class JournalCodec {
+
+    static final int HEADER_SIZE = Integer.BYTES * 2;
+
+    private static final byte ACCOUNT = 1;
+    private static final byte ACCOUNT_DELETION = 2;
+    private static final byte TRANSFER = 3;
+    private static final byte CONVERTED_TRANSFER = 4;
+    private static final int UUID_SIZE = Long.BYTES * 2;
+    private static final int BODY_HEADER_SIZE = Byte.BYTES + Long.BYTES;
+    private static final int MAX_BODY_SIZE = 16 * 1024 * 1024;
+
+    private JournalCodec() {
+    }
+
+    static ByteBuffer encodeAccount(long lsn, Account account) {
+        final var name = account.getName() == null
+                ? null : account.getName().getBytes(StandardCharsets.UTF_8);
+        final var currency = currencyCode(account.currency());
+        final var buffer = allocate(UUID_SIZE + stringSize(currency) + Long.BYTES
+                + Integer.BYTES + (name == null ? 0 : name.length), ACCOUNT, lsn);
+        putUuid(buffer, account.getId());
+        putString(buffer, currency);
+        buffer.putLong(account.minorUnits());
+        buffer.putInt(name == null ? -1 : name.length);
+        if (name != null) {
+            buffer.put(name);
+        }
+        return seal(buffer);
+    }
+
+    static ByteBuffer encodeAccountDeletion(long lsn, UUID uuid) {
+        final var buffer = allocate(UUID_SIZE, ACCOUNT_DELETION, lsn);
+        putUuid(buffer, uuid);
+        return seal(buffer);
+    }
+
+    /**
+     * Transfers between accounts of different currencies also carry the debited and credited
+     * amounts, as a record type of its own so that all other transfers keep their size.
+     */
+    static ByteBuffer encodeTransfer(long lsn, Transfer transfer) {
+        final var currency = currencyCode(transfer.currency());
+        final var converted = transfer.converted();
+        final var buffer = allocate(UUID_SIZE * 3 + stringSize(currency) + Long.BYTES * (converted ? 3 : 1),
+                converted ? CONVERTED_TRANSFER : TRANSFER, lsn);
+        putUuid(buffer, transfer.getId());
+        putUuid(buffer, transfer.getFromAccount());
+        putUuid(buffer, transfer.getToAccount());
+        putString(buffer, currency);
+        buffer.putLong(transfer.minorUnits());
+        if (converted) {
+            buffer.putLong(transfer.debited());
+            buffer.putLong(transfer.credited());
+        }
+        return seal(buffer);
+    }
+
+    /**
+     * Reads the next record and passes it to the visitor.
+     *
+     * @return the size of the record or {@code -1} when the stream ends with a missing, torn or
+     * corrupted record
+     */
+    static int decode(DataInputStream input, JournalVisitor visitor, long[] lsn) throws IOException {
+        final byte[] body;
+        try {
+            final var length = input.readInt();
+            final var crc = input.readInt();
+            if (!isValidLength(length)) {
+                return -1;
+            }
+            body = new byte[length];
+            input.readFully(body);
+            final var checksum = new CRC32();
+            checksum.update(body);
+            if ((int) checksum.getValue() != crc) {
+                return -1;
+            }
+        } catch (EOFException e) {
+            return -1;
+        }
+        lsn[0] = decodeBody(ByteBuffer.wrap(body), visitor);
+        return lsn[0] < 0 ? -1 : HEADER_SIZE + body.length;
+    }
+
+    static boolean isValidLength(int length) {
+        return length >= BODY_HEADER_SIZE && length <= MAX_BODY_SIZE;
+    }
+
+    /**
+     * Checks and decodes a record body, i.e. everything after the checksum.
+     *
+     * @return the lsn of the record or {@code -1} if the body is corrupted
+     */
+    static long decodeBody(ByteBuffer body, int crc, JournalVisitor visitor) {
+        final var checksum = new CRC32();
+        checksum.update(body.duplicate());
+        return (int) checksum.getValue() == crc ? decodeBody(body, visitor) : -1;
+    }
+
+    private static long decodeBody(ByteBuffer buffer, JournalVisitor visitor) {
+        final var type = buffer.get();
+        final var lsn = buffer.getLong();
+        switch (type) {
+            case ACCOUNT:
+                final var account = new Account().setId(getUuid(buffer)).lsn(lsn);
+                final var accountCurrency = getCurrency(buffer);
+                account.setMoney(accountCurrency, buffer.getLong());
+                final var nameLength = buffer.getInt();
+                if (nameLength >= 0) {
+                    final var name = new byte[nameLength];
+                    buffer.get(name);
+                    account.setName(new String(name, StandardCharsets.UTF_8));
+                }
+                visitor.account(lsn, account);
+                return lsn;
+            case ACCOUNT_DELETION:
+                visitor.accountDeletion(lsn, getUuid(buffer));
+                return lsn;
+            case TRANSFER:
+            case CONVERTED_TRANSFER:
+                final var transfer = new Transfer()
+                        .setId(getUuid(buffer))
+                        .setFromAccount(getUuid(buffer))
+                        .setToAccount(getUuid(buffer))
+                        .lsn(lsn);
+                final var transferCurrency = getCurrency(buffer);
+                transfer.setAmount(transferCurrency, buffer.getLong());
+                if (type == CONVERTED_TRANSFER) {
+                    transfer.settle(buffer.getLong(), buffer.getLong());
+                }
+                visitor.transfer(lsn, transfer);
+                return lsn;
+            default:
+                return -1;
+        }
+    }
+
+    private static ByteBuffer allocate(int payloadSize, byte type, long lsn) {
+        final var buffer = ByteBuffer.allocate(HEADER_SIZE + BODY_HEADER_SIZE + payloadSize);
+        buffer.position(HEADER_SIZE);
+        buffer.put(type);
+        buffer.putLong(lsn);
+        return buffer;
+    }
+
+    private static ByteBuffer seal(ByteBuffer buffer) {
+        final var length = buffer.position() - HEADER_SIZE;
+        final var checksum = new CRC32();
+        checksum.update(buffer.array(), HEADER_SIZE, length);
+        buffer.putInt(0, length);
+        buffer.putInt(Integer.BYTES, (int) checksum.getValue());
+        return buffer.flip();
+    }
+
+    private static byte[] currencyCode(int currency) {
+        return currency == Currencies.UNDEFINED
+                ? new byte[0]
+                : Currencies.unitOf(currency).getCurrencyCode().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static int getCurrency(ByteBuffer buffer) {
+        final var code = getString(buffer);
+        return code.isEmpty() ? Currencies.UNDEFINED : Currencies.indexOf(code);
+    }
+
+    private static int stringSize(byte[] bytes) {
+        return Byte.BYTES + bytes.length;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        buffer.put((byte) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        final var bytes = new byte[buffer.get()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private static void putUuid(ByteBuffer buffer, UUID uuid) {
+        buffer.putLong(uuid.getMostSignificantBits());
+        buffer.putLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID getUuid(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
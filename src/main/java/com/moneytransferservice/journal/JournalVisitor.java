@@ -0,0 +1,15 @@
+package com.moneytransferservice.journal;
+
+import com.moneytransferservice.model.Account;
+import com.moneytransferservice.model.Transfer;
+
+import java.util.UUID;
+
+public interface JournalVisitor {
+
+    void account(long lsn, Account account);
+
+    void accountDeletion(long lsn, UUID uuid);
+
+    void transfer(long lsn, Transfer transfer);
+}
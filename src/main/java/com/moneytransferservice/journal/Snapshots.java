@@ -0,0 +1,382 @@
+package com.moneytransferservice.journal;
+
+import com.moneytransferservice.model.Account;
+import com.moneytransferservice.model.Transfer;
+import com.moneytransferservice.repository.Repository;
+import com.moneytransferservice.repository.TransferStore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Memory-mapped images of every account, used to bound recovery time.
+ * <p>
+ * A snapshot is taken while mutations continue. It records the lsn {@code L} that was the latest
+ * applied one when the snapshot started and every account together with the lsn of its latest
+ * mutation. Recovery loads the newest valid snapshot and then replays only the journal records
+ * after {@code L}, skipping those already reflected in the lsn of an account.
+ * <p>
+ * Transfers are never changed once recorded, so a snapshot does not repeat them. Each one appends
+ * the transfers recorded since the previous one to the transfer history, a sequence of segments
+ * that are never rewritten or removed, and notes how long the history was. Recovery loads the
+ * whole history in order, so the position of a transfer in the history stays its sequence number
+ * in the transfer store.
+ * <p>
+ * Both kinds of files hold a fixed header followed by records in the journal format. They are
+ * written to temporary files and moved into place once complete, the history segment first, so a
+ * crash never leaves a partial file behind under its final name.
+ * <p>
+ * With a file-backed account store every snapshot also {@link FileAccountRepository#checkpoint
+ * checkpoints} the store before it discards journal segments. Recovery then leaves the accounts
+ * in the store as they are unless the store is older than the snapshot.
+ */
+public class Snapshots {
+
+    private static final String PREFIX = "snapshot-";
+    private static final String HISTORY_PREFIX = "history-";
+    private static final String SUFFIX = ".bin";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final int MAGIC = 0x4d545353;
+    private static final int HISTORY_MAGIC = 0x4d545348;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = Integer.BYTES * 2 + Long.BYTES * 3;
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+    private static final int RETAINED = 2;
+
+    private final Path directory;
+    private final FileAccountRepository accountStore;
+
+    public Snapshots(Path directory) {
+        this(directory, null);
+    }
+
+    /**
+     * @param accountStore the store the accounts are recovered into and kept in, or {@code null}
+     */
+    public Snapshots(Path directory, FileAccountRepository accountStore) {
+        this.directory = directory;
+        this.accountStore = accountStore;
+    }
+
+    /**
+     * Loads the transfer history and the newest valid snapshot into the repositories. The
+     * accounts of the snapshot are skipped if the account store was checkpointed at or after it,
+     * and replace the store's accounts otherwise.
+     *
+     * @return the lsn the loaded snapshot was taken at or {@code 0} if there is none
+     */
+    public long load(Repository<Account> accountRepository,
+                     TransferStore transferRepository) throws IOException {
+        final var history = loadHistory(transferRepository);
+        for (Path snapshot : list(PREFIX)) {
+            final var header = verify(snapshot, MAGIC);
+            if (header != null && header.transfers <= history) {
+                if (accountStore != null) {
+                    if (accountStore.checkpointLsn() >= header.lsn) {
+                        return header.lsn;
+                    }
+                    accountStore.clear();
+                }
+                return read(snapshot, MAGIC, new JournalVisitor() {
+                    @Override
+                    public void account(long lsn, Account account) {
+                        accountRepository.update(account.getId(), account);
+                    }
+
+                    @Override
+                    public void accountDeletion(long lsn, UUID uuid) {
+                        accountRepository.delete(uuid);
+                    }
+
+                    @Override
+                    public void transfer(long lsn, Transfer transfer) {
+                        throw new IllegalStateException("Transfer in snapshot " + snapshot);
+                    }
+                }).lsn;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Writes a snapshot of the source without blocking its mutations and discards the journal
+     * segments and older snapshots it makes obsolete.
+     * <p>
+     * Every mutation up to the lsn of the snapshot is visible once that lsn has been read, so the
+     * transfers counted afterwards include all transfers the journal segments to discard contain,
+     * and the account store was told about all account mutations up to it.
+     */
+    public Path write(Snapshottable source, FileJournal journal) throws IOException {
+        final var lsn = source.lastLsn();
+        final var transfers = source.transferCount();
+        journal.roll();
+        final var history = historyLength();
+        if (transfers < history) {
+            throw new IllegalStateException("Transfer history is ahead of the source, it was not loaded");
+        }
+        final var temporarySegment = directory.resolve(HISTORY_PREFIX + history + SUFFIX + TEMPORARY_SUFFIX);
+        final var temporary = directory.resolve(PREFIX + lsn + SUFFIX + TEMPORARY_SUFFIX);
+        try (var segment = transfers > history ? new MappedOutput(temporarySegment) : null;
+             var output = new MappedOutput(temporary)) {
+            if (segment != null) {
+                source.forEachTransfer(history, transfers, transfer ->
+                        segment.write(JournalCodec.encodeTransfer(transfer.lsn(), transfer)));
+            }
+            source.forEachAccount(account ->
+                    output.write(JournalCodec.encodeAccount(account.lsn(), account)));
+            journal.flush().join();
+            if (accountStore != null) {
+                accountStore.checkpoint(lsn);
+            }
+            if (segment != null) {
+                segment.finish(HISTORY_MAGIC, lsn, history);
+            }
+            output.finish(MAGIC, lsn, transfers);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporarySegment);
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        if (transfers > history) {
+            Files.move(temporarySegment, directory.resolve(name(HISTORY_PREFIX, history)),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        final var snapshot = directory.resolve(name(PREFIX, lsn));
+        Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        journal.discard(lsn);
+        final var snapshots = list(PREFIX);
+        for (Path obsolete : snapshots.subList(Math.min(RETAINED, snapshots.size()), snapshots.size())) {
+            Files.deleteIfExists(obsolete);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Loads every history segment in order.
+     *
+     * @return the number of transfers in the history
+     */
+    private long loadHistory(TransferStore transferRepository) throws IOException {
+        final var segments = list(HISTORY_PREFIX);
+        Collections.reverse(segments);
+        var length = 0L;
+        for (Path segment : segments) {
+            final var header = read(segment, HISTORY_MAGIC, new JournalVisitor() {
+                @Override
+                public void account(long lsn, Account account) {
+                    throw new IllegalStateException("Account in transfer history " + segment);
+                }
+
+                @Override
+                public void accountDeletion(long lsn, UUID uuid) {
+                    throw new IllegalStateException("Account in transfer history " + segment);
+                }
+
+                @Override
+                public void transfer(long lsn, Transfer transfer) {
+                    transferRepository.put(transfer.getId(), transfer);
+                }
+            });
+            if (header.transfers != length) {
+                throw new IllegalStateException("Transfer history is missing the transfers before " + segment);
+            }
+            length += header.records;
+        }
+        return length;
+    }
+
+    /**
+     * @return the number of transfers in the history on disk
+     */
+    private long historyLength() throws IOException {
+        final var segments = list(HISTORY_PREFIX);
+        if (segments.isEmpty()) {
+            return 0;
+        }
+        final var header = readHeader(segments.get(0), HISTORY_MAGIC);
+        return header.transfers + header.records;
+    }
+
+    private static String name(String prefix, long position) {
+        return String.format("%s%020d%s", prefix, position, SUFFIX);
+    }
+
+    /**
+     * @return the files with the prefix, the highest lsn or sequence number first
+     */
+    private List<Path> list(String prefix) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (var files = Files.list(directory)) {
+            return files
+                    .filter(file -> {
+                        final var name = file.getFileName().toString();
+                        return name.startsWith(prefix) && name.endsWith(SUFFIX);
+                    })
+                    .sorted(Comparator.comparing(Path::toString).reversed())
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * @return the header of the file or {@code null} if it is not valid
+     */
+    private static Header verify(Path snapshot, int magic) throws IOException {
+        final var visitor = new JournalVisitor() {
+            @Override
+            public void account(long lsn, Account account) {
+            }
+
+            @Override
+            public void accountDeletion(long lsn, UUID uuid) {
+            }
+
+            @Override
+            public void transfer(long lsn, Transfer transfer) {
+            }
+        };
+        try {
+            return read(snapshot, magic, visitor);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static Header readHeader(Path snapshot, int magic) throws IOException {
+        try (var channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            return readHeader(channel, snapshot, magic);
+        }
+    }
+
+    private static Header readHeader(FileChannel channel, Path snapshot, int magic) throws IOException {
+        if (channel.size() < HEADER_SIZE) {
+            throw new IllegalStateException("Truncated snapshot " + snapshot);
+        }
+        final var header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        if (header.getInt() != magic || header.getInt() != VERSION) {
+            throw new IllegalStateException("Unknown snapshot format " + snapshot);
+        }
+        return new Header(header.getLong(), header.getLong(), header.getLong());
+    }
+
+    private static Header read(Path snapshot, int magic, JournalVisitor visitor) throws IOException {
+        try (var channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            final var size = channel.size();
+            final var header = readHeader(channel, snapshot, magic);
+            final var records = header.records;
+            var position = (long) HEADER_SIZE;
+            MappedByteBuffer window = null;
+            var windowStart = 0L;
+            for (long i = 0; i < records; i++) {
+                if (position + JournalCodec.HEADER_SIZE > size) {
+                    throw new IllegalStateException("Truncated snapshot " + snapshot);
+                }
+                if (window == null || window.remaining() < JournalCodec.HEADER_SIZE) {
+                    window = map(channel, position, size);
+                    windowStart = position;
+                }
+                final var length = window.getInt();
+                final var crc = window.getInt();
+                if (!JournalCodec.isValidLength(length) || position + JournalCodec.HEADER_SIZE + length > size) {
+                    throw new IllegalStateException("Corrupted snapshot " + snapshot);
+                }
+                if (window.remaining() < length) {
+                    window = map(channel, position + JournalCodec.HEADER_SIZE, size);
+                    windowStart = position + JournalCodec.HEADER_SIZE;
+                }
+                final var body = window.slice().limit(length);
+                window.position(window.position() + length);
+                if (JournalCodec.decodeBody(body, crc, visitor) < 0) {
+                    throw new IllegalStateException("Corrupted snapshot " + snapshot);
+                }
+                position = windowStart + window.position();
+            }
+            return header;
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, size - position));
+    }
+
+    /**
+     * The header of a snapshot or history segment. Both carry the lsn of the snapshot they were
+     * written for. A snapshot counts the transfers in the history it needs, a history segment
+     * the transfers in the history before it.
+     */
+    private static final class Header {
+
+        private final long lsn;
+        private final long transfers;
+        private final long records;
+
+        private Header(long lsn, long transfers, long records) {
+            this.lsn = lsn;
+            this.transfers = transfers;
+            this.records = records;
+        }
+    }
+
+    private static final class MappedOutput implements AutoCloseable {
+
+        private final FileChannel channel;
+        private MappedByteBuffer window;
+        private long windowStart;
+        private long records;
+
+        private MappedOutput(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.windowStart = HEADER_SIZE;
+            this.window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, WINDOW_SIZE);
+        }
+
+        private void write(ByteBuffer record) {
+            try {
+                if (window.remaining() < record.remaining()) {
+                    window.force();
+                    windowStart += window.position();
+                    window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart,
+                            Math.max(WINDOW_SIZE, record.remaining()));
+                }
+                window.put(record);
+                records++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void finish(int magic, long lsn, long transfers) throws IOException {
+            window.force();
+            channel.truncate(windowStart + window.position());
+            final var header = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(magic)
+                    .putInt(VERSION)
+                    .putLong(lsn)
+                    .putLong(transfers)
+                    .putLong(records)
+                    .flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+
+        @Override
+        public void close() throws IOException {
+            window = null;
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.moneytransferservice.journal;
+
+import com.moneytransferservice.model.Account;
+import com.moneytransferservice.model.Transfer;
+
+import java.util.function.Consumer;
+
+public interface Snapshottable {
+
+    /**
+     * @return the lsn of the latest applied mutation; every mutation up to it is visible to the
+     * following iterations
+     */
+    long lastLsn();
+
+    /**
+     * Passes every account to the consumer while no mutation of that account is in progress.
+     */
+    void forEachAccount(Consumer<Account> consumer);
+
+    /**
+     * @return the number of recorded transfers; the transfers up to the latest applied mutation
+     * are among them
+     */
+    int transferCount();
+
+    /**
+     * Passes the transfers from sequence number {@code from}, inclusive, to {@code to}, exclusive,
+     * in the order they were recorded.
+     */
+    void forEachTransfer(long from, long to, Consumer<Transfer> consumer);
+}
@@ -0,0 +1,126 @@
+package com.moneytransferservice.ledger;
+
+import com.moneytransferservice.model.Account;
+import com.moneytransferservice.model.Currencies;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Copy-on-write view of the account balances and the issued money as of the moment a
+ * {@link Ledger#reconcile reconciliation} started.
+ * <p>
+ * Every mutation that starts after the epoch was installed, i.e. sees it while holding its
+ * locks, first copies what it is about to change unless the reconciliation already read it. The
+ * reconciliation reads everything else under the same locks, so it sees each account and each
+ * partition of the issued money either before or after all mutations that started before the
+ * epoch, and never after one that started later.
+ */
+final class Epoch {
+
+    private static final long[] ABSENT = new long[0];
+    private static final long[] SCANNED = new long[0];
+
+    private final ConcurrentHashMap<UUID, long[]> accounts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, long[]> issued = new ConcurrentHashMap<>();
+    private final Balances balances = new Balances();
+
+    /**
+     * Copies the balance of an account that is about to change.
+     */
+    void capture(Account account) {
+        if (!accounts.containsKey(account.getId())) {
+            accounts.putIfAbsent(account.getId(), new long[]{account.currency(), account.minorUnits()});
+        }
+    }
+
+    /**
+     * Records that an account is about to be created, so it is left out of the view. The id
+     * either had no account when the epoch started or the view has read it already.
+     */
+    void captureCreation(UUID uuid) {
+        accounts.putIfAbsent(uuid, ABSENT);
+    }
+
+    /**
+     * Copies a partition of the issued money that is about to change.
+     */
+    void captureIssued(int partition, long[] amounts) {
+        if (!issued.containsKey(partition)) {
+            issued.putIfAbsent(partition, amounts == null ? ABSENT : amounts.clone());
+        }
+    }
+
+    /**
+     * Reads an account into the view, or its copy if it changed since the epoch started.
+     */
+    void scan(Account account) {
+        final var captured = accounts.putIfAbsent(account.getId(), SCANNED);
+        if (captured == null) {
+            balances.add(account.currency(), account.minorUnits());
+        } else if (captured != ABSENT && captured != SCANNED) {
+            balances.add((int) captured[0], captured[1]);
+            accounts.put(account.getId(), SCANNED);
+        }
+    }
+
+    /**
+     * @return the balances of the view, including those of accounts deleted before they were read
+     */
+    Balances balances() {
+        accounts.values().forEach(captured -> {
+            if (captured != ABSENT && captured != SCANNED) {
+                balances.add((int) captured[0], captured[1]);
+            }
+        });
+        return balances;
+    }
+
+    /**
+     * @return the issued money of the view per currency
+     */
+    long[] issued() {
+        final var total = new long[Currencies.count()];
+        for (long[] amounts : issued.values()) {
+            for (int i = 0; i < amounts.length; i++) {
+                total[i] += amounts[i];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Growable columns of currency and minor units, only appended to by the reconciliation.
+     */
+    static final class Balances {
+
+        private int[] currencies = new int[1024];
+        private long[] minorUnits = new long[1024];
+        private int size;
+
+        private void add(int currency, long amount) {
+            if (currency == Currencies.UNDEFINED) {
+                return;
+            }
+            if (size == currencies.length) {
+                currencies = Arrays.copyOf(currencies, size * 2);
+                minorUnits = Arrays.copyOf(minorUnits, size * 2);
+            }
+            currencies[size] = currency;
+            minorUnits[size++] = amount;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int currency(int index) {
+            return currencies[index];
+        }
+
+        long minorUnits(int index) {
+            return minorUnits[index];
+        }
+    }
+}
@@ -0,0 +1,769 @@
+package com.moneytransferservice.ledger;
+
+import com.moneytransferservice.fx.RateTable;
+import com.moneytransferservice.journal.Journal;
+import com.moneytransferservice.journal.Snapshottable;
+import com.moneytransferservice.model.Account;
+import com.moneytransferservice.model.Currencies;
+import com.moneytransferservice.model.Transfer;
+import com.moneytransferservice.repository.IdGenerator;
+import com.moneytransferservice.repository.Repository;
+import com.moneytransferservice.repository.TransferStore;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Applies money transfers atomically without a global lock.
+ * <p>
+ * Every account maps to one of a fixed set of lock stripes. A mutation takes the locks of the
+ * accounts it touches, applies itself, gets the next lsn and appends its journal record before
+ * it lets go of them. The returned futures complete once the mutation is durable.
+ * <p>
+ * A mutation is visible before its journal record is durable. Should the journal fail to write
+ * it, the ledger {@link #isStopped stops} and refuses every further mutation, so what it holds
+ * never moves on from what the journal lost; recovering from the journal drops the failed
+ * mutations again.
+ */
+public class Ledger implements Snapshottable {
+
+    private static final int DEFAULT_STRIPES = 1024;
+
+    /**
+     * Accounts are mutated in place, and every journaled mutation is reported to the repository
+     * right after its journal append, so one that does not hand out the stored instance, like a
+     * cache in front of a slower store, can write it back behind the journal. Credits to a split
+     * account are the exception, its balance is only written back while all of its locks are
+     * held.
+     */
+    private final Repository<Account> accountRepository;
+    private final TransferStore transferRepository;
+    private final Journal journal;
+    /**
+     * The latest lsn. Every journaled mutation tags the accounts it touched with its lsn, so the
+     * lsn of an account doubles as its version.
+     */
+    private final AtomicLong sequence;
+    /**
+     * The transfer history of every account, appended to while the stripes are held so that it
+     * is ordered by lsn, and rebuilt from the transfer store on creation.
+     */
+    private final TransferIndex transferIndex;
+    /**
+     * The {@link #split split} accounts, pinned here because credits to different sub-balances
+     * must land in the same instance.
+     */
+    private final ConcurrentHashMap<UUID, HotAccount> hotAccounts = new ConcurrentHashMap<>();
+    private final ReentrantLock[] locks;
+    private final int mask;
+    /**
+     * The money issued into the accounts per partition and currency: what account creations and
+     * updates brought in, minus what updates and deletions took out, plus what transfers between
+     * currencies converted. It is partitioned like the locks, so keeping it costs a mutation no
+     * extra lock, and {@link #reconcile reconciliations} check it against the balances.
+     */
+    private final long[][] issued;
+    private volatile RateTable rates = RateTable.NONE;
+    private volatile Epoch epoch;
+    private volatile Reconciliation reconciliation;
+    private volatile Throwable failure;
+
+    public Ledger(Repository<Account> accountRepository,
+                  TransferStore transferRepository) {
+        this(accountRepository, transferRepository, Journal.NONE);
+    }
+
+    public Ledger(Repository<Account> accountRepository,
+                  TransferStore transferRepository,
+                  Journal journal) {
+        this(accountRepository, transferRepository, journal, 0);
+    }
+
+    public Ledger(Repository<Account> accountRepository,
+                  TransferStore transferRepository,
+                  Journal journal,
+                  long lastLsn) {
+        this(accountRepository, transferRepository, journal, lastLsn, DEFAULT_STRIPES);
+    }
+
+    public Ledger(Repository<Account> accountRepository,
+                  TransferStore transferRepository,
+                  Journal journal,
+                  long lastLsn,
+                  int stripes) {
+        if (stripes <= 0 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("Stripes count must be a positive power of two");
+        }
+        this.accountRepository = accountRepository;
+        this.transferRepository = transferRepository;
+        this.journal = journal;
+        this.sequence = new AtomicLong(lastLsn);
+        this.locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.mask = stripes - 1;
+        this.issued = new long[stripes][];
+        accountRepository.forEach(account ->
+                issue(null, account.getId(), account.currency(), account.minorUnits()));
+        this.transferIndex = new TransferIndex(transferRepository);
+        transferRepository.forEach(transferIndex::add);
+        transferIndex.sort();
+    }
+
+    /**
+     * Creates the account under a new id. The account becomes visible in the repository together
+     * with the money issued into it, under its stripe, so a reconciliation sees both or neither.
+     */
+    public CompletableFuture<UUID> create(Account account) {
+        if (failure != null) {
+            return stopped();
+        }
+        final var uuid = IdGenerator.TIME_ORDERED.next();
+        account.setId(uuid);
+        final var lock = locks[stripe(uuid)];
+        lock.lock();
+        try {
+            final var epoch = this.epoch;
+            if (epoch != null) {
+                epoch.captureCreation(uuid);
+            }
+            issue(epoch, uuid, account.currency(), account.minorUnits());
+            final var lsn = sequence.incrementAndGet();
+            final var append = journaled(journal.appendAccount(lsn, account.lsn(lsn)));
+            accountRepository.update(uuid, account);
+            return append.thenApply(ignored -> uuid);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Splits the account into {@code subBalances} sub-balances. Must be called before the ledger
+     * is shared between threads.
+     * <p>
+     * Meant for accounts on one side of nearly every transfer, like fee collection or merchant
+     * settlement accounts. A split account is guarded by one lock per sub-balance instead of a
+     * stripe. A transfer to it only takes the stripe of the sender and the lock of one
+     * sub-balance, so credits from different senders proceed in parallel; just recording the
+     * transfer is serialized per account, to keep the lsn order of its history and its journal
+     * records. Everything else touching a split account, debits included, takes all of its locks
+     * and sees a consolidated balance.
+     *
+     * @return {@code false} if there is no such account
+     */
+    public boolean split(UUID uuid, int subBalances) {
+        if (subBalances <= 0 || Integer.bitCount(subBalances) != 1) {
+            throw new IllegalArgumentException("Sub-balances count must be a positive power of two");
+        }
+        final var account = accountRepository.get(uuid);
+        if (account == null) {
+            return false;
+        }
+        account.split(subBalances);
+        hotAccounts.computeIfAbsent(uuid, ignored -> new HotAccount(hotAccounts.size(), subBalances))
+                .account = account;
+        return true;
+    }
+
+    /**
+     * Commits the transfer under the stripes of both accounts, so the availability check, the
+     * debit and the credit happen as one step. The transfer gets a new id unless it was assigned
+     * one up front.
+     */
+    public CompletableFuture<TransferResult> commit(Transfer transfer) {
+        if (failure != null) {
+            return stopped();
+        }
+        final var first = stripe(transfer.getFromAccount());
+        final var second = stripe(transfer.getToAccount());
+        if (!hotAccounts.isEmpty()) {
+            final var hotFromAccount = hotAccounts.get(transfer.getFromAccount());
+            final var hotToAccount = hotAccounts.get(transfer.getToAccount());
+            if (hotFromAccount != null) {
+                return commitAll(List.of(transfer), true).thenApply(results -> results.get(0));
+            }
+            if (hotToAccount != null) {
+                return credit(transfer, first, hotToAccount);
+            }
+        }
+        lock(first, second);
+        try {
+            final var epoch = this.epoch;
+            final var fromAccount = accountRepository.get(transfer.getFromAccount());
+            final var toAccount = accountRepository.get(transfer.getToAccount());
+            final var result = apply(transfer, fromAccount, toAccount, 0, epoch);
+            if (!result.isCommitted()) {
+                return CompletableFuture.completedFuture(result);
+            }
+            return record(transfer, fromAccount, toAccount, epoch, true).thenApply(ignored -> result);
+        } finally {
+            unlock(first, second);
+        }
+    }
+
+    /**
+     * Commits the transfers under the locks of all of their accounts, taken up front. In atomic
+     * mode the first rejected transfer reverts the already applied ones before the locks are
+     * released, so nobody observes a partially applied batch.
+     */
+    public CompletableFuture<List<TransferResult>> commitAll(List<Transfer> transfers, boolean atomic) {
+        if (failure != null) {
+            return stopped();
+        }
+        final var accounts = transfers.stream()
+                .flatMap(transfer -> Stream.of(transfer.getFromAccount(), transfer.getToAccount()))
+                .distinct()
+                .collect(Collectors.toList());
+        final var stripes = accounts.stream()
+                .filter(uuid -> uuid == null || !hotAccounts.containsKey(uuid))
+                .mapToInt(this::stripe)
+                .distinct()
+                .sorted()
+                .toArray();
+        final var splitAccounts = accounts.stream()
+                .map(hotAccounts::get)
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparingInt(hotAccount -> hotAccount.ordinal))
+                .toArray(HotAccount[]::new);
+        for (int stripe : stripes) {
+            locks[stripe].lock();
+        }
+        for (HotAccount hotAccount : splitAccounts) {
+            hotAccount.lockAll();
+        }
+        try {
+            final var epoch = this.epoch;
+            final var resolved = new HashMap<UUID, Account>();
+            for (UUID uuid : accounts) {
+                final var account = account(uuid);
+                if (account != null) {
+                    resolved.put(uuid, account);
+                }
+            }
+            final var appends = new ArrayList<CompletableFuture<Void>>(transfers.size());
+            final var results = atomic
+                    ? applyAtomically(transfers, resolved, appends, epoch)
+                    : applyEach(transfers, resolved, appends, epoch);
+            return CompletableFuture.allOf(appends.toArray(new CompletableFuture[0]))
+                    .thenApply(ignored -> results);
+        } finally {
+            for (int i = splitAccounts.length - 1; i >= 0; i--) {
+                splitAccounts[i].unlockAll();
+            }
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                locks[stripes[i]].unlock();
+            }
+        }
+    }
+
+    /**
+     * Replaces the account unconditionally, creating it if it does not exist.
+     *
+     * @return the lsn of the replacement, which serves as its version
+     */
+    public CompletableFuture<Long> update(UUID uuid, Account account) {
+        return update(uuid, account, null);
+    }
+
+    /**
+     * Replaces the account if its current lsn passes the precondition, typically if it still is
+     * the lsn the caller read the account with. The check and the replacement happen under the
+     * locks of the account, so nobody needs to hold a lock from reading the account to replacing
+     * it; a caller that lost the race just reads again and retries.
+     *
+     * @param precondition tested with the lsn of the current account, or {@code null} to replace
+     *                     the account unconditionally
+     * @return the lsn of the replacement, or {@code 0} if the account does not exist or failed the
+     * precondition and was left as it was
+     */
+    public CompletableFuture<Long> update(UUID uuid, Account account, LongPredicate precondition) {
+        if (failure != null) {
+            return stopped();
+        }
+        final var hotAccount = lockExclusively(uuid);
+        try {
+            final var current = account(uuid);
+            if (precondition != null && (current == null || !precondition.test(current.lsn()))) {
+                return CompletableFuture.completedFuture(0L);
+            }
+            final var epoch = this.epoch;
+            if (current != null) {
+                if (epoch != null) {
+                    epoch.capture(current);
+                }
+                issue(epoch, uuid, current.currency(), -current.minorUnits());
+            } else if (epoch != null) {
+                epoch.captureCreation(uuid);
+            }
+            issue(epoch, uuid, account.currency(), account.minorUnits());
+            if (hotAccount != null) {
+                account.split(hotAccount.locks.length);
+                hotAccount.account = account;
+            }
+            final var lsn = sequence.incrementAndGet();
+            final var append = journaled(journal.appendAccount(lsn, account.lsn(lsn)));
+            accountRepository.update(uuid, account);
+            return append.thenApply(ignored -> lsn);
+        } finally {
+            unlockExclusively(uuid, hotAccount);
+        }
+    }
+
+    public CompletableFuture<Void> delete(UUID uuid) {
+        if (failure != null) {
+            return stopped();
+        }
+        final var hotAccount = lockExclusively(uuid);
+        try {
+            final var current = account(uuid);
+            if (current != null) {
+                final var epoch = this.epoch;
+                if (epoch != null) {
+                    epoch.capture(current);
+                }
+                issue(epoch, uuid, current.currency(), -current.minorUnits());
+            }
+            if (hotAccount != null) {
+                hotAccount.account = null;
+            }
+            final var append = journaled(journal.appendAccountDeletion(sequence.incrementAndGet(), uuid));
+            accountRepository.delete(uuid);
+            transferIndex.remove(uuid);
+            return append;
+        } finally {
+            unlockExclusively(uuid, hotAccount);
+        }
+    }
+
+    /**
+     * Replaces the exchange rates of transfers between accounts in different currencies. Without
+     * rates, both accounts must be in the currency of the transfer.
+     */
+    public void rates(RateTable rates) {
+        this.rates = rates;
+    }
+
+    /**
+     * @return whether a journal append failed, after which the ledger refuses every mutation
+     */
+    public boolean isStopped() {
+        return failure != null;
+    }
+
+    public Optional<Transfer> readTransfer(UUID uuid) {
+        return transferRepository.read(uuid);
+    }
+
+    /**
+     * @return up to {@code limit} transfers from or to the account committed after the given
+     * lsn, oldest first
+     */
+    public List<Transfer> transfersOf(UUID account, long afterLsn, int limit) {
+        return transferIndex.read(account, afterLsn, limit);
+    }
+
+    /**
+     * Sums the balances of all accounts per currency and compares them with the money issued into
+     * them, while mutations go on. Every account is read under its locks, one at a time, and the
+     * balances are summed on the given pool. Mutations that start meanwhile copy what they change
+     * into the epoch of the reconciliation first, and credits to split accounts take all of their
+     * locks until it is done.
+     * <p>
+     * That is not free for live traffic: commits contend with the scan for the stripes and pay for
+     * the copies. In {@code ReconciliationBenchmark} with 100k accounts the p99.9 of commit latency
+     * went from 44 µs when idle to 7 ms while reconciling back to back.
+     */
+    public synchronized Reconciliation reconcile(ForkJoinPool pool) {
+        final var started = System.nanoTime();
+        final var epoch = new Epoch();
+        this.epoch = epoch;
+        try {
+            final var lsn = sequence.get();
+            accountRepository.forEach(account -> {
+                final var uuid = account.getId();
+                final var hotAccount = lockExclusively(uuid);
+                try {
+                    final var current = account(uuid);
+                    if (current != null) {
+                        epoch.scan(current);
+                    }
+                } finally {
+                    unlockExclusively(uuid, hotAccount);
+                }
+            });
+            for (int stripe = 0; stripe < locks.length; stripe++) {
+                locks[stripe].lock();
+                try {
+                    epoch.captureIssued(stripe, issued[stripe]);
+                } finally {
+                    locks[stripe].unlock();
+                }
+            }
+            for (HotAccount hotAccount : hotAccounts.values()) {
+                hotAccount.lockAll();
+                try {
+                    epoch.captureIssued(locks.length + hotAccount.ordinal, hotAccount.issued);
+                } finally {
+                    hotAccount.unlockAll();
+                }
+            }
+            reconciliation = Reconciliation.of(lsn, epoch, pool, started);
+            return reconciliation;
+        } finally {
+            this.epoch = null;
+        }
+    }
+
+    /**
+     * @return the outcome of the latest reconciliation or {@code null} if none ran yet
+     */
+    public Reconciliation lastReconciliation() {
+        return reconciliation;
+    }
+
+    /**
+     * Takes every lock once after reading the lsn, so that the mutations still in progress at
+     * that point are done. A creation or replacement gets its lsn before the repository sees it.
+     */
+    @Override
+    public long lastLsn() {
+        final var lsn = sequence.get();
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+            lock.unlock();
+        }
+        for (HotAccount hotAccount : hotAccounts.values()) {
+            hotAccount.lockAll();
+            hotAccount.unlockAll();
+        }
+        return lsn;
+    }
+
+    /**
+     * Also writes split accounts back to the repository while all of their locks are held, since
+     * their credits do not.
+     */
+    @Override
+    public void forEachAccount(Consumer<Account> consumer) {
+        accountRepository.forEach(account -> {
+            final var uuid = account.getId();
+            final var hotAccount = lockExclusively(uuid);
+            try {
+                if (hotAccount == null) {
+                    consumer.accept(account);
+                } else if (hotAccount.account != null) {
+                    accountRepository.modified(uuid, hotAccount.account);
+                    consumer.accept(hotAccount.account);
+                }
+            } finally {
+                unlockExclusively(uuid, hotAccount);
+            }
+        });
+    }
+
+    @Override
+    public int transferCount() {
+        return transferRepository.size();
+    }
+
+    @Override
+    public void forEachTransfer(long from, long to, Consumer<Transfer> consumer) {
+        for (long i = from; i < to; i++) {
+            consumer.accept(transferRepository.read(Math.toIntExact(i)));
+        }
+    }
+
+    private CompletableFuture<TransferResult> credit(Transfer transfer, int stripe, HotAccount hotAccount) {
+        final var subBalance = ThreadLocalRandom.current().nextInt(hotAccount.locks.length);
+        final var lock = hotAccount.locks[subBalance];
+        locks[stripe].lock();
+        lock.lock();
+        try {
+            if (epoch == null) {
+                final var fromAccount = accountRepository.get(transfer.getFromAccount());
+                final var toAccount = hotAccount.account;
+                final var result = apply(transfer, fromAccount, toAccount, subBalance, null);
+                if (!result.isCommitted()) {
+                    return CompletableFuture.completedFuture(result);
+                }
+                hotAccount.recordLock.lock();
+                try {
+                    return record(transfer, fromAccount, toAccount, null, false).thenApply(ignored -> result);
+                } finally {
+                    hotAccount.recordLock.unlock();
+                }
+            }
+        } finally {
+            lock.unlock();
+            locks[stripe].unlock();
+        }
+        // one sub-balance lock cannot keep other credits from changing the balance the epoch copies
+        return commitAll(List.of(transfer), true).thenApply(results -> results.get(0));
+    }
+
+    /**
+     * Takes the stripe of a regular account or all locks of a split one.
+     *
+     * @return the split account or {@code null} for a regular one
+     */
+    private HotAccount lockExclusively(UUID uuid) {
+        final var stripe = stripe(uuid);
+        final var hotAccount = hotAccounts.get(uuid);
+        if (hotAccount == null) {
+            locks[stripe].lock();
+        } else {
+            hotAccount.lockAll();
+        }
+        return hotAccount;
+    }
+
+    private void unlockExclusively(UUID uuid, HotAccount hotAccount) {
+        if (hotAccount == null) {
+            locks[stripe(uuid)].unlock();
+        } else {
+            hotAccount.unlockAll();
+        }
+    }
+
+    private List<TransferResult> applyEach(List<Transfer> transfers,
+                                           Map<UUID, Account> accounts,
+                                           List<CompletableFuture<Void>> appends,
+                                           Epoch epoch) {
+        final var results = new ArrayList<TransferResult>(transfers.size());
+        for (Transfer transfer : transfers) {
+            final var fromAccount = accounts.get(transfer.getFromAccount());
+            final var toAccount = accounts.get(transfer.getToAccount());
+            final var result = apply(transfer, fromAccount, toAccount, 0, epoch);
+            if (result.isCommitted()) {
+                appends.add(record(transfer, fromAccount, toAccount, epoch, true));
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    private List<TransferResult> applyAtomically(List<Transfer> transfers,
+                                                 Map<UUID, Account> accounts,
+                                                 List<CompletableFuture<Void>> appends,
+                                                 Epoch epoch) {
+        final var results = new ArrayList<TransferResult>(transfers.size());
+        for (Transfer transfer : transfers) {
+            final var result = apply(transfer,
+                    accounts.get(transfer.getFromAccount()), accounts.get(transfer.getToAccount()), 0, epoch);
+            if (!result.isCommitted()) {
+                for (int i = results.size() - 1; i >= 0; i--) {
+                    revert(transfers.get(i), accounts);
+                    results.set(i, TransferResult.ABORTED);
+                }
+                results.add(result);
+                while (results.size() < transfers.size()) {
+                    results.add(TransferResult.ABORTED);
+                }
+                return results;
+            }
+            results.add(result);
+        }
+        for (Transfer transfer : transfers) {
+            appends.add(record(transfer,
+                    accounts.get(transfer.getFromAccount()), accounts.get(transfer.getToAccount()), epoch, true));
+        }
+        return results;
+    }
+
+    /**
+     * Records an applied transfer while the caller still holds the locks of its accounts, so the
+     * journal sees the mutations of an account in the order they were applied.
+     *
+     * @param consolidated whether the caller holds all locks of the receiving account, without
+     *                     which other credits may change the balance of a split one meanwhile
+     */
+    private CompletableFuture<Void> record(Transfer transfer,
+                                           Account fromAccount,
+                                           Account toAccount,
+                                           Epoch epoch,
+                                           boolean consolidated) {
+        if (fromAccount.currency() != toAccount.currency()) {
+            issue(epoch, transfer.getFromAccount(), fromAccount.currency(), -transfer.debited());
+            issue(epoch, transfer.getFromAccount(), toAccount.currency(), transfer.credited());
+        }
+        final var lsn = sequence.incrementAndGet();
+        transfer.lsn(lsn);
+        if (transfer.getId() == null) {
+            transfer.setId(transferRepository.append(transfer));
+        } else {
+            transferRepository.put(transfer.getId(), transfer);
+        }
+        fromAccount.lsn(lsn);
+        toAccount.lsn(lsn);
+        transferIndex.add(transfer);
+        final var append = journaled(journal.appendTransfer(lsn, transfer));
+        accountRepository.modified(transfer.getFromAccount(), fromAccount);
+        if (toAccount != fromAccount && consolidated) {
+            accountRepository.modified(transfer.getToAccount(), toAccount);
+        }
+        return append;
+    }
+
+    /**
+     * Stops the ledger if the append fails.
+     */
+    private CompletableFuture<Void> journaled(CompletableFuture<Void> append) {
+        return append.whenComplete((ignored, error) -> {
+            if (error != null && failure == null) {
+                failure = error;
+            }
+        });
+    }
+
+    private <T> CompletableFuture<T> stopped() {
+        return CompletableFuture.failedFuture(
+                new IllegalStateException("Ledger stopped after a journal failure", failure));
+    }
+
+    private void revert(Transfer transfer, Map<UUID, Account> accounts) {
+        accounts.get(transfer.getToAccount()).withdrawMoney(transfer.credited());
+        accounts.get(transfer.getFromAccount()).acceptMoney(transfer.debited());
+    }
+
+    /**
+     * Moves the money of the transfer, converted into the currencies of both accounts with the
+     * current {@link #rates rates}. The transfer keeps the debited and credited amounts, so that
+     * reverting, recovering or replaying it never depends on the rates of a later time.
+     */
+    private TransferResult apply(Transfer transfer,
+                                 Account fromAccount,
+                                 Account toAccount,
+                                 int subBalance,
+                                 Epoch epoch) {
+        if (fromAccount == null) {
+            return TransferResult.FROM_ACCOUNT_NOT_FOUND;
+        }
+        if (toAccount == null) {
+            return TransferResult.TO_ACCOUNT_NOT_FOUND;
+        }
+        final var currency = transfer.currency();
+        final var amount = transfer.minorUnits();
+        if (currency == Currencies.UNDEFINED || amount <= 0) {
+            return TransferResult.INVALID_AMOUNT;
+        }
+        final var rates = this.rates;
+        final var debited = rates.convert(amount, currency, fromAccount.currency());
+        final var credited = rates.convert(amount, currency, toAccount.currency());
+        if (debited == RateTable.NO_RATE || credited == RateTable.NO_RATE) {
+            return TransferResult.INVALID_CURRENCY;
+        }
+        if (debited <= 0 || credited <= 0
+                || !fromAccount.checkMoneyAvailability(debited)
+                || toAccount.minorUnits() > Long.MAX_VALUE - credited) {
+            return TransferResult.INVALID_AMOUNT;
+        }
+        if (epoch != null) {
+            epoch.capture(fromAccount);
+            epoch.capture(toAccount);
+        }
+        fromAccount.withdrawMoney(debited);
+        toAccount.acceptMoney(credited, subBalance);
+        transfer.settle(debited, credited);
+        return TransferResult.COMMITTED;
+    }
+
+    /**
+     * Adds money to the issued money in the partition of the account, which is guarded by the
+     * stripe of a regular account or the locks of a split one. The caller holds that lock.
+     */
+    private void issue(Epoch epoch, UUID uuid, int currency, long minorUnits) {
+        if (currency == Currencies.UNDEFINED || minorUnits == 0) {
+            return;
+        }
+        final var hotAccount = hotAccounts.isEmpty() ? null : hotAccounts.get(uuid);
+        final var partition = hotAccount == null ? stripe(uuid) : locks.length + hotAccount.ordinal;
+        var amounts = hotAccount == null ? issued[partition] : hotAccount.issued;
+        if (epoch != null) {
+            epoch.captureIssued(partition, amounts);
+        }
+        if (amounts == null) {
+            amounts = new long[Currencies.count()];
+            issued[partition] = amounts;
+        }
+        amounts[currency] += minorUnits;
+    }
+
+    /**
+     * @return the pinned instance of a split account or the stored one of a regular account
+     */
+    private Account account(UUID uuid) {
+        final var hotAccount = hotAccounts.isEmpty() ? null : hotAccounts.get(uuid);
+        return hotAccount != null ? hotAccount.account : accountRepository.get(uuid);
+    }
+
+    private int stripe(UUID uuid) {
+        if (uuid == null) {
+            throw new IllegalArgumentException("Account id must be specified");
+        }
+        final var hash = uuid.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    /**
+     * Takes two stripes in ascending order, so that concurrent transfers cannot deadlock.
+     */
+    private void lock(int first, int second) {
+        locks[Math.min(first, second)].lock();
+        if (first != second) {
+            locks[Math.max(first, second)].lock();
+        }
+    }
+
+    private void unlock(int first, int second) {
+        if (first != second) {
+            locks[Math.max(first, second)].unlock();
+        }
+        locks[Math.min(first, second)].unlock();
+    }
+
+    private static final class HotAccount {
+
+        private final int ordinal;
+        private final ReentrantLock[] locks;
+        private final ReentrantLock recordLock = new ReentrantLock();
+        private final long[] issued = new long[Currencies.count()];
+        private volatile Account account;
+
+        private HotAccount(int ordinal, int subBalances) {
+            this.ordinal = ordinal;
+            this.locks = new ReentrantLock[subBalances];
+            for (int i = 0; i < subBalances; i++) {
+                locks[i] = new ReentrantLock();
+            }
+        }
+
+        private void lockAll() {
+            for (ReentrantLock lock : locks) {
+                lock.lock();
+            }
+        }
+
+        private void unlockAll() {
+            for (int i = locks.length - 1; i >= 0; i--) {
+                locks[i].unlock();
+            }
+        }
+    }
+}
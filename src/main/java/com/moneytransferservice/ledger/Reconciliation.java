@@ -0,0 +1,120 @@
+package com.moneytransferservice.ledger;
+
+import com.moneytransferservice.model.Currencies;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Outcome of a {@link Ledger#reconcile reconciliation}: the money held by all accounts per
+ * currency next to the money issued into them, i.e. brought in by account creations and updates,
+ * taken out by updates and deletions, and moved between currencies by transfers. Transfers within
+ * a currency only move money between accounts, so both totals agree unless money was lost or
+ * made up.
+ */
+public final class Reconciliation {
+
+    private static final int SUM_THRESHOLD = 16_384;
+
+    private final long lsn;
+    private final int accounts;
+    private final long[] balances;
+    private final long[] issued;
+    private final long nanos;
+
+    private Reconciliation(long lsn, int accounts, long[] balances, long[] issued, long nanos) {
+        this.lsn = lsn;
+        this.accounts = accounts;
+        this.balances = balances;
+        this.issued = issued;
+        this.nanos = nanos;
+    }
+
+    static Reconciliation of(long lsn, Epoch epoch, ForkJoinPool pool, long started) {
+        final var view = epoch.balances();
+        final var balances = pool.invoke(new Sum(view, 0, view.size()));
+        return new Reconciliation(lsn, view.size(), balances, epoch.issued(), System.nanoTime() - started);
+    }
+
+    /**
+     * @return the last lsn assigned when the reconciliation started
+     */
+    public long lsn() {
+        return lsn;
+    }
+
+    /**
+     * @return the number of accounts with a balance
+     */
+    public int accounts() {
+        return accounts;
+    }
+
+    public long balance(int currency) {
+        return balances[currency];
+    }
+
+    public long issued(int currency) {
+        return issued[currency];
+    }
+
+    /**
+     * @return the money the accounts hold beyond the issued money, in minor units
+     */
+    public long drift(int currency) {
+        return balances[currency] - issued[currency];
+    }
+
+    /**
+     * @return whether any account holds or was issued money of the currency
+     */
+    public boolean involves(int currency) {
+        return balances[currency] != 0 || issued[currency] != 0;
+    }
+
+    public boolean isBalanced() {
+        for (int currency = 0; currency < balances.length; currency++) {
+            if (drift(currency) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long nanos() {
+        return nanos;
+    }
+
+    private static final class Sum extends RecursiveTask<long[]> {
+
+        private final Epoch.Balances view;
+        private final int from;
+        private final int to;
+
+        private Sum(Epoch.Balances view, int from, int to) {
+            this.view = view;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= SUM_THRESHOLD) {
+                final var sums = new long[Currencies.count()];
+                for (int i = from; i < to; i++) {
+                    sums[view.currency(i)] += view.minorUnits(i);
+                }
+                return sums;
+            }
+            final var middle = (from + to) >>> 1;
+            final var left = new Sum(view, from, middle);
+            left.fork();
+            final var sums = new Sum(view, middle, to).compute();
+            final var leftSums = left.join();
+            for (int i = 0; i < sums.length; i++) {
+                sums[i] += leftSums[i];
+            }
+            return sums;
+        }
+    }
+}
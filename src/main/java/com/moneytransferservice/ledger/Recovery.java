@@ -0,0 +1,85 @@
+package com.moneytransferservice.ledger;
+
+import com.moneytransferservice.journal.JournalVisitor;
+import com.moneytransferservice.model.Account;
+import com.moneytransferservice.model.Transfer;
+import com.moneytransferservice.repository.Repository;
+import com.moneytransferservice.repository.TransferStore;
+
+import java.util.UUID;
+
+/**
+ * Rebuilds the repositories from journal records. Transfers were validated when they were
+ * committed, so they are re-applied without any checks.
+ * <p>
+ * Records up to the lsn of the loaded snapshot are skipped, and so are records an account has
+ * already seen according to its own lsn, because the snapshot was taken while mutations went on.
+ */
+public class Recovery implements JournalVisitor {
+
+    private final Repository<Account> accountRepository;
+    private final TransferStore transferRepository;
+    private final long snapshotLsn;
+    private long lastLsn;
+
+    public Recovery(Repository<Account> accountRepository,
+                    TransferStore transferRepository) {
+        this(accountRepository, transferRepository, 0);
+    }
+
+    public Recovery(Repository<Account> accountRepository,
+                    TransferStore transferRepository,
+                    long snapshotLsn) {
+        this.accountRepository = accountRepository;
+        this.transferRepository = transferRepository;
+        this.snapshotLsn = snapshotLsn;
+        this.lastLsn = snapshotLsn;
+    }
+
+    public long lastLsn() {
+        return lastLsn;
+    }
+
+    @Override
+    public void account(long lsn, Account account) {
+        if (seen(lsn)) {
+            return;
+        }
+        final var current = accountRepository.read(account.getId());
+        if (!current.isPresent() || current.get().lsn() < lsn) {
+            accountRepository.update(account.getId(), account);
+        }
+    }
+
+    @Override
+    public void accountDeletion(long lsn, UUID uuid) {
+        if (seen(lsn)) {
+            return;
+        }
+        final var current = accountRepository.read(uuid);
+        if (current.isPresent() && current.get().lsn() < lsn) {
+            accountRepository.delete(uuid);
+        }
+    }
+
+    @Override
+    public void transfer(long lsn, Transfer transfer) {
+        if (seen(lsn)) {
+            return;
+        }
+        transferRepository.put(transfer.getId(), transfer);
+        final var fromAccount = accountRepository.read(transfer.getFromAccount())
+                .filter(account -> account.lsn() < lsn);
+        final var toAccount = accountRepository.read(transfer.getToAccount())
+                .filter(account -> account.lsn() < lsn);
+        fromAccount.ifPresent(account -> account.withdrawMoney(transfer.debited()));
+        toAccount.ifPresent(account -> account.acceptMoney(transfer.credited()));
+        fromAccount.ifPresent(account -> accountRepository.modified(account.getId(), account.lsn(lsn)));
+        toAccount.ifPresent(account -> accountRepository.modified(account.getId(), account.lsn(lsn)));
+    }
+
+    private boolean seen(long lsn) {
+        lastLsn = Math.max(lastLsn, lsn);
+        return lsn <= snapshotLsn;
+    }
+}
@@ -0,0 +1,126 @@
+package com.moneytransferservice.ledger;
+
+import com.moneytransferservice.model.Transfer;
+import com.moneytransferservice.repository.TransferStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-account history of committed transfers ordered by lsn, i.e. by commit time.
+ * <p>
+ * Every account has an append-only array of the lsns and ids of its transfers. The transfers
+ * themselves are read from the repository, so the index holds no objects per transfer and a
+ * repository that keeps transfers off the heap keeps them off the heap for good.
+ * <p>
+ * Appends to the history of an account must be serialized by the caller, which the ledger does
+ * with the locks of the account. Reads take no lock: an entry is stored before the size that
+ * makes it visible is published, so readers always see a consistent prefix of the history.
+ */
+final class TransferIndex {
+
+    private static final int INITIAL_CAPACITY = 8;
+    private static final int ENTRY_SIZE = 3;
+
+    private final TransferStore transferRepository;
+    private final ConcurrentHashMap<UUID, History> histories = new ConcurrentHashMap<>();
+
+    TransferIndex(TransferStore transferRepository) {
+        this.transferRepository = transferRepository;
+    }
+
+    /**
+     * Appends the transfer to the histories of both of its accounts. Transfers of an account
+     * must be added in lsn order, unless {@link #sort} is called before the index is read.
+     */
+    void add(Transfer transfer) {
+        add(transfer.getFromAccount(), transfer);
+        if (!transfer.getToAccount().equals(transfer.getFromAccount())) {
+            add(transfer.getToAccount(), transfer);
+        }
+    }
+
+    /**
+     * Orders every history by lsn after transfers were added in arbitrary order, e.g. while
+     * rebuilding the index from the repository.
+     */
+    void sort() {
+        histories.values().forEach(History::sort);
+    }
+
+    void remove(UUID account) {
+        histories.remove(account);
+    }
+
+    /**
+     * @return up to {@code limit} transfers of the account committed after the given lsn
+     */
+    List<Transfer> read(UUID account, long afterLsn, int limit) {
+        final var history = histories.get(account);
+        if (history == null) {
+            return List.of();
+        }
+        final var size = history.size;
+        final var entries = history.entries;
+        var low = 0;
+        var high = size;
+        while (low < high) {
+            final var middle = (low + high) >>> 1;
+            if (entries[middle * ENTRY_SIZE] <= afterLsn) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        final var page = new ArrayList<Transfer>(Math.min(limit, size - low));
+        for (int i = low; i < size && page.size() < limit; i++) {
+            final var uuid = new UUID(entries[i * ENTRY_SIZE + 1], entries[i * ENTRY_SIZE + 2]);
+            transferRepository.read(uuid).ifPresent(page::add);
+        }
+        return page;
+    }
+
+    private void add(UUID account, Transfer transfer) {
+        histories.computeIfAbsent(account, ignored -> new History()).add(transfer);
+    }
+
+    /**
+     * Entries of {@value #ENTRY_SIZE} longs: the lsn and both halves of the transfer id.
+     */
+    private static final class History {
+
+        private volatile long[] entries = new long[INITIAL_CAPACITY * ENTRY_SIZE];
+        private volatile int size;
+
+        private void add(Transfer transfer) {
+            var array = entries;
+            final var count = size;
+            if ((count + 1) * ENTRY_SIZE > array.length) {
+                array = Arrays.copyOf(array, array.length * 2);
+            }
+            array[count * ENTRY_SIZE] = transfer.lsn();
+            array[count * ENTRY_SIZE + 1] = transfer.getId().getMostSignificantBits();
+            array[count * ENTRY_SIZE + 2] = transfer.getId().getLeastSignificantBits();
+            entries = array;
+            size = count + 1;
+        }
+
+        private void sort() {
+            final var array = entries;
+            final var count = size;
+            final var rows = new long[count][];
+            for (int i = 0; i < count; i++) {
+                rows[i] = Arrays.copyOfRange(array, i * ENTRY_SIZE, (i + 1) * ENTRY_SIZE);
+            }
+            Arrays.sort(rows, Comparator.comparingLong(row -> row[0]));
+            for (int i = 0; i < count; i++) {
+                System.arraycopy(rows[i], 0, array, i * ENTRY_SIZE, ENTRY_SIZE);
+            }
+            entries = array;
+        }
+    }
+}
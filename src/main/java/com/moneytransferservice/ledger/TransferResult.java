@@ -0,0 +1,25 @@
+package com.moneytransferservice.ledger;
+
+public enum TransferResult {
+
+    COMMITTED(null),
+    FROM_ACCOUNT_NOT_FOUND("The account from which the transition is made does not exist"),
+    TO_ACCOUNT_NOT_FOUND("The account to which the transition is made does not exist"),
+    INVALID_CURRENCY("Invalid transfer сurrency specified"),
+    INVALID_AMOUNT("Invalid transfer amount specified"),
+    ABORTED("The transfer batch was aborted by another transfer");
+
+    private final String message;
+
+    TransferResult(String message) {
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public boolean isCommitted() {
+        return this == COMMITTED;
+    }
+}
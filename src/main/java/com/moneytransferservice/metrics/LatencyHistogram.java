@@ -0,0 +1,139 @@
+package com.moneytransferservice.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log-linear latency histogram in the style of HdrHistogram: every power of two of nanoseconds is
+ * split into {@code subBuckets} buckets of equal width, so a latency is known within a relative
+ * error of {@code 1 / subBuckets}, 12.5% by default, over the whole range of a long.
+ * <p>
+ * Recording only computes a bucket index from the leading zeros of the value and increments
+ * preallocated counters, so it never allocates and may be called from any thread. The same
+ * histogram serves the request latencies on {@code /metrics} and the percentiles of the load
+ * generator.
+ */
+public class LatencyHistogram {
+
+    public static final int DEFAULT_SUB_BUCKETS = 8;
+
+    /**
+     * The range exported to Prometheus, from about a microsecond to about 69 seconds.
+     */
+    private static final long MIN_EXPORTED = 1L << 10;
+    private static final long MAX_EXPORTED = 1L << 36;
+
+    private final int subBucketBits;
+    private final int subBuckets;
+    private final AtomicLongArray counts;
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        this(DEFAULT_SUB_BUCKETS);
+    }
+
+    /**
+     * @param subBuckets buckets per power of two, a power of two itself
+     */
+    public LatencyHistogram(int subBuckets) {
+        if (subBuckets <= 0 || subBuckets > 1 << 16 || Integer.bitCount(subBuckets) != 1) {
+            throw new IllegalArgumentException("Sub-buckets count must be a power of two up to 65536");
+        }
+        this.subBucketBits = Integer.numberOfTrailingZeros(subBuckets);
+        this.subBuckets = subBuckets;
+        this.counts = new AtomicLongArray((Long.SIZE - subBucketBits) * subBuckets);
+    }
+
+    public void record(long nanos) {
+        final var value = Math.max(0, nanos);
+        counts.incrementAndGet(index(value));
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public long count() {
+        var count = 0L;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public double mean() {
+        final var count = count();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    /**
+     * @return the highest latency of the bucket that holds the percentile, never more than the
+     * maximum recorded latency
+     */
+    public long percentile(double percentile) {
+        final var count = count();
+        if (count == 0) {
+            return 0;
+        }
+        final var rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        var seen = 0L;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValue(i), max());
+            }
+        }
+        return max();
+    }
+
+    int index(long value) {
+        if (value < subBuckets) {
+            return (int) value;
+        }
+        final var exponent = 63 - Long.numberOfLeadingZeros(value);
+        final var shift = exponent - subBucketBits;
+        return (shift + 1) * subBuckets + (int) ((value >>> shift) - subBuckets);
+    }
+
+    /**
+     * @return the inclusive upper bound in nanoseconds of the bucket
+     */
+    long highestValue(int index) {
+        if (index < subBuckets) {
+            return index;
+        }
+        final var shift = index / subBuckets - 1;
+        return ((long) (subBuckets + index % subBuckets + 1) << shift) - 1;
+    }
+
+    /**
+     * Writes the buckets of the exported range, the first one also counting every shorter
+     * latency and the {@code +Inf} one every longer latency.
+     */
+    void writeTo(StringBuilder output, String name, String labels) {
+        final var first = index(MIN_EXPORTED - 1);
+        final var last = index(MAX_EXPORTED - 1);
+        var count = 0L;
+        for (int i = 0; i < first; i++) {
+            count += counts.get(i);
+        }
+        for (int i = first; i <= last; i++) {
+            count += counts.get(i);
+            output.append(name).append("_bucket{").append(labels).append(",le=\"")
+                    .append(highestValue(i) / 1e9).append("\"} ").append(count).append('\n');
+        }
+        for (int i = last + 1; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        output.append(name).append("_bucket{").append(labels).append(",le=\"+Inf\"} ")
+                .append(count).append('\n');
+        output.append(name).append("_sum{").append(labels).append("} ")
+                .append(sum.sum() / 1e9).append('\n');
+        output.append(name).append("_count{").append(labels).append("} ")
+                .append(count).append('\n');
+    }
+}
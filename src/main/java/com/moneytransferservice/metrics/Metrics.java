@@ -0,0 +1,143 @@
+package com.moneytransferservice.metrics;
+
+import com.moneytransferservice.ledger.TransferResult;
+import com.moneytransferservice.repository.CachingRepository;
+
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request latencies, transfer rejections, event loop lag and cache effectiveness, exposed in the
+ * Prometheus text format.
+ * <p>
+ * Histograms and gauges are registered once when the routes and event loops are set up. The hot
+ * path only updates them, which never allocates.
+ */
+public class Metrics {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    public static final String MALFORMED_REQUEST = "MALFORMED_REQUEST";
+    public static final String QUEUE_FULL = "QUEUE_FULL";
+
+    private static final TransferResult[] RESULTS = TransferResult.values();
+
+    private final ConcurrentNavigableMap<String, LatencyHistogram> histograms = new ConcurrentSkipListMap<>();
+    private final ConcurrentNavigableMap<String, EventLoopLag> eventLoops = new ConcurrentSkipListMap<>();
+    private final ConcurrentNavigableMap<String, CachingRepository<?>> caches = new ConcurrentSkipListMap<>();
+    private final LongAdder[] rejections = new LongAdder[RESULTS.length];
+    private final LongAdder malformedTransfers = new LongAdder();
+    private final LongAdder queueFullTransfers = new LongAdder();
+    private final int subBuckets;
+
+    public Metrics() {
+        this(LatencyHistogram.DEFAULT_SUB_BUCKETS);
+    }
+
+    /**
+     * @param subBuckets buckets per power of two of the latency histograms, a power of two
+     */
+    public Metrics(int subBuckets) {
+        this.subBuckets = subBuckets;
+        for (int i = 0; i < rejections.length; i++) {
+            rejections[i] = new LongAdder();
+        }
+    }
+
+    public LatencyHistogram histogram(String method, String route) {
+        return histograms.computeIfAbsent(
+                "method=\"" + method + "\",route=\"" + route + "\"", ignored -> new LatencyHistogram(subBuckets));
+    }
+
+    public EventLoopLag eventLoopLag(String eventLoop) {
+        return eventLoops.computeIfAbsent("loop=\"" + eventLoop + "\"", ignored -> new EventLoopLag());
+    }
+
+    /**
+     * Reports the hits, misses and evictions of the cache under the given name.
+     */
+    public void cache(String name, CachingRepository<?> cache) {
+        caches.put("cache=\"" + name + "\"", cache);
+    }
+
+    public void recordRejection(TransferResult result) {
+        rejections[result.ordinal()].increment();
+    }
+
+    public void recordMalformedTransfer() {
+        malformedTransfers.increment();
+    }
+
+    public void recordQueueFull() {
+        queueFullTransfers.increment();
+    }
+
+    public String scrape() {
+        final var output = new StringBuilder();
+        output.append("# HELP http_server_request_duration_seconds Time until the response is written.\n")
+                .append("# TYPE http_server_request_duration_seconds histogram\n");
+        histograms.forEach((labels, histogram) ->
+                histogram.writeTo(output, "http_server_request_duration_seconds", labels));
+
+        output.append("# HELP transfer_rejections_total Rejected money transfers by cause.\n")
+                .append("# TYPE transfer_rejections_total counter\n");
+        for (TransferResult result : RESULTS) {
+            if (!result.isCommitted()) {
+                writeRejections(output, result.name(), rejections[result.ordinal()].sum());
+            }
+        }
+        writeRejections(output, MALFORMED_REQUEST, malformedTransfers.sum());
+        writeRejections(output, QUEUE_FULL, queueFullTransfers.sum());
+
+        output.append("# HELP vertx_event_loop_lag_seconds Delay of the latest event loop probe.\n")
+                .append("# TYPE vertx_event_loop_lag_seconds gauge\n");
+        eventLoops.forEach((labels, lag) -> output.append("vertx_event_loop_lag_seconds{").append(labels)
+                .append("} ").append(lag.latest.get() / 1e9).append('\n'));
+        output.append("# HELP vertx_event_loop_lag_max_seconds Maximum event loop probe delay since the previous scrape.\n")
+                .append("# TYPE vertx_event_loop_lag_max_seconds gauge\n");
+        eventLoops.forEach((labels, lag) -> output.append("vertx_event_loop_lag_max_seconds{").append(labels)
+                .append("} ").append(lag.max.getAndSet(0) / 1e9).append('\n'));
+
+        output.append("# HELP cache_requests_total Cache lookups by result.\n")
+                .append("# TYPE cache_requests_total counter\n");
+        caches.forEach((labels, cache) -> output
+                .append("cache_requests_total{").append(labels).append(",result=\"hit\"} ")
+                .append(cache.hits()).append('\n')
+                .append("cache_requests_total{").append(labels).append(",result=\"miss\"} ")
+                .append(cache.misses()).append('\n'));
+        output.append("# HELP cache_hit_ratio Share of cache lookups served from the cache.\n")
+                .append("# TYPE cache_hit_ratio gauge\n");
+        caches.forEach((labels, cache) -> {
+            final var hits = cache.hits();
+            final var lookups = hits + cache.misses();
+            output.append("cache_hit_ratio{").append(labels).append("} ")
+                    .append(lookups == 0 ? 0.0 : (double) hits / lookups).append('\n');
+        });
+        output.append("# HELP cache_evictions_total Values evicted from the cache.\n")
+                .append("# TYPE cache_evictions_total counter\n");
+        caches.forEach((labels, cache) -> output.append("cache_evictions_total{").append(labels)
+                .append("} ").append(cache.evictions()).append('\n'));
+        return output.toString();
+    }
+
+    private static void writeRejections(StringBuilder output, String cause, long count) {
+        output.append("transfer_rejections_total{cause=\"").append(cause).append("\"} ")
+                .append(count).append('\n');
+    }
+
+    /**
+     * Time an event loop was blocked, measured as the delay of a periodic probe scheduled on it.
+     */
+    public static final class EventLoopLag {
+
+        private final AtomicLong latest = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        public void record(long nanos) {
+            final var lag = Math.max(0, nanos);
+            latest.set(lag);
+            max.accumulateAndGet(lag, Math::max);
+        }
+    }
+}
@@ -4,12 +4,18 @@ import org.javamoney.moneta.Money;
 
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 public class Account {
 
+    private static final int SUB_BALANCE_STRIDE = 8;
+
     private volatile UUID uuid;
     private volatile String name;
-    private volatile Money money;
+    private volatile int currency = Currencies.UNDEFINED;
+    private volatile long minorUnits;
+    private volatile long lsn;
+    private volatile AtomicLongArray subBalances;
 
     public UUID getId() {
         return uuid;
@@ -30,25 +36,106 @@ public class Account {
     }
 
     public Money getMoney() {
-        return money;
+        final var currency = this.currency;
+        return currency == Currencies.UNDEFINED ? null : Currencies.toMoney(minorUnits(), currency);
     }
 
     public Account setMoney(Money money) {
-        this.money = money;
+        if (money == null) {
+            return setMoney(Currencies.UNDEFINED, 0);
+        }
+        return setMoney(Currencies.indexOf(money.getCurrency()), Currencies.toMinorUnits(money));
+    }
+
+    public Account setMoney(int currency, long minorUnits) {
+        final var subBalances = this.subBalances;
+        if (subBalances != null) {
+            for (int i = 0; i < subBalances.length(); i += SUB_BALANCE_STRIDE) {
+                subBalances.set(i, 0);
+            }
+        }
+        this.minorUnits = minorUnits;
+        this.currency = currency;
+        return this;
+    }
+
+    /**
+     * Adds sub-balances that accept credits independently of each other. The balance is the sum
+     * of the main balance and all sub-balances; debits only ever change the main balance.
+     * Every sub-balance sits in its own cache line, so concurrent credits to different
+     * sub-balances do not contend.
+     */
+    public Account split(int count) {
+        if (subBalances == null) {
+            subBalances = new AtomicLongArray(count * SUB_BALANCE_STRIDE);
+        }
+        return this;
+    }
+
+    public int subBalances() {
+        final var subBalances = this.subBalances;
+        return subBalances == null ? 0 : subBalances.length() / SUB_BALANCE_STRIDE;
+    }
+
+    public int currency() {
+        return currency;
+    }
+
+    public long minorUnits() {
+        var total = minorUnits;
+        final var subBalances = this.subBalances;
+        if (subBalances != null) {
+            for (int i = 0; i < subBalances.length(); i += SUB_BALANCE_STRIDE) {
+                total += subBalances.get(i);
+            }
+        }
+        return total;
+    }
+
+    public long lsn() {
+        return lsn;
+    }
+
+    public Account lsn(long lsn) {
+        this.lsn = lsn;
         return this;
     }
 
     public boolean checkMoneyAvailability(Money money) {
-        return this.money.isGreaterThan(money);
+        return checkMoneyAvailability(Currencies.toMinorUnits(money));
+    }
+
+    public boolean checkMoneyAvailability(long minorUnits) {
+        return minorUnits() > minorUnits;
     }
 
     public Account withdrawMoney(Money money) {
-        setMoney(this.money.subtract(money));
+        return withdrawMoney(Currencies.toMinorUnits(money));
+    }
+
+    public Account withdrawMoney(long minorUnits) {
+        this.minorUnits = Math.subtractExact(this.minorUnits, minorUnits);
         return this;
     }
 
     public Account acceptMoney(Money money) {
-        setMoney(this.money.add(money));
+        return acceptMoney(Currencies.toMinorUnits(money));
+    }
+
+    public Account acceptMoney(long minorUnits) {
+        this.minorUnits = Math.addExact(this.minorUnits, minorUnits);
+        return this;
+    }
+
+    /**
+     * Credits the given sub-balance, or the main balance if the account is not split.
+     */
+    public Account acceptMoney(long minorUnits, int subBalance) {
+        final var subBalances = this.subBalances;
+        if (subBalances == null) {
+            return acceptMoney(minorUnits);
+        }
+        subBalances.addAndGet(subBalance * SUB_BALANCE_STRIDE, minorUnits);
         return this;
     }
 
@@ -57,13 +144,14 @@ public class Account {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Account account = (Account) o;
-        return Objects.equals(uuid, account.uuid) &&
-                Objects.equals(name, account.name) &&
-                Objects.equals(money, account.money);
+        return currency == account.currency &&
+                minorUnits() == account.minorUnits() &&
+                Objects.equals(uuid, account.uuid) &&
+                Objects.equals(name, account.name);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(uuid, name, money);
+        return Objects.hash(uuid, name, currency, minorUnits());
     }
-}
\ No newline at end of file
+}
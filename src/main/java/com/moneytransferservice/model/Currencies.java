@@ -0,0 +1,77 @@
+package com.moneytransferservice.model;
+
+import org.javamoney.moneta.Money;
+
+import javax.money.CurrencyUnit;
+import javax.money.Monetary;
+import javax.money.MonetaryAmount;
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fixed table of the currencies known to JavaMoney, used to keep balances as a {@code long}
+ * count of minor units plus a currency index instead of {@link Money} instances.
+ */
+public final class Currencies {
+
+    public static final int UNDEFINED = -1;
+
+    private static final CurrencyUnit[] UNITS;
+    private static final int[] FRACTION_DIGITS;
+    private static final Map<String, Integer> INDEXES = new HashMap<>();
+
+    static {
+        UNITS = Monetary.getCurrencies().stream()
+                .sorted(Comparator.comparing(CurrencyUnit::getCurrencyCode))
+                .toArray(CurrencyUnit[]::new);
+        FRACTION_DIGITS = new int[UNITS.length];
+        for (int i = 0; i < UNITS.length; i++) {
+            FRACTION_DIGITS[i] = Math.max(UNITS[i].getDefaultFractionDigits(), 0);
+            INDEXES.put(UNITS[i].getCurrencyCode(), i);
+        }
+    }
+
+    private Currencies() {
+    }
+
+    public static int count() {
+        return UNITS.length;
+    }
+
+    public static int indexOf(CurrencyUnit unit) {
+        return indexOf(unit.getCurrencyCode());
+    }
+
+    public static int indexOf(String currencyCode) {
+        final var index = INDEXES.get(currencyCode);
+        if (index == null) {
+            throw new IllegalArgumentException("Unknown currency " + currencyCode);
+        }
+        return index;
+    }
+
+    public static CurrencyUnit unitOf(int index) {
+        return UNITS[index];
+    }
+
+    public static int fractionDigits(int index) {
+        return FRACTION_DIGITS[index];
+    }
+
+    public static long toMinorUnits(MonetaryAmount amount) {
+        final var index = indexOf(amount.getCurrency());
+        try {
+            return amount.getNumber().numberValue(BigDecimal.class)
+                    .movePointRight(FRACTION_DIGITS[index])
+                    .longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount " + amount + " does not fit into minor units", e);
+        }
+    }
+
+    public static Money toMoney(long minorUnits, int index) {
+        return Money.of(BigDecimal.valueOf(minorUnits, FRACTION_DIGITS[index]), UNITS[index]);
+    }
+}
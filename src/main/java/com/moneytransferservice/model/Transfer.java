@@ -10,7 +10,11 @@ public class Transfer {
     private UUID uuid;
     private UUID fromAccount;
     private UUID toAccount;
-    private Money amount;
+    private int currency = Currencies.UNDEFINED;
+    private long minorUnits;
+    private long debited;
+    private long credited;
+    private long lsn;
 
     public UUID getId() {
         return uuid;
@@ -40,11 +44,71 @@ public class Transfer {
     }
 
     public Money getAmount() {
-        return amount;
+        return currency == Currencies.UNDEFINED ? null : Currencies.toMoney(minorUnits, currency);
     }
 
     public Transfer setAmount(Money amount) {
-        this.amount = amount;
+        if (amount == null) {
+            return setAmount(Currencies.UNDEFINED, 0);
+        }
+        return setAmount(Currencies.indexOf(amount.getCurrency()), Currencies.toMinorUnits(amount));
+    }
+
+    /**
+     * Also resets the debited and credited amounts to the amount itself.
+     */
+    public Transfer setAmount(int currency, long minorUnits) {
+        this.minorUnits = minorUnits;
+        this.currency = currency;
+        this.debited = minorUnits;
+        this.credited = minorUnits;
+        return this;
+    }
+
+    public int currency() {
+        return currency;
+    }
+
+    public long minorUnits() {
+        return minorUnits;
+    }
+
+    /**
+     * @return the minor units taken from the sender, in the currency of the sender
+     */
+    public long debited() {
+        return debited;
+    }
+
+    /**
+     * @return the minor units given to the recipient, in the currency of the recipient
+     */
+    public long credited() {
+        return credited;
+    }
+
+    /**
+     * Records the amount converted into the currencies of both accounts.
+     */
+    public Transfer settle(long debited, long credited) {
+        this.debited = debited;
+        this.credited = credited;
+        return this;
+    }
+
+    /**
+     * @return whether an account was debited or credited a converted amount
+     */
+    public boolean converted() {
+        return debited != minorUnits || credited != minorUnits;
+    }
+
+    public long lsn() {
+        return lsn;
+    }
+
+    public Transfer lsn(long lsn) {
+        this.lsn = lsn;
         return this;
     }
 
@@ -53,14 +117,17 @@ public class Transfer {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Transfer transfer = (Transfer) o;
-        return Objects.equals(uuid, transfer.uuid) &&
+        return currency == transfer.currency &&
+                minorUnits == transfer.minorUnits &&
+                debited == transfer.debited &&
+                credited == transfer.credited &&
+                Objects.equals(uuid, transfer.uuid) &&
                 Objects.equals(fromAccount, transfer.fromAccount) &&
-                Objects.equals(toAccount, transfer.toAccount) &&
-                Objects.equals(amount, transfer.amount);
+                Objects.equals(toAccount, transfer.toAccount);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(uuid, fromAccount, toAccount, amount);
+        return Objects.hash(uuid, fromAccount, toAccount, currency, minorUnits);
     }
-}
\ No newline at end of file
+}
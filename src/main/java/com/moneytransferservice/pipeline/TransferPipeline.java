@@ -0,0 +1,157 @@
+package com.moneytransferservice.pipeline;
+
+import com.moneytransferservice.idempotency.IdempotencyCache;
+import com.moneytransferservice.ledger.Ledger;
+import com.moneytransferservice.ledger.TransferResult;
+import com.moneytransferservice.model.Transfer;
+import com.moneytransferservice.repository.IdGenerator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Commits transfers asynchronously on a dedicated thread.
+ * <p>
+ * A submitted transfer gets its id up front and waits in a bounded queue. The pipeline thread
+ * drains up to {@code batchSize} queued transfers at a time and commits them as one best-effort
+ * {@link Ledger#commitAll batch}, so a burst of transfers shares the lock acquisitions and the
+ * journal group commit while the submitters never wait for either. A full queue refuses new
+ * transfers right away instead of making every queued transfer wait longer.
+ * <p>
+ * Outcomes are remembered by transfer id for a bounded time and complete once the transfer is
+ * durable.
+ */
+public class TransferPipeline implements AutoCloseable {
+
+    public static final int DEFAULT_QUEUE_SIZE = 65_536;
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    private final Ledger ledger;
+    private final BlockingQueue<Submission> queue;
+    private final int batchSize;
+    private final IdempotencyCache<TransferResult> outcomes = new IdempotencyCache<>();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final Thread committer;
+    private volatile boolean closed;
+
+    public TransferPipeline(Ledger ledger) {
+        this(ledger, DEFAULT_QUEUE_SIZE, DEFAULT_BATCH_SIZE);
+    }
+
+    public TransferPipeline(Ledger ledger, int queueSize, int batchSize) {
+        if (queueSize <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Transfer queue size and batch size must be positive");
+        }
+        this.ledger = ledger;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.batchSize = batchSize;
+        this.committer = new Thread(this::commitLoop, "transfer-pipeline");
+        this.committer.setDaemon(true);
+    }
+
+    /**
+     * Assigns the transfer an id and queues it for commit.
+     *
+     * @return the outcome, which completes once the transfer is durable, or {@code null} if the
+     * queue is full and the transfer was not accepted
+     */
+    public CompletableFuture<TransferResult> submit(Transfer transfer) {
+        if (transfer.getFromAccount() == null || transfer.getToAccount() == null) {
+            throw new IllegalArgumentException("Account id must be specified");
+        }
+        if (closed) {
+            throw new IllegalStateException("Transfer pipeline is closed");
+        }
+        if (!started.get() && started.compareAndSet(false, true)) {
+            committer.start();
+        }
+        final var uuid = IdGenerator.TIME_ORDERED.next();
+        final var submission = new Submission(transfer.setId(uuid));
+        outcomes.putIfAbsent(uuid.toString(), null, submission.outcome);
+        if (!queue.offer(submission)) {
+            outcomes.remove(uuid.toString(), submission.outcome);
+            transfer.setId(null);
+            return null;
+        }
+        return submission.outcome;
+    }
+
+    /**
+     * @return the outcome of a recently submitted transfer, which completes once the transfer is
+     * durable, or {@code null} if the transfer is unknown or was submitted too long ago
+     */
+    public CompletableFuture<TransferResult> outcome(UUID uuid) {
+        final var entry = outcomes.get(uuid.toString());
+        return entry == null ? null : entry.outcome();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (!started.get()) {
+            return;
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void commitLoop() {
+        final List<Submission> batch = new ArrayList<>(batchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                final var first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            commit(List.copyOf(batch));
+            batch.clear();
+        }
+    }
+
+    private void commit(List<Submission> batch) {
+        final var transfers = new ArrayList<Transfer>(batch.size());
+        for (Submission submission : batch) {
+            transfers.add(submission.transfer);
+        }
+        try {
+            ledger.commitAll(transfers, false).whenComplete((results, error) -> {
+                for (int i = 0; i < batch.size(); i++) {
+                    if (error != null) {
+                        batch.get(i).outcome.completeExceptionally(error);
+                    } else {
+                        batch.get(i).outcome.complete(results.get(i));
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            for (Submission submission : batch) {
+                submission.outcome.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static final class Submission {
+
+        private final Transfer transfer;
+        private final CompletableFuture<TransferResult> outcome = new CompletableFuture<>();
+
+        private Submission(Transfer transfer) {
+            this.transfer = transfer;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.moneytransferservice.repository;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Read-through cache in front of a slower repository, e.g. one that persists to disk or lives
+ * on another host.
+ * <p>
+ * A miss loads the value from the backing repository and keeps the loaded instance, so the
+ * callers of a cached value share and mutate one instance. Writes go to the backing repository
+ * while the entry of the key is locked, so a concurrent load never caches a value older than the
+ * write: {@link #modified} writes the value through and keeps it cached, {@link #update} and
+ * {@link #delete} write through and drop the cached value. Scans are served by the backing
+ * repository.
+ * <p>
+ * At most {@code capacity} values are cached. Eviction follows TinyLFU: a count-min sketch
+ * estimates how often every key was accessed recently, and a newly loaded value only takes the
+ * place of the least recently used one if it is estimated to be accessed more often. The sketch
+ * halves its counters every {@code 10 * capacity} accesses, so that it follows a changing
+ * workload. The eviction policy is guarded by a lock that hits only try to take, so under
+ * contention some hits go unrecorded rather than wait.
+ */
+public class CachingRepository<V> implements Repository<V> {
+
+    private final Repository<V> backing;
+    private final int capacity;
+    private final ConcurrentHashMap<UUID, V> values = new ConcurrentHashMap<>();
+    private final ReentrantLock policyLock = new ReentrantLock();
+    private final LinkedHashMap<UUID, Boolean> recency = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CachingRepository(Repository<V> backing, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be positive");
+        }
+        this.backing = backing;
+        this.capacity = capacity;
+        this.sketch = new FrequencySketch(capacity);
+    }
+
+    @Override
+    public UUID create(V v) {
+        return backing.create(v);
+    }
+
+    @Override
+    public V get(UUID uuid) {
+        final var cached = values.get(uuid);
+        if (cached != null) {
+            hits.increment();
+            if (policyLock.tryLock()) {
+                try {
+                    sketch.increment(uuid);
+                    recency.get(uuid);
+                } finally {
+                    policyLock.unlock();
+                }
+            }
+            return cached;
+        }
+        misses.increment();
+        final var loaded = values.computeIfAbsent(uuid, backing::get);
+        if (loaded != null) {
+            admit(uuid);
+        }
+        return loaded;
+    }
+
+    /**
+     * Neither loads the value nor counts as an access.
+     */
+    @Override
+    public boolean isLoaded(UUID uuid) {
+        return values.containsKey(uuid);
+    }
+
+    @Override
+    public Optional<List<V>> readAll() {
+        return backing.readAll();
+    }
+
+    @Override
+    public List<V> readPage(UUID after, int limit) {
+        return backing.readPage(after, limit);
+    }
+
+    @Override
+    public Iterator<V> iterator() {
+        return backing.iterator();
+    }
+
+    @Override
+    public void forEach(Consumer<V> consumer) {
+        backing.forEach(consumer);
+    }
+
+    @Override
+    public void update(UUID uuid, V v) {
+        values.compute(uuid, (key, cached) -> {
+            backing.update(uuid, v);
+            return null;
+        });
+        forget(uuid);
+    }
+
+    @Override
+    public void delete(UUID uuid) {
+        values.compute(uuid, (key, cached) -> {
+            backing.delete(uuid);
+            return null;
+        });
+        forget(uuid);
+    }
+
+    @Override
+    public void modified(UUID uuid, V v) {
+        values.compute(uuid, (key, cached) -> {
+            backing.modified(uuid, v);
+            return cached == null ? null : v;
+        });
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    private void admit(UUID uuid) {
+        policyLock.lock();
+        try {
+            sketch.increment(uuid);
+            recency.put(uuid, Boolean.TRUE);
+            if (recency.size() <= capacity) {
+                return;
+            }
+            final var victim = recency.keySet().iterator().next();
+            evict(sketch.frequency(uuid) > sketch.frequency(victim) ? victim : uuid);
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    private void evict(UUID uuid) {
+        recency.remove(uuid);
+        values.remove(uuid);
+        evictions.increment();
+    }
+
+    private void forget(UUID uuid) {
+        policyLock.lock();
+        try {
+            recency.remove(uuid);
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters, packed sixteen to a long with one long per cached value.
+     * Every key maps to four counters, one per seed, and its frequency is the smallest of them.
+     */
+    private static final class FrequencySketch {
+
+        private static final long[] SEEDS = {
+                0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L};
+        private static final int MAX_COUNT = 15;
+
+        private final long[] table;
+        private final int shift;
+        private final int sampleSize;
+        private int additions;
+
+        private FrequencySketch(int capacity) {
+            final var size = Math.max(Integer.highestOneBit(Math.min(capacity, 1 << 26) - 1) << 1, 4);
+            this.table = new long[size];
+            this.shift = Long.SIZE - Integer.numberOfTrailingZeros(size * 16);
+            this.sampleSize = capacity <= Integer.MAX_VALUE / 10 ? capacity * 10 : Integer.MAX_VALUE;
+        }
+
+        private int frequency(UUID uuid) {
+            var frequency = MAX_COUNT;
+            for (long seed : SEEDS) {
+                final var index = index(uuid, seed);
+                frequency = Math.min(frequency, (int) (table[index >>> 4] >>> ((index & 15) << 2)) & MAX_COUNT);
+            }
+            return frequency;
+        }
+
+        private void increment(UUID uuid) {
+            var incremented = false;
+            for (long seed : SEEDS) {
+                final var index = index(uuid, seed);
+                final var offset = (index & 15) << 2;
+                if (((table[index >>> 4] >>> offset) & MAX_COUNT) != MAX_COUNT) {
+                    table[index >>> 4] += 1L << offset;
+                    incremented = true;
+                }
+            }
+            if (incremented && ++additions == sampleSize) {
+                halve();
+            }
+        }
+
+        private void halve() {
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (table[i] >>> 1) & 0x7777777777777777L;
+            }
+            additions /= 2;
+        }
+
+        private int index(UUID uuid, long seed) {
+            final var hash = (uuid.getMostSignificantBits() ^ uuid.getLeastSignificantBits()) * seed;
+            return (int) ((hash ^ (hash >>> 32)) * seed >>> shift);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.moneytransferservice.repository;
+
+import java.util.UUID;
+
+/**
+ * Source of the ids repositories assign to new values.
+ */
+@FunctionalInterface
+public interface IdGenerator {
+
+    /**
+     * Random version 4 ids of {@link UUID#randomUUID}, all drawn from one shared
+     * {@link java.security.SecureRandom}.
+     */
+    IdGenerator RANDOM = UUID::randomUUID;
+
+    /**
+     * Time ordered version 7 ids generated without any shared state.
+     */
+    IdGenerator TIME_ORDERED = new TimeOrderedIdGenerator();
+
+    UUID next();
+}
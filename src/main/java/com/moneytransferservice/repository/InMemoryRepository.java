@@ -0,0 +1,71 @@
+package com.moneytransferservice.repository;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Repository that keeps the values themselves on the heap, in a {@link UuidMap}.
+ */
+public class InMemoryRepository<V> implements Repository<V> {
+
+    private final UuidMap<V> map = new UuidMap<>();
+    private final IdGenerator idGenerator;
+
+    public InMemoryRepository() {
+        this(IdGenerator.TIME_ORDERED);
+    }
+
+    public InMemoryRepository(IdGenerator idGenerator) {
+        this.idGenerator = idGenerator;
+    }
+
+    @Override
+    public UUID create(V v) {
+        final var uuid = idGenerator.next();
+        map.put(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), v);
+        return uuid;
+    }
+
+    @Override
+    public V get(UUID uuid) {
+        return map.get(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    @Override
+    public Optional<List<V>> readAll() {
+        final var values = new LinkedList<V>();
+        map.values().forEachRemaining(values::add);
+        return Optional.of(values);
+    }
+
+    /**
+     * Pages through the values in the order of the hashes of their ids, which is stable while
+     * values are added and removed, so pages need no index besides the map.
+     */
+    @Override
+    public List<V> readPage(UUID after, int limit) {
+        return after == null
+                ? map.page(false, 0, 0, limit)
+                : map.page(true, after.getMostSignificantBits(), after.getLeastSignificantBits(), limit);
+    }
+
+    @Override
+    public Iterator<V> iterator() {
+        return map.values();
+    }
+
+    @Override
+    public void forEach(Consumer<V> consumer) {
+        map.values().forEachRemaining(consumer);
+    }
+
+    @Override
+    public void update(UUID uuid, V v) {
+        map.put(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), v);
+    }
+
+    @Override
+    public void delete(UUID uuid) {
+        map.remove(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+}
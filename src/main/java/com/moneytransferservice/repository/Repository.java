@@ -1,31 +1,65 @@
 package com.moneytransferservice.repository;
 
-import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
 
-public class Repository<V> {
+/**
+ * Store of values keyed by UUID. Implementations must be safe for concurrent use.
+ */
+public interface Repository<V> {
 
-    private final Map<UUID, V> mapRepository = new ConcurrentHashMap<>();
+    /**
+     * Stores the value under a new id.
+     *
+     * @return the id
+     */
+    UUID create(V v);
 
-    public UUID create(V v) {
-        final var uuid = UUID.randomUUID();
-        mapRepository.put(uuid, v);
-        return uuid;
+    default Optional<V> read(UUID uuid) {
+        return Optional.ofNullable(get(uuid));
     }
 
-    public Optional<V> read(UUID uuid) {
-        return Optional.ofNullable(mapRepository.get(uuid));
-    }
+    /**
+     * Same as {@link #read} without wrapping the value, for lookups on the hot path.
+     *
+     * @return the value or {@code null} if there is none
+     */
+    V get(UUID uuid);
 
-    public Optional<List<V>> readAll() {
-        return Optional.of(new LinkedList<>(mapRepository.values()));
+    /**
+     * @return whether {@link #get} finds the value, or its absence, without waiting for slower
+     * storage
+     */
+    default boolean isLoaded(UUID uuid) {
+        return true;
     }
 
-    public void update(UUID uuid, V v) {
-        mapRepository.put(uuid, v);
+    Optional<List<V>> readAll();
+
+    /**
+     * @return up to {@code limit} values following the one with the given id in an order of the
+     * implementation's choosing, starting from the first value if {@code after} is {@code null}
+     */
+    List<V> readPage(UUID after, int limit);
+
+    Iterator<V> iterator();
+
+    default void forEach(Consumer<V> consumer) {
+        iterator().forEachRemaining(consumer);
     }
 
-    public void delete(UUID uuid) {
-        mapRepository.remove(uuid);
+    void update(UUID uuid, V v);
+
+    void delete(UUID uuid);
+
+    /**
+     * Tells the repository that a value it returned was mutated in place, so that a repository
+     * which does not hand out the stored instance itself can write it back. The in-memory
+     * repository stores the instance itself and has nothing to do.
+     */
+    default void modified(UUID uuid, V v) {
     }
 }
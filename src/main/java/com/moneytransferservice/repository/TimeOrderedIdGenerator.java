@@ -0,0 +1,63 @@
+package com.moneytransferservice.repository;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Generates version 7 UUIDs: a 48 bit Unix millisecond timestamp, a 12 bit counter and 62 bits
+ * identifying the generating thread.
+ * <p>
+ * Every thread draws its 62 bits from a {@link SecureRandom} once and keeps its own timestamp
+ * and counter, so generating an id touches no shared state. Ids of one thread strictly increase:
+ * the counter orders ids within a millisecond, a thread that exhausts it borrows the next
+ * millisecond, and a clock that goes backwards is ignored until it catches up again. Ids of
+ * different threads differ in their thread bits, which collide with negligible probability.
+ */
+final class TimeOrderedIdGenerator implements IdGenerator {
+
+    private static final int COUNTER_BITS = 12;
+    private static final int MAX_COUNTER = (1 << COUNTER_BITS) - 1;
+    private static final long VERSION = 7L << COUNTER_BITS;
+    private static final long VARIANT = 0x8000_0000_0000_0000L;
+    private static final long NODE_MASK = 0x3FFF_FFFF_FFFF_FFFFL;
+    private static final SecureRandom SEEDS = new SecureRandom();
+
+    private final LongSupplier clock;
+    private final ThreadLocal<State> states = ThreadLocal.withInitial(State::new);
+
+    TimeOrderedIdGenerator() {
+        this(System::currentTimeMillis);
+    }
+
+    TimeOrderedIdGenerator(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public UUID next() {
+        final var state = states.get();
+        final var now = clock.getAsLong();
+        if (now > state.millis) {
+            state.millis = now;
+            state.counter = 0;
+        } else if (state.counter < MAX_COUNTER) {
+            state.counter++;
+        } else {
+            state.millis++;
+            state.counter = 0;
+        }
+        return new UUID(state.millis << 16 | VERSION | state.counter, state.node);
+    }
+
+    private static final class State {
+
+        private final long node;
+        private long millis = Long.MIN_VALUE;
+        private int counter;
+
+        private State() {
+            node = VARIANT | (SEEDS.nextLong() & NODE_MASK);
+        }
+    }
+}
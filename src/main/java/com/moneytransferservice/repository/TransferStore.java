@@ -0,0 +1,271 @@
+package com.moneytransferservice.repository;
+
+import com.moneytransferservice.model.Transfer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Consumer;
+
+/**
+ * Append-only transfer store that keeps its records off the heap in fixed-width columns.
+ * <p>
+ * Transfers are addressed by sequence number, the order they were appended in. Records live in
+ * chunks of {@value #CHUNK_SIZE}, each one direct buffer holding a column per field: the transfer
+ * id, both account ids, the amount in minor units, the lsn, the debited and credited amounts and
+ * the currency, 82 bytes per transfer. The heap only holds the chunk table and an open
+ * addressing table from transfer id to sequence number with 4 bytes per slot, neither of which
+ * the garbage collector has to trace.
+ * <p>
+ * Transfers are never deleted. Writes are serialized. Reads take no lock: a record is written
+ * before the size or the table slot that makes it visible is published. Putting a transfer under
+ * an id that is already stored overwrites its record in place, which only recovery does, before
+ * the store is shared.
+ */
+public class TransferStore {
+
+    static final int CHUNK_SIZE = 1 << 16;
+
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int CHUNK_SHIFT = Integer.numberOfTrailingZeros(CHUNK_SIZE);
+    private static final int ID_MOST = 0;
+    private static final int ID_LEAST = 1;
+    private static final int FROM_MOST = 2;
+    private static final int FROM_LEAST = 3;
+    private static final int TO_MOST = 4;
+    private static final int TO_LEAST = 5;
+    private static final int MINOR_UNITS = 6;
+    private static final int LSN = 7;
+    private static final int DEBITED = 8;
+    private static final int CREDITED = 9;
+    private static final int LONG_COLUMNS = 10;
+    private static final int CURRENCY_OFFSET = LONG_COLUMNS * Long.BYTES * CHUNK_SIZE;
+    private static final int CHUNK_BYTES = CURRENCY_OFFSET + Short.BYTES * CHUNK_SIZE;
+    private static final int INITIAL_SLOTS = 1 << 10;
+    private static final int MAX_SLOTS = 1 << 30;
+
+    private final IdGenerator idGenerator;
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+    private volatile AtomicIntegerArray slots = new AtomicIntegerArray(INITIAL_SLOTS);
+    private volatile int size;
+
+    public TransferStore() {
+        this(IdGenerator.TIME_ORDERED);
+    }
+
+    public TransferStore(IdGenerator idGenerator) {
+        this.idGenerator = idGenerator;
+    }
+
+    /**
+     * Appends the transfer under a new id.
+     *
+     * @return the id
+     */
+    public synchronized UUID append(Transfer transfer) {
+        final var uuid = idGenerator.next();
+        append(uuid, transfer);
+        return uuid;
+    }
+
+    /**
+     * @return the transfer or {@code null} if there is none
+     */
+    public Transfer get(UUID uuid) {
+        final var sequence = find(slots, uuid);
+        return sequence < 0 ? null : read(sequence);
+    }
+
+    /**
+     * @return the transfer appended {@code sequence} transfers after the first one
+     */
+    public Transfer read(int sequence) {
+        if (sequence < 0 || sequence >= size) {
+            throw new IndexOutOfBoundsException("No transfer with sequence number " + sequence);
+        }
+        final var chunk = chunks[sequence >>> CHUNK_SHIFT];
+        final var offset = sequence & CHUNK_MASK;
+        return new Transfer()
+                .setId(new UUID(get(chunk, ID_MOST, offset), get(chunk, ID_LEAST, offset)))
+                .setFromAccount(new UUID(get(chunk, FROM_MOST, offset), get(chunk, FROM_LEAST, offset)))
+                .setToAccount(new UUID(get(chunk, TO_MOST, offset), get(chunk, TO_LEAST, offset)))
+                .setAmount(chunk.getShort(CURRENCY_OFFSET + offset * Short.BYTES), get(chunk, MINOR_UNITS, offset))
+                .settle(get(chunk, DEBITED, offset), get(chunk, CREDITED, offset))
+                .lsn(get(chunk, LSN, offset));
+    }
+
+    public Optional<Transfer> read(UUID uuid) {
+        return Optional.ofNullable(get(uuid));
+    }
+
+    public List<Transfer> readAll() {
+        final var count = size;
+        final var transfers = new ArrayList<Transfer>(count);
+        for (int i = 0; i < count; i++) {
+            transfers.add(read(i));
+        }
+        return transfers;
+    }
+
+    /**
+     * Pages through the transfers in the order they were appended.
+     */
+    public List<Transfer> readPage(UUID after, int limit) {
+        final var previous = after == null ? -1 : find(slots, after);
+        if (after != null && previous < 0) {
+            return List.of();
+        }
+        final var start = previous + 1;
+        final var end = (int) Math.min(size, (long) start + limit);
+        final var page = new ArrayList<Transfer>(Math.max(end - start, 0));
+        for (int i = start; i < end; i++) {
+            page.add(read(i));
+        }
+        return page;
+    }
+
+    public Iterator<Transfer> iterator() {
+        final var count = size;
+        return new Iterator<>() {
+
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public Transfer next() {
+                if (next >= count) {
+                    throw new NoSuchElementException();
+                }
+                return read(next++);
+            }
+        };
+    }
+
+    public void forEach(Consumer<Transfer> consumer) {
+        final var count = size;
+        for (int i = 0; i < count; i++) {
+            consumer.accept(read(i));
+        }
+    }
+
+    /**
+     * Appends the transfer under the given id, or overwrites the transfer stored under it.
+     */
+    public synchronized void put(UUID uuid, Transfer transfer) {
+        final var sequence = find(slots, uuid);
+        if (sequence < 0) {
+            append(uuid, transfer);
+        } else {
+            write(sequence, uuid, transfer);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void append(UUID uuid, Transfer transfer) {
+        final var sequence = size;
+        if (sequence == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Transfer store is full");
+        }
+        if (sequence >>> CHUNK_SHIFT == chunks.length) {
+            final var grown = Arrays.copyOf(chunks, chunks.length + 1);
+            grown[chunks.length] = ByteBuffer.allocateDirect(CHUNK_BYTES);
+            chunks = grown;
+        }
+        write(sequence, uuid, transfer);
+        size = sequence + 1;
+        if ((sequence + 1L) * 4 > slots.length() * 3L) {
+            resize();
+        }
+        insert(slots, uuid, sequence);
+    }
+
+    private void write(int sequence, UUID uuid, Transfer transfer) {
+        final var chunk = chunks[sequence >>> CHUNK_SHIFT];
+        final var offset = sequence & CHUNK_MASK;
+        put(chunk, ID_MOST, offset, uuid.getMostSignificantBits());
+        put(chunk, ID_LEAST, offset, uuid.getLeastSignificantBits());
+        put(chunk, FROM_MOST, offset, transfer.getFromAccount().getMostSignificantBits());
+        put(chunk, FROM_LEAST, offset, transfer.getFromAccount().getLeastSignificantBits());
+        put(chunk, TO_MOST, offset, transfer.getToAccount().getMostSignificantBits());
+        put(chunk, TO_LEAST, offset, transfer.getToAccount().getLeastSignificantBits());
+        put(chunk, MINOR_UNITS, offset, transfer.minorUnits());
+        put(chunk, LSN, offset, transfer.lsn());
+        put(chunk, DEBITED, offset, transfer.debited());
+        put(chunk, CREDITED, offset, transfer.credited());
+        chunk.putShort(CURRENCY_OFFSET + offset * Short.BYTES, (short) transfer.currency());
+    }
+
+    private void resize() {
+        final var current = slots;
+        if (current.length() == MAX_SLOTS) {
+            throw new IllegalStateException("Transfer store is full");
+        }
+        final var grown = new AtomicIntegerArray(current.length() * 2);
+        for (int i = 0; i < current.length(); i++) {
+            final var slot = current.get(i);
+            if (slot != 0) {
+                final var sequence = slot - 1;
+                final var chunk = chunks[sequence >>> CHUNK_SHIFT];
+                final var offset = sequence & CHUNK_MASK;
+                insert(grown, new UUID(get(chunk, ID_MOST, offset), get(chunk, ID_LEAST, offset)), sequence);
+            }
+        }
+        slots = grown;
+    }
+
+    /**
+     * Slots hold the sequence number plus one, so that zero marks an empty slot.
+     */
+    private static void insert(AtomicIntegerArray table, UUID uuid, int sequence) {
+        final var mask = table.length() - 1;
+        var index = hash(uuid) & mask;
+        while (table.get(index) != 0) {
+            index = (index + 1) & mask;
+        }
+        table.lazySet(index, sequence + 1);
+    }
+
+    private int find(AtomicIntegerArray table, UUID uuid) {
+        final var mask = table.length() - 1;
+        final var most = uuid.getMostSignificantBits();
+        final var least = uuid.getLeastSignificantBits();
+        for (int index = hash(uuid) & mask; ; index = (index + 1) & mask) {
+            final var slot = table.get(index);
+            if (slot == 0) {
+                return -1;
+            }
+            final var sequence = slot - 1;
+            final var chunk = chunks[sequence >>> CHUNK_SHIFT];
+            final var offset = sequence & CHUNK_MASK;
+            if (get(chunk, ID_LEAST, offset) == least && get(chunk, ID_MOST, offset) == most) {
+                return sequence;
+            }
+        }
+    }
+
+    private static int hash(UUID uuid) {
+        final var hash = uuid.hashCode() * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static long get(ByteBuffer chunk, int column, int offset) {
+        return chunk.getLong((column * CHUNK_SIZE + offset) * Long.BYTES);
+    }
+
+    private static void put(ByteBuffer chunk, int column, int offset, long value) {
+        chunk.putLong((column * CHUNK_SIZE + offset) * Long.BYTES, value);
+    }
+}
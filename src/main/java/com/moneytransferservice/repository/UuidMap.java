@@ -0,0 +1,369 @@
+package com.moneytransferservice.repository;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrent open addressing hash map keyed by the two longs of a UUID.
+ * <p>
+ * Keys are stored inline as pairs of longs next to an array of values, so an entry costs no
+ * objects but the value itself. The map is split into {@value #SEGMENTS} segments by the top bits
+ * of a mixed hash, each a linear probing table guarded by its own lock for writes. Reads take no
+ * lock: a key is written before the value that makes its slot visible is published, and a slot
+ * never changes its key, so a reader that finds a value next to its key has found the right
+ * value. Removal therefore leaves a tombstone behind, which the next resize of the segment drops.
+ * <p>
+ * Ids may be chosen by clients, so the hash is keyed with a random seed per map, which keeps
+ * colliding ids from being computed up front, and a segment that would exceed
+ * {@value #MAX_BUCKETS} slots rejects new keys instead of growing further.
+ * <p>
+ * Within a segment the home slot of a key grows with its hash, so the entries of a segment are
+ * in hash order between empty slots, except for those that wrapped around from the end of the
+ * table into its first slots. That gives the entries a total order by hash, stable for the
+ * lifetime of the map and through resizes, which is what {@link #page} uses to continue after
+ * a key, deleted or not.
+ */
+final class UuidMap<V> {
+
+    private static final int SEGMENT_BITS = 6;
+    private static final int SEGMENTS = 1 << SEGMENT_BITS;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int MAX_BUCKETS = 1 << 26;
+    private static final Object TOMBSTONE = new Object();
+    private static final SecureRandom SEEDS = new SecureRandom();
+    private static final Comparator<Entry> ORDER = (left, right) -> compare(
+            left.hash, left.most, left.least, right.hash, right.most, right.least);
+
+    private final long seed = SEEDS.nextLong();
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    UuidMap() {
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(seed);
+        }
+    }
+
+    V get(long most, long least) {
+        final var hash = hash(seed, most, least);
+        final var table = segment(hash).table;
+        for (int slot = table.home(hash), probes = 0; probes < table.buckets; slot = table.next(slot), probes++) {
+            final var value = table.values.get(slot);
+            if (value == null) {
+                return null;
+            }
+            if (table.keys[slot * 2] == most && table.keys[slot * 2 + 1] == least) {
+                return value == TOMBSTONE ? null : cast(value);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the value previously stored under the key, or {@code null} if there was none
+     * @throws IllegalStateException if the key is new and its segment is full
+     */
+    V put(long most, long least, V value) {
+        final var hash = hash(seed, most, least);
+        final var segment = segment(hash);
+        segment.lock.lock();
+        try {
+            return cast(segment.put(hash, most, least, value));
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    void remove(long most, long least) {
+        final var hash = hash(seed, most, least);
+        final var segment = segment(hash);
+        segment.lock.lock();
+        try {
+            final var table = segment.table;
+            final var slot = table.find(hash, most, least);
+            if (slot >= 0 && table.values.get(slot) != TOMBSTONE) {
+                table.values.set(slot, TOMBSTONE);
+                segment.size--;
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    int size() {
+        var size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    /**
+     * Reads the slots without a lock, like {@link #get}, so values put or removed meanwhile may or
+     * may not be seen.
+     *
+     * @return up to {@code limit} values of the keys that follow the given key in hash order,
+     * starting from the first key if {@code after} is {@code false}
+     */
+    List<V> page(boolean after, long most, long least, int limit) {
+        final var hash = after ? hash(seed, most, least) : 0;
+        final var firstSegment = after ? (int) (hash >>> (Long.SIZE - SEGMENT_BITS)) : 0;
+        final var candidates = new ArrayList<Entry>();
+        for (int index = firstSegment; index < SEGMENTS; index++) {
+            final var table = segments[index].table;
+            final var bounded = after && index == firstSegment;
+            // keys that wrapped around sort last, so the keys in their home order come first
+            var complete = true;
+            for (int slot = bounded ? table.home(hash) : 0; slot < table.buckets; slot++) {
+                final var value = table.values.get(slot);
+                if (value == null) {
+                    if (candidates.size() >= limit) {
+                        complete = false;
+                        break;
+                    }
+                } else if (!table.wrapped(slot, seed)) {
+                    collect(candidates, table, slot, value, bounded, hash, most, least);
+                }
+            }
+            Object value;
+            for (int slot = 0; complete && (value = table.values.get(slot)) != null; slot++) {
+                if (table.wrapped(slot, seed)) {
+                    collect(candidates, table, slot, value, bounded, hash, most, least);
+                }
+            }
+            if (candidates.size() >= limit) {
+                return first(candidates, limit);
+            }
+        }
+        return first(candidates, limit);
+    }
+
+    /**
+     * Iterates the values segment by segment, without any order guarantee within a segment.
+     */
+    Iterator<V> values() {
+        return new Iterator<>() {
+
+            private int index;
+            private Table table = segments[0].table;
+            private int slot = -1;
+            private Object next = advance();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public V next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                final var value = next;
+                next = advance();
+                return cast(value);
+            }
+
+            private Object advance() {
+                while (true) {
+                    while (++slot < table.buckets) {
+                        final var value = table.values.get(slot);
+                        if (value != null && value != TOMBSTONE) {
+                            return value;
+                        }
+                    }
+                    if (++index == SEGMENTS) {
+                        return null;
+                    }
+                    table = segments[index].table;
+                    slot = -1;
+                }
+            }
+        };
+    }
+
+    private void collect(List<Entry> candidates, Table table, int slot, Object value,
+                         boolean after, long hash, long most, long least) {
+        final var keyMost = table.keys[slot * 2];
+        final var keyLeast = table.keys[slot * 2 + 1];
+        final var keyHash = hash(seed, keyMost, keyLeast);
+        if (value != TOMBSTONE && (!after || compare(keyHash, keyMost, keyLeast, hash, most, least) > 0)) {
+            candidates.add(new Entry(keyHash, keyMost, keyLeast, value));
+        }
+    }
+
+    private List<V> first(List<Entry> candidates, int limit) {
+        candidates.sort(ORDER);
+        final var values = new ArrayList<V>(Math.min(limit, candidates.size()));
+        for (int i = 0; i < candidates.size() && i < limit; i++) {
+            values.add(cast(candidates.get(i).value));
+        }
+        return values;
+    }
+
+    private Segment segment(long hash) {
+        return segments[(int) (hash >>> (Long.SIZE - SEGMENT_BITS))];
+    }
+
+    /**
+     * Murmur3 finalizer applied to the seeded high half and again after adding the low half, so
+     * that time ordered ids spread as well as random ones and no half passes through linearly.
+     */
+    private static long hash(long seed, long most, long least) {
+        return mix(mix(most ^ seed) + least);
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    private static int compare(long hash, long most, long least,
+                               long otherHash, long otherMost, long otherLeast) {
+        final var byHash = Long.compareUnsigned(hash, otherHash);
+        if (byHash != 0) {
+            return byHash;
+        }
+        final var byMost = Long.compare(most, otherMost);
+        return byMost != 0 ? byMost : Long.compare(least, otherLeast);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V cast(Object value) {
+        return (V) value;
+    }
+
+    private static final class Segment {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final long seed;
+        private volatile Table table = new Table(INITIAL_CAPACITY);
+        private int size;
+        private int used;
+
+        private Segment(long seed) {
+            this.seed = seed;
+        }
+
+        private Object put(long hash, long most, long least, Object value) {
+            var current = table;
+            final var existing = current.find(hash, most, least);
+            if (existing >= 0) {
+                final var previous = current.values.get(existing);
+                current.values.set(existing, value);
+                if (previous == TOMBSTONE) {
+                    size++;
+                    return null;
+                }
+                return previous;
+            }
+            if ((used + 1) * 4 > current.buckets * 3) {
+                final var grow = size * 2 >= current.buckets;
+                if (grow && current.buckets == MAX_BUCKETS) {
+                    throw new IllegalStateException("Map segment is full");
+                }
+                current = resize(current.buckets * (grow ? 2 : 1));
+            }
+            current.insert(hash, most, least, value);
+            size++;
+            used++;
+            return null;
+        }
+
+        private Table resize(int buckets) {
+            final var grown = new Table(buckets);
+            final var current = table;
+            for (int slot = 0; slot < current.buckets; slot++) {
+                final var value = current.values.get(slot);
+                if (value != null && value != TOMBSTONE) {
+                    final var most = current.keys[slot * 2];
+                    final var least = current.keys[slot * 2 + 1];
+                    grown.insert(hash(seed, most, least), most, least, value);
+                }
+            }
+            used = size;
+            table = grown;
+            return grown;
+        }
+    }
+
+    /**
+     * Linear probing table of a power of two {@code buckets} that wraps around at its end. It is
+     * filled to at most three quarters, tombstones included, so every probe ends at an empty slot.
+     */
+    private static final class Table {
+
+        private final int buckets;
+        private final int shift;
+        private final long[] keys;
+        private final AtomicReferenceArray<Object> values;
+
+        private Table(int buckets) {
+            this.buckets = buckets;
+            this.shift = Long.SIZE - Integer.numberOfTrailingZeros(buckets);
+            this.keys = new long[buckets * 2];
+            this.values = new AtomicReferenceArray<>(buckets);
+        }
+
+        private int home(long hash) {
+            return (int) ((hash << SEGMENT_BITS) >>> shift);
+        }
+
+        /**
+         * @return whether the key in the slot wrapped around from a home slot further back
+         */
+        private boolean wrapped(int slot, long seed) {
+            return home(hash(seed, keys[slot * 2], keys[slot * 2 + 1])) > slot;
+        }
+
+        private int next(int slot) {
+            return (slot + 1) & (buckets - 1);
+        }
+
+        private int find(long hash, long most, long least) {
+            for (int slot = home(hash), probes = 0; probes < buckets; slot = next(slot), probes++) {
+                final var value = values.get(slot);
+                if (value == null) {
+                    return -1;
+                }
+                if (keys[slot * 2] == most && keys[slot * 2 + 1] == least) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        private void insert(long hash, long most, long least, Object value) {
+            var slot = home(hash);
+            while (values.get(slot) != null) {
+                slot = next(slot);
+            }
+            keys[slot * 2] = most;
+            keys[slot * 2 + 1] = least;
+            values.set(slot, value);
+        }
+    }
+
+    private static final class Entry {
+
+        private final long hash;
+        private final long most;
+        private final long least;
+        private final Object value;
+
+        private Entry(long hash, long most, long least, Object value) {
+            this.hash = hash;
+            this.most = most;
+            this.least = least;
+            this.value = value;
+        }
+    }
+}
@@ -1,9 +1,26 @@
 package com.moneytransferservice;
 
+import com.moneytransferservice.bulk.AccountArchive;
+import com.moneytransferservice.feed.ChangeFeed;
+import com.moneytransferservice.feed.ChangePublisher;
+import com.moneytransferservice.idempotency.IdempotencyCache;
+import com.moneytransferservice.journal.Journal;
+import com.moneytransferservice.ledger.Ledger;
+import com.moneytransferservice.metrics.Metrics;
 import com.moneytransferservice.model.Account;
 import com.moneytransferservice.model.Transfer;
+import com.moneytransferservice.pipeline.TransferPipeline;
+import com.moneytransferservice.repository.InMemoryRepository;
 import com.moneytransferservice.repository.Repository;
+import com.moneytransferservice.repository.TransferStore;
+import io.netty.buffer.Unpooled;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpVersion;
 import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClientOptions;
 import io.vertx.junit5.VertxExtension;
 import io.vertx.junit5.VertxTestContext;
 import io.vertx.reactivex.core.Vertx;
@@ -17,6 +34,9 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.zalando.jackson.datatype.money.MoneyModule;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -29,7 +49,7 @@ class ApplicationTest {
     private Account testAccount2;
     private Account testAccount3;
     private Repository<Account> testAccountRepository;
-    private Repository<Transfer> testTransferRepository;
+    private TransferStore testTransferRepository;
 
     @BeforeAll
     static void prepare() {
@@ -47,8 +67,8 @@ class ApplicationTest {
         testAccount3 = new Account()
                 .setName("Test Account 3")
                 .setMoney(Money.of(2000, "USD"));
-        testAccountRepository = new Repository<>();
-        testTransferRepository = new Repository<>();
+        testAccountRepository = new InMemoryRepository<>();
+        testTransferRepository = new TransferStore();
         final var uuid = testAccountRepository.create(testAccount);
         final var uuid2 = testAccountRepository.create(testAccount2);
         final var uuid3 = testAccountRepository.create(testAccount3);
@@ -77,6 +97,60 @@ class ApplicationTest {
                                         })))));
     }
 
+    @Test
+    @DisplayName("Test stream all accounts in several chunks")
+    void testStreamAllAccounts(Vertx vertx, VertxTestContext testContext) {
+        for (int i = 0; i < 1000; i++) {
+            final var account = new Account()
+                    .setName("Streamed Account " + i)
+                    .setMoney(Money.of(i, "USD"));
+            account.setId(testAccountRepository.create(account));
+        }
+        WebClient webClient = WebClient.create(vertx);
+        vertx.deployVerticle(new Application(testAccountRepository, testTransferRepository),
+                testContext.succeeding(id ->
+                        webClient.get(8080, "localhost", "/account/")
+                                .as(BodyCodec.jsonArray())
+                                .send(testContext.succeeding(resp ->
+                                        testContext.verify(() -> {
+                                            assertThat(resp.statusCode()).isEqualTo(200);
+                                            assertThat(resp.body().size()).isEqualTo(1003);
+                                            testContext.completeNow();
+                                        })))));
+    }
+
+    @Test
+    @DisplayName("Test read accounts page by page")
+    void testReadAccountPages(Vertx vertx, VertxTestContext testContext) {
+        final var sorted = testAccountRepository.readPage(null, 3);
+        WebClient webClient = WebClient.create(vertx);
+        vertx.deployVerticle(new Application(testAccountRepository, testTransferRepository),
+                testContext.succeeding(id ->
+                        webClient.get(8080, "localhost", "/account/")
+                                .addQueryParam("limit", "2")
+                                .as(BodyCodec.string())
+                                .send(testContext.succeeding(firstPage -> {
+                                    testContext.verify(() -> {
+                                        assertThat(firstPage.statusCode()).isEqualTo(200);
+                                        assertThat(firstPage.body()).isEqualTo(Json.encode(sorted.subList(0, 2)));
+                                        assertThat(firstPage.getHeader("X-Next-Cursor"))
+                                                .isEqualTo(sorted.get(1).getId().toString());
+                                    });
+                                    webClient.get(8080, "localhost", "/account/")
+                                            .addQueryParam("limit", "2")
+                                            .addQueryParam("after", firstPage.getHeader("X-Next-Cursor"))
+                                            .as(BodyCodec.string())
+                                            .send(testContext.succeeding(secondPage ->
+                                                    testContext.verify(() -> {
+                                                        assertThat(secondPage.statusCode()).isEqualTo(200);
+                                                        assertThat(secondPage.body())
+                                                                .isEqualTo(Json.encode(sorted.subList(2, 3)));
+                                                        assertThat(secondPage.getHeader("X-Next-Cursor")).isNull();
+                                                        testContext.completeNow();
+                                                    })));
+                                }))));
+    }
+
     @Test
     @DisplayName("Test read account by id")
     void testReadAccount(Vertx vertx, VertxTestContext testContext) {
@@ -94,6 +168,45 @@ class ApplicationTest {
                                         })))));
     }
 
+    @Test
+    @DisplayName("Test read transfer history of an account page by page")
+    void testReadAccountTransfers(Vertx vertx, VertxTestContext testContext) {
+        final var transfers = new ArrayList<Transfer>();
+        for (int i = 1; i <= 3; i++) {
+            final var transfer = new Transfer()
+                    .setFromAccount(testAccount.getId())
+                    .setToAccount(i == 2 ? testAccount3.getId() : testAccount2.getId())
+                    .setAmount(Money.of(i, "USD"))
+                    .lsn(i);
+            transfer.setId(testTransferRepository.append(transfer));
+            transfers.add(transfer);
+        }
+        WebClient webClient = WebClient.create(vertx);
+        vertx.deployVerticle(new Application(testAccountRepository, testTransferRepository),
+                testContext.succeeding(id ->
+                        webClient.get(8080, "localhost", "/account/" + testAccount.getId() + "/transfers")
+                                .addQueryParam("limit", "2")
+                                .as(BodyCodec.string())
+                                .send(testContext.succeeding(firstPage -> {
+                                    testContext.verify(() -> {
+                                        assertThat(firstPage.statusCode()).isEqualTo(200);
+                                        assertThat(firstPage.body()).isEqualTo(Json.encode(transfers.subList(0, 2)));
+                                        assertThat(firstPage.getHeader("X-Next-Cursor")).isEqualTo("2");
+                                    });
+                                    webClient.get(8080, "localhost", "/account/" + testAccount2.getId() + "/transfers")
+                                            .addQueryParam("after", firstPage.getHeader("X-Next-Cursor"))
+                                            .as(BodyCodec.string())
+                                            .send(testContext.succeeding(secondPage ->
+                                                    testContext.verify(() -> {
+                                                        assertThat(secondPage.statusCode()).isEqualTo(200);
+                                                        assertThat(secondPage.body())
+                                                                .isEqualTo(Json.encode(transfers.subList(2, 3)));
+                                                        assertThat(secondPage.getHeader("X-Next-Cursor")).isNull();
+                                                        testContext.completeNow();
+                                                    })));
+                                }))));
+    }
+
     @Test
     @DisplayName("Test create account")
     void testCreateAccount(Vertx vertx, VertxTestContext testContext) {
@@ -138,6 +251,64 @@ class ApplicationTest {
                                         })))));
     }
 
+    @Test
+    @DisplayName("Test reading an unchanged account with its entity tag")
+    void testConditionalReadAccount(Vertx vertx, VertxTestContext testContext) {
+        WebClient webClient = WebClient.create(vertx);
+        vertx.deployVerticle(new Application(testAccountRepository, testTransferRepository),
+                testContext.succeeding(id ->
+                        webClient.get(8080, "localhost", "/account/" + testAccount.getId())
+                                .as(BodyCodec.string())
+                                .send(testContext.succeeding(resp ->
+                                        webClient.get(8080, "localhost", "/account/" + testAccount.getId())
+                                                .putHeader("If-None-Match", "\"42\", " + resp.getHeader("ETag"))
+                                                .as(BodyCodec.string())
+                                                .send(testContext.succeeding(notModifiedResp ->
+                                                        testContext.verify(() -> {
+                                                            assertThat(resp.statusCode()).isEqualTo(200);
+                                                            assertThat(resp.getHeader("ETag"))
+                                                                    .isEqualTo("\"" + testAccount.lsn() + "\"");
+                                                            assertThat(notModifiedResp.statusCode()).isEqualTo(304);
+                                                            assertThat(notModifiedResp.getHeader("ETag"))
+                                                                    .isEqualTo(resp.getHeader("ETag"));
+                                                            assertThat(notModifiedResp.body()).isNull();
+                                                            testContext.completeNow();
+                                                        })))))));
+    }
+
+    @Test
+    @DisplayName("Test updating an account only if it is unchanged since it was read")
+    void testConditionalUpdateAccount(Vertx vertx, VertxTestContext testContext) {
+        final var updatingAccount = new Account()
+                .setId(testAccount.getId())
+                .setName("Updating account")
+                .setMoney(Money.of(100, "USD"));
+        final var etag = "\"" + testAccount.lsn() + "\"";
+        WebClient webClient = WebClient.create(vertx);
+        vertx.deployVerticle(new Application(testAccountRepository, testTransferRepository),
+                testContext.succeeding(id ->
+                        webClient.put(8080, "localhost", "/account/")
+                                .putHeader("If-Match", etag)
+                                .as(BodyCodec.string())
+                                .sendJson(updatingAccount, testContext.succeeding(resp ->
+                                        webClient.put(8080, "localhost", "/account/")
+                                                .putHeader("If-Match", etag)
+                                                .as(BodyCodec.string())
+                                                .sendJson(testAccount, testContext.succeeding(staleResp ->
+                                                        testContext.verify(() -> {
+                                                            assertThat(resp.statusCode()).isEqualTo(200);
+                                                            assertThat(resp.getHeader("ETag"))
+                                                                    .isEqualTo("\"" + testAccountRepository
+                                                                            .read(testAccount.getId()).get().lsn() + "\"")
+                                                                    .isNotEqualTo(etag);
+                                                            assertThat(staleResp.statusCode()).isEqualTo(412);
+                                                            assertThat(testAccountRepository
+                                                                    .read(testAccount.getId()).get())
+                                                                    .isEqualTo(updatingAccount);
+                                                            testContext.completeNow();
+                                                        })))))));
+    }
+
     @Test
     @DisplayName("Test delete account")
     void testDeleteAccount(Vertx vertx, VertxTestContext testContext) {
@@ -264,4 +435,365 @@ class ApplicationTest {
                                             testContext.completeNow();
                                         })))));
     }
+
+    @Test
+    @DisplayName("Test retrying a money transfer with the same idempotency key")
+    void testIdempotentMoneyTransfer(Vertx vertx, VertxTestContext testContext) {
+        final var transfer = new Transfer()
+                .setToAccount(testAccount2.getId())
+                .setFromAccount(testAccount.getId())
+                .setAmount(Money.of(100, "USD"));
+        final var otherTransfer = new Transfer()
+                .setToAccount(testAccount3.getId())
+                .setFromAccount(testAccount.getId())
+                .setAmount(Money.of(100, "USD"));
+
+        WebClient webClient = WebClient.create(vertx);
+        vertx.deployVerticle(new Application(testAccountRepository, testTransferRepository),
+                testContext.succeeding(id ->
+                        webClient.post(8080, "localhost", "/transfer/commit")
+                                .putHeader("Idempotency-Key", "retried")
+                                .as(BodyCodec.string())
+                                .sendJson(transfer, testContext.succeeding(trResp ->
+                                        webClient.post(8080, "localhost", "/transfer/commit")
+                                                .putHeader("Idempotency-Key", "retried")
+                                                .as(BodyCodec.string())
+                                                .sendJson(transfer, testContext.succeeding(retryResp ->
+                                                        webClient.post(8080, "localhost", "/transfer/commit")
+                                                                .putHeader("Idempotency-Key", "retried")
+                                                                .as(BodyCodec.string())
+                                                                .sendJson(otherTransfer, testContext.succeeding(otherResp ->
+                                                                        testContext.verify(() -> {
+                                                                            assertThat(trResp.statusCode()).isEqualTo(200);
+                                                                            assertThat(retryResp.statusCode()).isEqualTo(200);
+                                                                            assertThat(retryResp.body()).isEqualTo(trResp.body());
+                                                                            assertThat(otherResp.statusCode()).isEqualTo(422);
+                                                                            assertThat(testTransferRepository.readAll()).hasSize(1);
+                                                                            assertThat(testAccount.getMoney()).isEqualTo(Money.of(900, "USD"));
+                                                                            assertThat(testAccount3.getMoney()).isEqualTo(Money.of(2000, "USD"));
+                                                                            testContext.completeNow();
+                                                                        })))))))));
+    }
+
+    @Test
+    @DisplayName("Test committing a money transfer asynchronously and waiting for its status")
+    void testAsyncMoneyTransfer(Vertx vertx, VertxTestContext testContext) {
+        final var transfer = new Transfer()
+                .setToAccount(testAccount2.getId())
+                .setFromAccount(testAccount.getId())
+                .setAmount(Money.of(100, "USD"));
+
+        WebClient webClient = WebClient.create(vertx);
+        vertx.deployVerticle(new Application(testAccountRepository, testTransferRepository),
+                testContext.succeeding(id ->
+                        webClient.post(8080, "localhost", "/transfer/commit")
+                                .putHeader("Prefer", "respond-async")
+                                .as(BodyCodec.string())
+                                .sendJson(transfer, testContext.succeeding(trResp ->
+                                        webClient.get(8080, "localhost", trResp.getHeader("Location") + "?wait=true")
+                                                .as(BodyCodec.jsonObject())
+                                                .send(testContext.succeeding(statusResp ->
+                                                        testContext.verify(() -> {
+                                                            assertThat(trResp.statusCode()).isEqualTo(202);
+                                                            assertThat(trResp.getHeader("Location"))
+                                                                    .isEqualTo("/transfer/" + trResp.body());
+                                                            assertThat(statusResp.statusCode()).isEqualTo(200);
+                                                            assertThat(statusResp.body().getString("id")).isEqualTo(trResp.body());
+                                                            assertThat(statusResp.body().getString("status")).isEqualTo("COMMITTED");
+                                                            assertThat(testTransferRepository.read(UUID.fromString(trResp.body())))
+                                                                    .isPresent();
+                                                            assertThat(testAccount.getMoney()).isEqualTo(Money.of(900, "USD"));
+                                                            assertThat(testAccount2.getMoney()).isEqualTo(Money.of(1600, "USD"));
+                                                            testContext.completeNow();
+                                                        })))))));
+    }
+
+    @Test
+    @DisplayName("Test request latencies and transfer rejections are exposed as metrics")
+    void testMetrics(Vertx vertx, VertxTestContext testContext) {
+        final var transfer = new Transfer()
+                .setToAccount(testAccount2.getId())
+                .setFromAccount(testAccount.getId())
+                .setAmount(Money.of(100000, "USD"));
+
+        WebClient webClient = WebClient.create(vertx);
+        vertx.deployVerticle(new Application(testAccountRepository, testTransferRepository),
+                testContext.succeeding(id ->
+                        webClient.post(8080, "localhost", "/transfer/commit")
+                                .as(BodyCodec.string())
+                                .sendJson(transfer, testContext.succeeding(trResp ->
+                                        webClient.get(8080, "localhost", "/metrics")
+                                                .as(BodyCodec.string())
+                                                .send(testContext.succeeding(metricsResp ->
+                                                        testContext.verify(() -> {
+                                                            assertThat(trResp.statusCode()).isEqualTo(400);
+                                                            assertThat(metricsResp.statusCode()).isEqualTo(200);
+                                                            assertThat(metricsResp.body()).contains(
+                                                                    "http_server_request_duration_seconds_count"
+                                                                            + "{method=\"POST\",route=\"/transfer/commit\"} 1",
+                                                                    "transfer_rejections_total{cause=\"INVALID_AMOUNT\"} 1",
+                                                                    "vertx_event_loop_lag_seconds");
+                                                            testContext.completeNow();
+                                                        })))))));
+    }
+
+    @Test
+    @DisplayName("Test reconciliation reports balances and drift per currency")
+    void testReconciliation(Vertx vertx, VertxTestContext testContext) {
+        final var transfer = new Transfer()
+                .setToAccount(testAccount2.getId())
+                .setFromAccount(testAccount.getId())
+                .setAmount(Money.of(100, "USD"));
+
+        WebClient webClient = WebClient.create(vertx);
+        vertx.deployVerticle(new Application(testAccountRepository, testTransferRepository),
+                testContext.succeeding(id ->
+                        webClient.post(8080, "localhost", "/transfer/commit")
+                                .sendJson(transfer, testContext.succeeding(trResp ->
+                                        webClient.get(8080, "localhost", "/reconciliation")
+                                                .as(BodyCodec.jsonObject())
+                                                .send(testContext.succeeding(resp ->
+                                                        testContext.verify(() -> {
+                                                            assertThat(resp.statusCode()).isEqualTo(200);
+                                                            assertThat(resp.body().getBoolean("balanced")).isTrue();
+                                                            assertThat(resp.body().getInteger("accounts")).isEqualTo(3);
+                                                            final var usd = resp.body()
+                                                                    .getJsonObject("currencies")
+                                                                    .getJsonObject("USD");
+                                                            assertThat(usd.getLong("balance")).isEqualTo(450_000);
+                                                            assertThat(usd.getLong("issued")).isEqualTo(450_000);
+                                                            assertThat(usd.getLong("drift")).isZero();
+                                                            assertThat(resp.body().getJsonObject("currencies")
+                                                                    .containsKey("EUR")).isFalse();
+                                                            testContext.completeNow();
+                                                        })))))));
+    }
+
+    @Test
+    @DisplayName("Test importing an account archive and exporting all accounts")
+    void testImportExportAccounts(Vertx vertx, VertxTestContext testContext) {
+        final var imported = new Account().setName("Imported Account").setMoney(Money.of(500, "EUR"));
+        final var records = ByteBuffer.allocate(1024).put(AccountArchive.header());
+        AccountArchive.encode(imported, records);
+        records.flip();
+
+        WebClient webClient = WebClient.create(vertx);
+        vertx.deployVerticle(new Application(testAccountRepository, testTransferRepository),
+                testContext.succeeding(id ->
+                        webClient.post(8080, "localhost", "/account/import")
+                                .as(BodyCodec.jsonObject())
+                                .sendBuffer(io.vertx.reactivex.core.buffer.Buffer.buffer(Unpooled.wrappedBuffer(records)),
+                                        testContext.succeeding(importResp ->
+                                                webClient.get(8080, "localhost", "/account/export")
+                                                        .send(testContext.succeeding(exportResp ->
+                                                                testContext.verify(() -> {
+                                                                    assertThat(importResp.statusCode()).isEqualTo(200);
+                                                                    assertThat(importResp.body().getLong("imported")).isEqualTo(1);
+                                                                    assertThat(exportResp.statusCode()).isEqualTo(200);
+                                                                    final var exported = new ArrayList<Account>();
+                                                                    final var decoder = new AccountArchive.Decoder();
+                                                                    decoder.feed(exportResp.body().getDelegate()
+                                                                            .getByteBuf().nioBuffer(), exported::add);
+                                                                    decoder.finish();
+                                                                    assertThat(exported).hasSize(4)
+                                                                            .contains(testAccount, testAccount2, testAccount3);
+                                                                    assertThat(exported).extracting(Account::getMoney)
+                                                                            .contains(Money.of(500, "EUR"));
+                                                                    testContext.completeNow();
+                                                                })))))));
+    }
+
+    @Test
+    @DisplayName("Test HTTP/2 without upgrade and compression of long responses only")
+    void testServerOptions(Vertx vertx, VertxTestContext testContext) {
+        final var config = new JsonObject()
+                .put("http.compression", true)
+                .put("http.compressionThreshold", 1024);
+        WebClient http2Client = WebClient.create(vertx, new WebClientOptions()
+                .setProtocolVersion(HttpVersion.HTTP_2)
+                .setHttp2ClearTextUpgrade(false));
+        WebClient webClient = WebClient.create(vertx, new WebClientOptions().setTryUseCompression(false));
+        vertx.deployVerticle(new Application(testAccountRepository, testTransferRepository),
+                new DeploymentOptions().setConfig(config),
+                testContext.succeeding(id ->
+                        http2Client.get(8080, "localhost", "/account/" + testAccount.getId())
+                                .as(BodyCodec.json(Account.class))
+                                .send(testContext.succeeding(http2Resp ->
+                                        webClient.get(8080, "localhost", "/account/" + testAccount.getId())
+                                                .putHeader("Accept-Encoding", "gzip")
+                                                .send(testContext.succeeding(shortResp ->
+                                                        webClient.get(8080, "localhost", "/account/")
+                                                                .putHeader("Accept-Encoding", "gzip")
+                                                                .send(testContext.succeeding(longResp ->
+                                                                        testContext.verify(() -> {
+                                                                            assertThat(http2Resp.version()).isEqualTo(HttpVersion.HTTP_2);
+                                                                            assertThat(http2Resp.body()).isEqualTo(testAccount);
+                                                                            assertThat(http2Resp.getHeader("Content-Encoding")).isNull();
+                                                                            assertThat(shortResp.getHeader("Content-Encoding")).isNull();
+                                                                            assertThat(Json.decodeValue(shortResp.bodyAsString(), Account.class))
+                                                                                    .isEqualTo(testAccount);
+                                                                            assertThat(longResp.getHeader("Content-Encoding")).isEqualTo("gzip");
+                                                                            testContext.completeNow();
+                                                                        })))))))));
+    }
+
+    @Test
+    @DisplayName("Test committing an atomic money transfer batch")
+    void testAtomicTransferBatch(Vertx vertx, VertxTestContext testContext) {
+        final var transfers = List.of(
+                new Transfer()
+                        .setFromAccount(testAccount.getId())
+                        .setToAccount(testAccount2.getId())
+                        .setAmount(Money.of(100, "USD")),
+                new Transfer()
+                        .setFromAccount(testAccount2.getId())
+                        .setToAccount(testAccount3.getId())
+                        .setAmount(Money.of(100000, "USD")));
+
+        WebClient webClient = WebClient.create(vertx);
+        vertx.deployVerticle(new Application(testAccountRepository, testTransferRepository),
+                testContext.succeeding(id ->
+                        webClient.post(8080, "localhost", "/transfer/batch")
+                                .as(BodyCodec.jsonArray())
+                                .sendJson(transfers, testContext.succeeding(trResp ->
+                                        testContext.verify(() -> {
+                                            assertThat(trResp.statusCode()).isEqualTo(400);
+                                            assertThat(trResp.body().getJsonObject(0).getString("status"))
+                                                    .isEqualTo("ABORTED");
+                                            assertThat(trResp.body().getJsonObject(1).getString("status"))
+                                                    .isEqualTo("INVALID_AMOUNT");
+                                            assertThat(testAccount.getMoney()).isEqualTo(Money.of(1000, "USD"));
+                                            testContext.completeNow();
+                                        })))));
+    }
+
+    @Test
+    @DisplayName("Test refusing a money transfer batch above the maximum size")
+    void testOversizedTransferBatch(Vertx vertx, VertxTestContext testContext) {
+        final var transfers = List.of(
+                new Transfer()
+                        .setFromAccount(testAccount.getId())
+                        .setToAccount(testAccount2.getId())
+                        .setAmount(Money.of(100, "USD")),
+                new Transfer()
+                        .setFromAccount(testAccount2.getId())
+                        .setToAccount(testAccount3.getId())
+                        .setAmount(Money.of(100, "USD")));
+
+        WebClient webClient = WebClient.create(vertx);
+        vertx.deployVerticle(new Application(testAccountRepository, testTransferRepository),
+                new DeploymentOptions().setConfig(new JsonObject().put("transfer.maxBatchSize", 1)),
+                testContext.succeeding(id ->
+                        webClient.post(8080, "localhost", "/transfer/batch")
+                                .sendJson(transfers, testContext.succeeding(trResp ->
+                                        testContext.verify(() -> {
+                                            assertThat(trResp.statusCode()).isEqualTo(413);
+                                            assertThat(testAccount.getMoney()).isEqualTo(Money.of(1000, "USD"));
+                                            assertThat(testTransferRepository.readAll()).isEmpty();
+                                            testContext.completeNow();
+                                        })))));
+    }
+
+    @Test
+    @DisplayName("Test committing a best-effort money transfer batch")
+    void testBestEffortTransferBatch(Vertx vertx, VertxTestContext testContext) {
+        final var transfers = List.of(
+                new Transfer()
+                        .setFromAccount(testAccount.getId())
+                        .setToAccount(testAccount2.getId())
+                        .setAmount(Money.of(100, "USD")),
+                new Transfer()
+                        .setFromAccount(testAccount2.getId())
+                        .setToAccount(testAccount3.getId())
+                        .setAmount(Money.of(100000, "USD")));
+
+        WebClient webClient = WebClient.create(vertx);
+        vertx.deployVerticle(new Application(testAccountRepository, testTransferRepository),
+                testContext.succeeding(id ->
+                        webClient.post(8080, "localhost", "/transfer/batch")
+                                .addQueryParam("mode", "best-effort")
+                                .as(BodyCodec.jsonArray())
+                                .sendJson(transfers, testContext.succeeding(trResp ->
+                                        testContext.verify(() -> {
+                                            assertThat(trResp.statusCode()).isEqualTo(200);
+                                            final var committed = trResp.body().getJsonObject(0);
+                                            assertThat(committed.getString("status")).isEqualTo("COMMITTED");
+                                            assertThat(testTransferRepository
+                                                    .read(UUID.fromString(committed.getString("id"))))
+                                                    .isPresent();
+                                            assertThat(trResp.body().getJsonObject(1).getString("status"))
+                                                    .isEqualTo("INVALID_AMOUNT");
+                                            assertThat(testAccount.getMoney()).isEqualTo(Money.of(900, "USD"));
+                                            testContext.completeNow();
+                                        })))));
+    }
+
+    @Test
+    @DisplayName("Test stream changes as server-sent events, resuming after the last event id")
+    void testStreamChanges(Vertx vertx, VertxTestContext testContext) {
+        final var feed = new ChangeFeed(Journal.NONE, 1024, 0);
+        final var ledger = new Ledger(testAccountRepository, testTransferRepository, feed);
+        final var account = new Account().setName("Streamed Account").setMoney(Money.of(10, "USD"));
+        ledger.create(account).join();
+        final var transfer = new Transfer()
+                .setFromAccount(testAccount.getId())
+                .setToAccount(account.getId())
+                .setAmount(Money.of(100, "USD"));
+
+        final var webClient = WebClient.create(vertx);
+        final var events = Buffer.buffer();
+        vertx.deployVerticle(new ChangePublisher(feed), testContext.succeeding(publisher ->
+                vertx.deployVerticle(changesApplication(ledger, feed), testContext.succeeding(id ->
+                        vertx.getDelegate().createNetClient().connect(8080, "localhost", testContext.succeeding(socket -> {
+                            // the HTTP client API for streamed responses is deprecated in this Vert.x
+                            socket.handler(chunk -> {
+                                events.appendBuffer(chunk);
+                                if (events.toString().contains("id: 2\n")) {
+                                    testContext.verify(() -> {
+                                        final var stream = events.toString();
+                                        assertThat(stream).startsWith("HTTP/1.1 200 ");
+                                        assertThat(stream.toLowerCase()).contains("content-type: text/event-stream\r\n");
+                                        assertThat(stream.indexOf("id: 1\ndata: {\"lsn\":1,\"account\":"))
+                                                .isNotNegative()
+                                                .isLessThan(stream.indexOf("id: 2\ndata: {\"lsn\":2,\"transfer\":"));
+                                    });
+                                    webClient.get(8080, "localhost", "/changes")
+                                            .putHeader("Last-Event-ID", "1000")
+                                            .send(testContext.succeeding(gone -> testContext.verify(() -> {
+                                                assertThat(gone.statusCode()).isEqualTo(410);
+                                                testContext.completeNow();
+                                            })));
+                                }
+                            });
+                            socket.write("GET /changes HTTP/1.1\r\nHost: localhost:8080\r\nLast-Event-ID: 0\r\n\r\n");
+                            webClient.post(8080, "localhost", "/transfer/commit")
+                                    .sendJson(transfer, testContext.succeeding(trResp ->
+                                            testContext.verify(() -> assertThat(trResp.statusCode()).isEqualTo(200))));
+                        }))))));
+    }
+
+    @Test
+    @DisplayName("Test stream changes to a WebSocket")
+    void testStreamChangesOverWebSocket(Vertx vertx, VertxTestContext testContext) {
+        final var feed = new ChangeFeed(Journal.NONE, 1024, 0);
+        final var ledger = new Ledger(testAccountRepository, testTransferRepository, feed);
+        vertx.deployVerticle(new ChangePublisher(feed), testContext.succeeding(publisher ->
+                vertx.deployVerticle(changesApplication(ledger, feed), testContext.succeeding(id -> {
+                    ledger.delete(testAccount3.getId());
+                    vertx.getDelegate().createHttpClient().websocket(8080, "localhost", "/changes?after=0", webSocket ->
+                            webSocket.textMessageHandler(message -> testContext.verify(() -> {
+                                final var changes = new JsonArray(message);
+                                assertThat(changes.size()).isEqualTo(1);
+                                assertThat(changes.getJsonObject(0).getLong("lsn")).isEqualTo(1);
+                                assertThat(changes.getJsonObject(0).getString("deletedAccount"))
+                                        .isEqualTo(testAccount3.getId().toString());
+                                testContext.completeNow();
+                            })), testContext::failNow);
+                }))));
+    }
+
+    private Application changesApplication(Ledger ledger, ChangeFeed feed) {
+        return new Application(testAccountRepository, ledger, new IdempotencyCache<>(), new Metrics(),
+                new TransferPipeline(ledger), feed);
+    }
 }
@@ -0,0 +1,45 @@
+package com.moneytransferservice;
+
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.reactivex.core.Vertx;
+import io.vertx.reactivex.ext.web.client.WebClient;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Test stripping Content-Encoding: identity from compressed HTTP/1.x connections")
+@ExtendWith(VertxExtension.class)
+class IdentityEncodingStripperTest {
+
+    /**
+     * Guards the use of Vert.x internals: fails once a Vert.x upgrade changes the connection type
+     * or the handler names the stripper relies on.
+     */
+    @Test
+    @DisplayName("Test the stripper is installed on a compressing HTTP/1.1 connection")
+    void testInstall(Vertx vertx, VertxTestContext testContext) {
+        final var installed = new AtomicBoolean();
+        final var server = vertx.getDelegate().createHttpServer(new HttpServerOptions().setCompressionSupported(true));
+        server.connectionHandler(connection -> installed.set(IdentityEncodingStripper.install(connection)))
+                .requestHandler(request -> {
+                    testContext.verify(() ->
+                            assertThat(IdentityEncodingStripper.isInstalled(request.connection())).isTrue());
+                    request.response().putHeader("Content-Encoding", "identity").end("uncompressed");
+                })
+                .listen(8080, testContext.succeeding(listening ->
+                        WebClient.create(vertx).get(8080, "localhost", "/")
+                                .putHeader("Accept-Encoding", "gzip")
+                                .send(testContext.succeeding(response -> testContext.verify(() -> {
+                                    assertThat(installed).isTrue();
+                                    assertThat(response.getHeader("Content-Encoding")).isNull();
+                                    assertThat(response.bodyAsString()).isEqualTo("uncompressed");
+                                    testContext.completeNow();
+                                })))));
+    }
+}
@@ -0,0 +1,95 @@
+package com.moneytransferservice;
+
+import com.moneytransferservice.model.Account;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.reactivex.core.Vertx;
+import io.vertx.reactivex.ext.web.client.WebClient;
+import io.vertx.reactivex.ext.web.codec.BodyCodec;
+import org.javamoney.moneta.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.zalando.jackson.datatype.money.MoneyModule;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Test multi-instance deployment with journal recovery")
+@ExtendWith(VertxExtension.class)
+class MainVerticleTest {
+
+    private Path directory;
+
+    @BeforeAll
+    static void prepare() {
+        Json.mapper.registerModule(new MoneyModule());
+    }
+
+    @BeforeEach
+    void createJournalDirectory() throws IOException {
+        directory = Files.createTempDirectory("journal");
+    }
+
+    @AfterEach
+    void deleteJournalDirectory() throws IOException {
+        try (var files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test accounts survive a redeployment")
+    void testRecoveryAfterRedeployment(Vertx vertx, VertxTestContext testContext) {
+        final var account = new Account()
+                .setName("Durable Account")
+                .setMoney(Money.of(100, "USD"));
+        final var options = new DeploymentOptions().setConfig(new JsonObject()
+                .put("instances", 2)
+                .put("journal.dir", directory.toString()));
+        WebClient webClient = WebClient.create(vertx);
+        vertx.deployVerticle(MainVerticle.class.getName(), options, testContext.succeeding(id ->
+                webClient.post(8080, "localhost", "/account/")
+                        .as(BodyCodec.string())
+                        .sendJson(account, testContext.succeeding(created ->
+                                vertx.undeploy(id, testContext.succeeding(undeployed ->
+                                        vertx.deployVerticle(MainVerticle.class.getName(), options,
+                                                testContext.succeeding(redeployed ->
+                                                        webClient.get(8080, "localhost", "/account/" + created.body())
+                                                                .as(BodyCodec.json(Account.class))
+                                                                .send(testContext.succeeding(resp ->
+                                                                        testContext.verify(() -> {
+                                                                            assertThat(resp.statusCode()).isEqualTo(200);
+                                                                            assertThat(resp.body().getName())
+                                                                                    .isEqualTo("Durable Account");
+                                                                            assertThat(resp.body().getMoney())
+                                                                                    .isEqualTo(Money.of(100, "USD"));
+                                                                            testContext.completeNow();
+                                                                        })))))))))));
+    }
+
+    @Test
+    @DisplayName("Test an account store without a journal to recover it from is refused")
+    void testAccountStoreRequiresJournal(Vertx vertx, VertxTestContext testContext) {
+        final var options = new DeploymentOptions().setConfig(new JsonObject()
+                .put("accounts.dir", directory.toString()));
+        vertx.deployVerticle(MainVerticle.class.getName(), options, testContext.failing(error ->
+                testContext.verify(() -> {
+                    assertThat(error).hasMessageContaining("journal.dir");
+                    testContext.completeNow();
+                })));
+    }
+}
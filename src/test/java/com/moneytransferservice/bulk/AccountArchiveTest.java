@@ -0,0 +1,97 @@
+package com.moneytransferservice.bulk;
+
+import com.moneytransferservice.ledger.Ledger;
+import com.moneytransferservice.model.Account;
+import com.moneytransferservice.repository.InMemoryRepository;
+import com.moneytransferservice.repository.TransferStore;
+import org.javamoney.moneta.Money;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Test bulk account archives")
+class AccountArchiveTest {
+
+    @Test
+    @DisplayName("Test accounts survive encoding and decoding in arbitrarily split pieces")
+    void testRoundTrip() {
+        final var accounts = List.of(
+                new Account().setId(UUID.randomUUID()).setName("Test Account").setMoney(Money.of(1000.5, "USD")),
+                new Account().setName("Счёт").setMoney(Money.of(15, "JPY")),
+                new Account().setId(UUID.randomUUID()));
+        final var archive = archive(accounts);
+
+        assertThat(decode(archive.duplicate(), archive.remaining())).isEqualTo(accounts);
+        assertThat(decode(archive.duplicate(), 1)).isEqualTo(accounts);
+        assertThat(decode(archive.duplicate(), 7)).isEqualTo(accounts);
+    }
+
+    @Test
+    @DisplayName("Test truncated and foreign archives are rejected")
+    void testMalformedArchives() {
+        final var archive = archive(List.of(new Account().setName("Test Account").setMoney(Money.of(1, "USD"))));
+        final var truncated = new AccountArchive.Decoder();
+        truncated.feed(archive.duplicate().limit(archive.limit() - 1), account -> {
+        });
+        assertThatThrownBy(truncated::finish).isInstanceOf(IllegalArgumentException.class);
+
+        assertThatThrownBy(() -> new AccountArchive.Decoder().feed(ByteBuffer.allocate(16), account -> {
+        })).isInstanceOf(IllegalArgumentException.class);
+        final var corrupted = archive.duplicate();
+        corrupted.putInt(AccountArchive.HEADER_SIZE, Integer.MAX_VALUE);
+        assertThatThrownBy(() -> new AccountArchive.Decoder().feed(corrupted, account -> {
+        })).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Test importing in chunks creates new accounts and keeps given ids")
+    void testImport() {
+        final var accountRepository = new InMemoryRepository<Account>();
+        final var ledger = new Ledger(accountRepository, new TransferStore());
+        final var accounts = new ArrayList<Account>();
+        for (int i = 0; i < 1000; i++) {
+            accounts.add(new Account()
+                    .setId(i % 2 == 0 ? UUID.randomUUID() : null)
+                    .setName("Account " + i)
+                    .setMoney(Money.of(i, "USD")));
+        }
+        final var archive = archive(accounts);
+        final var accountImport = new AccountImport(ledger, ForkJoinPool.commonPool(), 64, 4);
+        while (archive.hasRemaining()) {
+            final var piece = archive.duplicate().limit(Math.min(archive.limit(), archive.position() + 1000));
+            archive.position(piece.limit());
+            accountImport.feed(piece).join();
+        }
+
+        assertThat(accountImport.finish().join()).isEqualTo(1000);
+        assertThat(accountRepository.readAll().get()).hasSize(1000);
+        assertThat(accountRepository.get(accounts.get(998).getId()).getMoney()).isEqualTo(Money.of(998, "USD"));
+        assertThat(ledger.reconcile(ForkJoinPool.commonPool()).isBalanced()).isTrue();
+    }
+
+    private static ByteBuffer archive(List<Account> accounts) {
+        final var buffer = ByteBuffer.allocate(1024 * 1024).put(AccountArchive.header());
+        accounts.forEach(account -> assertThat(AccountArchive.encode(account, buffer)).isTrue());
+        return buffer.flip();
+    }
+
+    private static List<Account> decode(ByteBuffer archive, int pieceSize) {
+        final var decoder = new AccountArchive.Decoder();
+        final var accounts = new ArrayList<Account>();
+        while (archive.hasRemaining()) {
+            final var piece = archive.duplicate().limit(Math.min(archive.limit(), archive.position() + pieceSize));
+            archive.position(piece.limit());
+            decoder.feed(piece, accounts::add);
+        }
+        decoder.finish();
+        return accounts;
+    }
+}
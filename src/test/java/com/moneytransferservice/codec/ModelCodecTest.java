@@ -0,0 +1,110 @@
+package com.moneytransferservice.codec;
+
+import com.moneytransferservice.model.Account;
+import com.moneytransferservice.model.Transfer;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.Json;
+import org.javamoney.moneta.Money;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.zalando.jackson.datatype.money.MoneyModule;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Test JSON codec of accounts and transfers")
+class ModelCodecTest {
+
+    @BeforeAll
+    static void prepare() {
+        Json.mapper.registerModule(new MoneyModule());
+    }
+
+    @Test
+    @DisplayName("Test encoding produces the same JSON as Jackson")
+    void testEncode() {
+        final var accounts = List.of(
+                new Account().setId(UUID.randomUUID()).setName("Test Account").setMoney(Money.of(1000, "USD")),
+                new Account().setId(UUID.randomUUID()).setName("\"Ünïcødé\" \\ 💰\n\u0001").setMoney(Money.of(-0.05, "EUR")),
+                new Account().setName("Yen").setMoney(Money.of(Long.MAX_VALUE, "JPY")),
+                new Account());
+        for (Account account : accounts) {
+            assertThat(ModelCodec.encode(account).toString()).isEqualTo(Json.encode(account));
+        }
+        assertThat(ModelCodec.encodeAccounts(accounts).toString()).isEqualTo(Json.encode(accounts));
+        assertThat(ModelCodec.encodeAccounts(List.of()).toString()).isEqualTo("[]");
+
+        final var transfer = new Transfer()
+                .setId(UUID.randomUUID())
+                .setFromAccount(UUID.randomUUID())
+                .setToAccount(UUID.randomUUID())
+                .setAmount(Money.of(10.5, "BHD"));
+        assertThat(ModelCodec.encode(transfer).toString()).isEqualTo(Json.encode(transfer));
+        assertThat(ModelCodec.encode(new Transfer()).toString()).isEqualTo(Json.encode(new Transfer()));
+    }
+
+    @Test
+    @DisplayName("Test decoding reads what Jackson reads")
+    void testDecode() {
+        final var account = new Account()
+                .setId(UUID.randomUUID())
+                .setName("Test \"Account\" ✓")
+                .setMoney(Money.of(1234.56, "USD"));
+        assertThat(ModelCodec.decodeAccount(Buffer.buffer(Json.encode(account)))).isEqualTo(account);
+
+        final var transfer = ModelCodec.decodeTransfer(Buffer.buffer(" {\n"
+                + "  \"amount\" : {\"currency\": \"USD\", \"amount\": \"10.50\"},\n"
+                + "  \"toAccount\": \"6A2F41A3-C54C-FCE8-32D2-0324E1C32E22\", \"fromAccount\": null\n"
+                + "}\n"));
+        assertThat(transfer.getAmount()).isEqualTo(Money.of(10.5, "USD"));
+        assertThat(transfer.getToAccount()).isEqualTo(UUID.fromString("6a2f41a3-c54c-fce8-32d2-0324e1c32e22"));
+        assertThat(transfer.getFromAccount()).isNull();
+        assertThat(ModelCodec.decodeTransfer(Buffer.buffer("{\"amount\":{\"amount\":1.5e2,\"currency\":\"USD\"}}"))
+                .minorUnits()).isEqualTo(15000);
+        assertThat(ModelCodec.decodeTransfer(Buffer.buffer("{\"amount\":{\"amount\":100e-2,\"currency\":\"JPY\"}}"))
+                .minorUnits()).isEqualTo(1);
+        assertThat(ModelCodec.decodeTransfer(Buffer.buffer("{\"amount\":{\"amount\":0e999999999,\"currency\":\"USD\"}}"))
+                .minorUnits()).isZero();
+        assertThat(ModelCodec.decodeTransfer(Buffer.buffer("{\"amount\":{\"amount\":7.100,\"currency\":\"USD\"}}"))
+                .minorUnits()).isEqualTo(710);
+        assertThat(ModelCodec.decodeAccount(Buffer.buffer("{\"name\":\"a\\u00e9\\n\\/\",\"money\":null}")))
+                .isEqualTo(new Account().setName("aé\n/"));
+
+        final var transfers = List.of(
+                new Transfer().setFromAccount(UUID.randomUUID()).setAmount(Money.of(1, "USD")),
+                new Transfer().setToAccount(UUID.randomUUID()).setAmount(Money.of(2, "EUR")));
+        assertThat(ModelCodec.decodeTransfers(Buffer.buffer(Json.encode(transfers)))).isEqualTo(transfers);
+        assertThat(ModelCodec.decodeTransfers(Buffer.buffer("[ ]"))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Test malformed JSON is rejected")
+    void testMalformed() {
+        for (String json : List.of(
+                "",
+                "null",
+                "{\"name\":\"Test\"",
+                "{\"name\":\"Test\"} {}",
+                "{\"unknown\":1}",
+                "{\"id\":\"not-a-uuid\"}",
+                "{\"id\":\"6a2f41a3-c54c-fce8-32d2-0324e1c32eXX\"}",
+                "{\"money\":{\"amount\":1}}",
+                "{\"money\":{\"amount\":1,\"currency\":\"XXX1\"}}",
+                "{\"money\":{\"amount\":1.005,\"currency\":\"USD\"}}",
+                "{\"money\":{\"amount\":\"1..0\",\"currency\":\"USD\"}}",
+                "{\"money\":{\"amount\":99999999999999999999,\"currency\":\"USD\"}}",
+                "{\"money\":{\"amount\":1e400000000,\"currency\":\"USD\"}}",
+                "{\"money\":{\"amount\":-1E+400000000,\"currency\":\"USD\"}}",
+                "{\"money\":{\"amount\":1e-400000000,\"currency\":\"USD\"}}",
+                "{\"money\":{\"amount\":1e17,\"currency\":\"USD\"}}",
+                "{\"name\":nul}")) {
+            assertThatThrownBy(() -> ModelCodec.decodeAccount(Buffer.buffer(json)))
+                    .as(json)
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+}
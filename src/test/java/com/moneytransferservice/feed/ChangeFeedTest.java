@@ -0,0 +1,125 @@
+package com.moneytransferservice.feed;
+
+import com.moneytransferservice.journal.Journal;
+import com.moneytransferservice.ledger.Ledger;
+import com.moneytransferservice.model.Account;
+import com.moneytransferservice.model.Transfer;
+import com.moneytransferservice.repository.InMemoryRepository;
+import com.moneytransferservice.repository.TransferStore;
+import org.javamoney.moneta.Money;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Test change feed of committed mutations")
+class ChangeFeedTest {
+
+    @Test
+    @DisplayName("Test changes are published in lsn order once durable, without failed ones")
+    void testDrainInLsnOrder() {
+        final var journal = new PendingJournal();
+        final var feed = new ChangeFeed(journal, 16, 0);
+        final var ledger = new Ledger(new InMemoryRepository<>(), new TransferStore(), feed);
+        final var from = new Account().setName("From Account").setMoney(Money.of(100, "USD"));
+        final var to = new Account().setName("To Account").setMoney(Money.of(0, "USD"));
+        ledger.create(from);
+        ledger.create(to);
+        ledger.commit(new Transfer()
+                .setFromAccount(from.getId())
+                .setToAccount(to.getId())
+                .setAmount(Money.of(25, "USD")));
+        ledger.delete(to.getId());
+
+        journal.appends.get(1).complete(null);
+        journal.appends.get(2).complete(null);
+        assertThat(feed.drain(16)).isNull();
+
+        journal.appends.get(0).complete(null);
+        final var batch = feed.drain(16);
+        assertThat(batch.after()).isEqualTo(0);
+        assertThat(batch.last()).isEqualTo(3);
+        assertThat(batch.changes()).extracting(Change::lsn).containsExactly(1L, 2L, 3L);
+        assertThat(batch.changes().get(0).json().toString())
+                .isEqualTo("{\"lsn\":1,\"account\":{\"name\":\"From Account\",\"id\":\"" + from.getId()
+                        + "\",\"money\":{\"amount\":100.00,\"currency\":\"USD\"}}}");
+        assertThat(batch.changes().get(2).json().toString())
+                .startsWith("{\"lsn\":3,\"transfer\":{\"fromAccount\":\"" + from.getId() + "\"");
+        assertThat(batch.events().toString()).startsWith("id: 1\ndata: {\"lsn\":1,").endsWith("}}\n\n");
+
+        journal.appends.get(3).completeExceptionally(new IOException("Disk full"));
+        final var failed = feed.drain(16);
+        assertThat(failed.after()).isEqualTo(3);
+        assertThat(failed.last()).isEqualTo(4);
+        assertThat(failed.changes()).isEmpty();
+        assertThat(feed.drain(16)).isNull();
+    }
+
+    @Test
+    @DisplayName("Test subscribers resume from the ring until its changes are overwritten")
+    void testReplay() {
+        final var feed = new ChangeFeed(Journal.NONE, 4, 10);
+        final var accounts = new ArrayList<UUID>();
+        for (long lsn = 11; lsn <= 20; lsn++) {
+            final var uuid = UUID.randomUUID();
+            feed.appendAccountDeletion(lsn, uuid);
+            accounts.add(uuid);
+        }
+
+        final var batch = feed.drain(16);
+        assertThat(batch.changes()).extracting(Change::lsn).containsExactly(17L, 18L, 19L, 20L);
+        assertThat(feed.floor()).isEqualTo(16);
+        assertThat(feed.published()).isEqualTo(20);
+        assertThat(feed.resumable(15)).isFalse();
+        assertThat(feed.replay(15, 16)).isNull();
+        assertThat(feed.replay(21, 16)).isNull();
+        assertThat(feed.replay(20, 16).changes()).isEmpty();
+
+        final var replayed = feed.replay(16, 2);
+        assertThat(replayed.after()).isEqualTo(16);
+        assertThat(replayed.last()).isEqualTo(18);
+        assertThat(replayed.json()).isEqualTo("[{\"lsn\":17,\"deletedAccount\":\"" + accounts.get(6)
+                + "\"},{\"lsn\":18,\"deletedAccount\":\"" + accounts.get(7) + "\"}]");
+
+        feed.appendAccountDeletion(21, UUID.randomUUID());
+        feed.drain(16);
+        assertThat(feed.replay(16, 16)).isNull();
+        assertThat(feed.replay(17, 16).changes()).extracting(Change::lsn).containsExactly(18L, 19L, 20L, 21L);
+    }
+
+    private static final class PendingJournal implements Journal {
+
+        private final List<CompletableFuture<Void>> appends = new ArrayList<>();
+
+        @Override
+        public CompletableFuture<Void> appendAccount(long lsn, Account account) {
+            return append();
+        }
+
+        @Override
+        public CompletableFuture<Void> appendAccountDeletion(long lsn, UUID uuid) {
+            return append();
+        }
+
+        @Override
+        public CompletableFuture<Void> appendTransfer(long lsn, Transfer transfer) {
+            return append();
+        }
+
+        @Override
+        public void close() {
+        }
+
+        private CompletableFuture<Void> append() {
+            final var append = new CompletableFuture<Void>();
+            appends.add(append);
+            return append;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.moneytransferservice.fx;
+
+import com.moneytransferservice.model.Currencies;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Test exchange rate table")
+class RateTableTest {
+
+    private static final int EUR = Currencies.indexOf("EUR");
+    private static final int USD = Currencies.indexOf("USD");
+    private static final int GBP = Currencies.indexOf("GBP");
+    private static final int JPY = Currencies.indexOf("JPY");
+    private static final int CHF = Currencies.indexOf("CHF");
+
+    private Path file;
+
+    @BeforeEach
+    void createRatesFile() throws IOException {
+        file = Files.createTempFile("rates", ".properties");
+    }
+
+    @AfterEach
+    void deleteRatesFile() throws IOException {
+        Files.delete(file);
+    }
+
+    @Test
+    @DisplayName("Test listed, inverse and crossed rates convert between minor units")
+    void testConvert() throws IOException {
+        Files.writeString(file, "# rates\nEUR/USD = 1.25\nEUR/GBP = 0.8\nUSD/JPY = 150\nJPY/USD = 0.007\n");
+        final var rates = RateTable.load(file, "EUR");
+
+        assertThat(rates.convert(10_000, EUR, USD)).isEqualTo(12_500);
+        assertThat(rates.convert(12_500, USD, EUR)).isEqualTo(10_000);
+        assertThat(rates.convert(100, GBP, USD)).isEqualTo(156);
+        assertThat(rates.convert(100, USD, JPY)).isEqualTo(150);
+        assertThat(rates.convert(1000, JPY, USD)).isEqualTo(700);
+        assertThat(rates.convert(100, JPY, GBP)).isEqualTo(RateTable.NO_RATE);
+        assertThat(rates.convert(100, CHF, EUR)).isEqualTo(RateTable.NO_RATE);
+        assertThat(rates.convert(100, CHF, CHF)).isEqualTo(100);
+        assertThat(RateTable.NONE.convert(100, EUR, USD)).isEqualTo(RateTable.NO_RATE);
+        assertThat(RateTable.NONE.convert(100, EUR, EUR)).isEqualTo(100);
+        assertThat(RateTable.load(file).convert(100, GBP, USD)).isEqualTo(RateTable.NO_RATE);
+        assertThat(RateTable.load(file, "USD").convert(100, GBP, USD)).isEqualTo(RateTable.NO_RATE);
+        assertThat(RateTable.load(file, "USD").convert(100, EUR, JPY)).isEqualTo(188);
+    }
+
+    @Test
+    @DisplayName("Test conversions round half up exactly and report amounts that overflow")
+    void testRounding() throws IOException {
+        Files.writeString(file, "EUR/USD = 1.25\nEUR/GBP = 0.123456789012345678901\n");
+        final var rates = RateTable.load(file);
+
+        assertThat(rates.convert(2, EUR, USD)).isEqualTo(3);
+        assertThat(rates.convert(1, EUR, USD)).isEqualTo(1);
+        assertThat(rates.convert(3, USD, EUR)).isEqualTo(2);
+        assertThat(rates.convert((1L << 53) + 1, EUR, USD)).isEqualTo(11_258_999_068_426_241L);
+        assertThat(rates.convert(Long.MAX_VALUE / 2, EUR, USD)).isEqualTo(5_764_607_523_034_234_879L);
+        assertThat(rates.convert(1_000_000_000_000_000_000L, EUR, GBP)).isEqualTo(123_456_789_012_345_679L);
+        assertThat(rates.convert(Long.MAX_VALUE, EUR, USD)).isEqualTo(RateTable.OVERFLOW);
+        assertThatThrownBy(() -> rates.convert(-1, EUR, USD)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Test invalid pairs and rates are refused")
+    void testInvalidRates() throws IOException {
+        Files.writeString(file, "EURUSD = 1.25\n");
+        assertThatThrownBy(() -> RateTable.load(file)).isInstanceOf(IllegalArgumentException.class);
+        Files.writeString(file, "EUR/XXY = 1.25\n");
+        assertThatThrownBy(() -> RateTable.load(file)).isInstanceOf(IllegalArgumentException.class);
+        Files.writeString(file, "EUR/USD = -1\n");
+        assertThatThrownBy(() -> RateTable.load(file)).isInstanceOf(IllegalArgumentException.class);
+        Files.writeString(file, "EUR/USD = one\n");
+        assertThatThrownBy(() -> RateTable.load(file)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
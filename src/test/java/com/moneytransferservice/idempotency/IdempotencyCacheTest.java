@@ -0,0 +1,92 @@
+package com.moneytransferservice.idempotency;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Test idempotency key cache")
+class IdempotencyCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    @DisplayName("Test a known key returns the registered outcome")
+    void testReplay() {
+        final var cache = new IdempotencyCache<String>(10, 1000, clock::get);
+        final var outcome = CompletableFuture.completedFuture("first");
+        assertThat(cache.putIfAbsent("key", fingerprint(1), outcome)).isNull();
+        final var entry = cache.putIfAbsent("key", fingerprint(1), CompletableFuture.completedFuture("second"));
+        assertThat(entry.outcome()).isSameAs(outcome);
+        assertThat(entry.matches(fingerprint(1))).isTrue();
+        assertThat(entry.matches(fingerprint(2))).isFalse();
+
+        cache.remove("key", outcome);
+        assertThat(cache.putIfAbsent("key", fingerprint(1), CompletableFuture.completedFuture("third"))).isNull();
+    }
+
+    @Test
+    @DisplayName("Test removed keys do not count towards the capacity")
+    void testRemovedKeysFreeCapacity() {
+        final var cache = new IdempotencyCache<String>(10, 1000, clock::get);
+        for (int i = 0; i < 100; i++) {
+            final var outcome = new CompletableFuture<String>();
+            cache.putIfAbsent("failed" + i, fingerprint(i), outcome);
+            cache.remove("failed" + i, outcome);
+        }
+        for (int i = 0; i < 10; i++) {
+            cache.putIfAbsent("key" + i, fingerprint(i), CompletableFuture.completedFuture("outcome" + i));
+        }
+        assertThat(cache.size()).isEqualTo(10);
+        for (int i = 0; i < 10; i++) {
+            assertThat(cache.get("key" + i)).isNotNull();
+        }
+    }
+
+    @Test
+    @DisplayName("Test removed keys behind a live one do not pile up")
+    void testRemovedKeysCompacted() {
+        final var cache = new IdempotencyCache<String>(80, 1000, clock::get);
+        cache.putIfAbsent("live", fingerprint(0), CompletableFuture.completedFuture("outcome"));
+        for (int i = 0; i < 1000; i++) {
+            final var outcome = new CompletableFuture<String>();
+            cache.putIfAbsent("failed" + i, fingerprint(i), outcome);
+            cache.remove("failed" + i, outcome);
+            assertThat(cache.queued()).isLessThanOrEqualTo(1 + 80 / 8 + 1);
+        }
+        assertThat(cache.get("live")).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Test the oldest keys are evicted beyond the capacity")
+    void testCapacity() {
+        final var cache = new IdempotencyCache<String>(100, 1000, clock::get);
+        for (int i = 0; i < 1000; i++) {
+            cache.putIfAbsent("key" + i, fingerprint(i), CompletableFuture.completedFuture("outcome" + i));
+        }
+        assertThat(cache.size()).isEqualTo(100);
+        assertThat(cache.putIfAbsent("key999", fingerprint(999), new CompletableFuture<>())).isNotNull();
+        assertThat(cache.putIfAbsent("key0", fingerprint(0), new CompletableFuture<>())).isNull();
+    }
+
+    @Test
+    @DisplayName("Test keys expire after the time to live")
+    void testExpiration() {
+        final var cache = new IdempotencyCache<String>(100, 1000, clock::get);
+        cache.putIfAbsent("key", fingerprint(1), CompletableFuture.completedFuture("first"));
+        clock.set(999);
+        assertThat(cache.putIfAbsent("key", fingerprint(1), new CompletableFuture<>())).isNotNull();
+        clock.set(1000);
+        assertThat(cache.putIfAbsent("key", fingerprint(1), new CompletableFuture<>())).isNull();
+        clock.set(5000);
+        cache.putIfAbsent("other", fingerprint(2), new CompletableFuture<>());
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    private static byte[] fingerprint(int request) {
+        return new byte[]{(byte) request, (byte) (request >>> 8)};
+    }
+}
@@ -0,0 +1,161 @@
+package com.moneytransferservice.journal;
+
+import com.moneytransferservice.fx.RateTable;
+import com.moneytransferservice.ledger.Ledger;
+import com.moneytransferservice.ledger.Recovery;
+import com.moneytransferservice.model.Account;
+import com.moneytransferservice.model.Transfer;
+import com.moneytransferservice.repository.InMemoryRepository;
+import com.moneytransferservice.repository.Repository;
+import com.moneytransferservice.repository.TransferStore;
+import org.javamoney.moneta.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Test journal group commit and recovery")
+class FileJournalTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void createJournalDirectory() throws IOException {
+        directory = Files.createTempDirectory("journal");
+    }
+
+    @AfterEach
+    void deleteJournalDirectory() throws IOException {
+        try (var files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test recovery rebuilds accounts and transfers")
+    void testRecovery() throws IOException {
+        final var accountRepository = new InMemoryRepository<Account>();
+        final var transferRepository = new TransferStore();
+        final var account = new Account().setName("Test Account").setMoney(Money.of(1000, "USD"));
+        final var account2 = new Account().setName("Test Account 2").setMoney(Money.of(1000, "USD"));
+        final var account3 = new Account().setName("Test Account 3").setMoney(Money.of(10, "EUR"));
+        final var transfer = new Transfer().setAmount(Money.of(150.5, "USD"));
+        try (var journal = open(accountRepository, transferRepository)) {
+            final var ledger = new Ledger(accountRepository, transferRepository, journal);
+            ledger.create(account).join();
+            ledger.create(account2).join();
+            ledger.create(account3).join();
+            transfer.setFromAccount(account.getId()).setToAccount(account2.getId());
+            ledger.commit(transfer).join();
+            ledger.delete(account3.getId()).join();
+        }
+
+        final var recoveredAccounts = new InMemoryRepository<Account>();
+        final var recoveredTransfers = new TransferStore();
+        open(recoveredAccounts, recoveredTransfers).close();
+        assertThat(recoveredAccounts.read(account.getId())).contains(account);
+        assertThat(recoveredAccounts.read(account2.getId())).contains(account2);
+        assertThat(recoveredAccounts.read(account3.getId())).isEmpty();
+        assertThat(recoveredAccounts.read(account.getId()).get().getMoney())
+                .isEqualTo(Money.of(849.5, "USD"));
+        assertThat(recoveredTransfers.read(transfer.getId())).contains(transfer);
+    }
+
+    @Test
+    @DisplayName("Test recovery replays the converted amounts of transfers between currencies")
+    void testConvertedTransferRecovery() throws IOException {
+        final var accountRepository = new InMemoryRepository<Account>();
+        final var transferRepository = new TransferStore();
+        final var account = new Account().setName("Test Account").setMoney(Money.of(1000, "USD"));
+        final var account2 = new Account().setName("Test Account 2").setMoney(Money.of(1000, "EUR"));
+        final var transfer = new Transfer().setAmount(Money.of(100, "USD"));
+        final var rates = Files.createTempFile("rates", ".properties");
+        try (var journal = open(accountRepository, transferRepository)) {
+            Files.writeString(rates, "EUR/USD = 1.25\n");
+            final var ledger = new Ledger(accountRepository, transferRepository, journal);
+            ledger.rates(RateTable.load(rates));
+            ledger.create(account).join();
+            ledger.create(account2).join();
+            transfer.setFromAccount(account.getId()).setToAccount(account2.getId());
+            ledger.commit(transfer).join();
+        } finally {
+            Files.delete(rates);
+        }
+
+        final var recoveredAccounts = new InMemoryRepository<Account>();
+        final var recoveredTransfers = new TransferStore();
+        open(recoveredAccounts, recoveredTransfers).close();
+        assertThat(recoveredAccounts.read(account2.getId()).get().getMoney())
+                .isEqualTo(Money.of(1080, "EUR"));
+        assertThat(recoveredTransfers.read(transfer.getId())).contains(transfer);
+        assertThat(recoveredTransfers.read(transfer.getId()).get().credited()).isEqualTo(8_000);
+    }
+
+    @Test
+    @DisplayName("Test torn tail is cut off and appending continues after the last valid record")
+    void testTornTail() throws IOException {
+        final var account = new Account().setName("Test Account").setMoney(Money.of(1000, "USD"));
+        final var account2 = new Account().setName("Test Account 2").setMoney(Money.of(1000, "USD"));
+        try (var journal = open(new InMemoryRepository<>(), new TransferStore())) {
+            new Ledger(new InMemoryRepository<>(), new TransferStore(), journal).create(account).join();
+        }
+        final Path segment;
+        try (var files = Files.list(directory)) {
+            segment = files.findFirst().get();
+        }
+        final var validSize = Files.size(segment);
+        try (var channel = FileChannel.open(segment, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 42, 1, 2, 3}));
+        }
+
+        final var recovery = new Recovery(new InMemoryRepository<>(), new TransferStore());
+        try (var journal = FileJournal.open(directory, FileJournal.DEFAULT_BATCH_SIZE, true, recovery)) {
+            assertThat(Files.size(segment)).isEqualTo(validSize);
+            assertThat(recovery.lastLsn()).isEqualTo(1);
+            new Ledger(new InMemoryRepository<>(), new TransferStore(), journal, recovery.lastLsn()).create(account2).join();
+        }
+        final var recoveredAccounts = new InMemoryRepository<Account>();
+        open(recoveredAccounts, new TransferStore()).close();
+        assertThat(recoveredAccounts.readAll().get()).containsExactlyInAnyOrder(account, account2);
+    }
+
+    @Test
+    @DisplayName("Test queued appends share fsyncs and complete once written")
+    void testGroupCommit() throws IOException {
+        final var accountRepository = new InMemoryRepository<Account>();
+        final var futures = new ArrayList<CompletableFuture<Void>>();
+        try (var journal = FileJournal.open(directory, 16, false, new Recovery(new InMemoryRepository<>(), new TransferStore()))) {
+            for (int i = 1; i <= 100; i++) {
+                final var account = new Account().setName("Account " + i).setMoney(Money.of(i, "USD"));
+                account.setId(accountRepository.create(account));
+                futures.add(journal.appendAccount(i, account));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        }
+        final var recoveredAccounts = new InMemoryRepository<Account>();
+        open(recoveredAccounts, new TransferStore()).close();
+        assertThat(recoveredAccounts.readAll().get())
+                .hasSameElementsAs(accountRepository.readAll().get());
+    }
+
+    private FileJournal open(Repository<Account> accountRepository,
+                             TransferStore transferRepository) throws IOException {
+        return FileJournal.open(directory, FileJournal.DEFAULT_BATCH_SIZE, true,
+                new Recovery(accountRepository, transferRepository));
+    }
+}
@@ -0,0 +1,221 @@
+package com.moneytransferservice.journal;
+
+import com.moneytransferservice.ledger.Ledger;
+import com.moneytransferservice.ledger.Recovery;
+import com.moneytransferservice.model.Account;
+import com.moneytransferservice.model.Transfer;
+import com.moneytransferservice.repository.InMemoryRepository;
+import com.moneytransferservice.repository.TransferStore;
+import org.javamoney.moneta.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Comparator;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Test snapshots of the account store")
+class SnapshotsTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void createJournalDirectory() throws IOException {
+        directory = Files.createTempDirectory("journal");
+    }
+
+    @AfterEach
+    void deleteJournalDirectory() throws IOException {
+        try (var files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test recovery from a snapshot and the journal tail after it")
+    void testRecoveryFromSnapshot() throws IOException {
+        final var accountRepository = new InMemoryRepository<Account>();
+        final var transferRepository = new TransferStore();
+        final var snapshots = new Snapshots(directory);
+        final var account = new Account().setName("Test Account").setMoney(Money.of(1000, "USD"));
+        final var account2 = new Account().setName("Test Account 2").setMoney(Money.of(1000, "USD"));
+        final var account3 = new Account().setName("Test Account 3").setMoney(Money.of(1000, "USD"));
+        try (var journal = open(new Recovery(accountRepository, transferRepository))) {
+            final var ledger = new Ledger(accountRepository, transferRepository, journal);
+            ledger.create(account).join();
+            ledger.create(account2).join();
+            ledger.commit(transfer(account, account2, 100)).join();
+            snapshots.write(ledger, journal);
+            ledger.create(account3).join();
+            ledger.commit(transfer(account2, account3, 300)).join();
+            ledger.commit(transfer(account3, account, 50)).join();
+            snapshots.write(ledger, journal);
+            ledger.commit(transfer(account, account2, 10)).join();
+            ledger.delete(account3.getId()).join();
+        }
+
+        final var recoveredAccounts = new InMemoryRepository<Account>();
+        final var recoveredTransfers = new TransferStore();
+        final var recovery = new Recovery(recoveredAccounts, recoveredTransfers,
+                snapshots.load(recoveredAccounts, recoveredTransfers));
+        open(recovery).close();
+        assertThat(recovery.lastLsn()).isEqualTo(8);
+        assertThat(recoveredAccounts.readAll().get()).containsExactlyInAnyOrder(account, account2);
+        assertThat(recoveredAccounts.read(account.getId()).get().getMoney())
+                .isEqualTo(Money.of(940, "USD"));
+        assertThat(recoveredTransfers.readAll())
+                .hasSameElementsAs(transferRepository.readAll());
+    }
+
+    @Test
+    @DisplayName("Test snapshots discard the journal segments they cover")
+    void testJournalSegmentsDiscarded() throws IOException {
+        final var accountRepository = new InMemoryRepository<Account>();
+        final var transferRepository = new TransferStore();
+        try (var journal = open(new Recovery(accountRepository, transferRepository))) {
+            final var ledger = new Ledger(accountRepository, transferRepository, journal);
+            final var snapshots = new Snapshots(directory);
+            for (int i = 0; i < 3; i++) {
+                ledger.create(new Account().setName("Account " + i).setMoney(Money.of(i, "USD"))).join();
+                snapshots.write(ledger, journal);
+            }
+        }
+        try (var files = Files.list(directory)) {
+            assertThat(files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith("journal-"))
+                    .count()).isEqualTo(1);
+        }
+        try (var files = Files.list(directory)) {
+            assertThat(files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith("snapshot-"))
+                    .count()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    @DisplayName("Test snapshots append only the transfers recorded since the previous one to the history")
+    void testTransferHistoryAppended() throws IOException {
+        final var accountRepository = new InMemoryRepository<Account>();
+        final var transferRepository = new TransferStore();
+        final var account = new Account().setName("Test Account").setMoney(Money.of(1000, "USD"));
+        final var account2 = new Account().setName("Test Account 2").setMoney(Money.of(1000, "USD"));
+        try (var journal = open(new Recovery(accountRepository, transferRepository))) {
+            final var ledger = new Ledger(accountRepository, transferRepository, journal);
+            final var snapshots = new Snapshots(directory);
+            ledger.create(account).join();
+            ledger.create(account2).join();
+            for (int i = 0; i < 3; i++) {
+                ledger.commit(transfer(account, account2, 10)).join();
+            }
+            snapshots.write(ledger, journal);
+            snapshots.write(ledger, journal);
+            ledger.commit(transfer(account2, account, 5)).join();
+            snapshots.write(ledger, journal);
+        }
+        try (var files = Files.list(directory)) {
+            assertThat(files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith("history-"))
+                    .sorted()
+                    .collect(Collectors.toList()))
+                    .containsExactly("history-00000000000000000000.bin", "history-00000000000000000003.bin");
+        }
+
+        final var recoveredAccounts = new InMemoryRepository<Account>();
+        final var recoveredTransfers = new TransferStore();
+        final var recovery = new Recovery(recoveredAccounts, recoveredTransfers,
+                new Snapshots(directory).load(recoveredAccounts, recoveredTransfers));
+        open(recovery).close();
+        assertThat(recoveredTransfers.readAll()).isEqualTo(transferRepository.readAll());
+        assertThat(recoveredAccounts.read(account.getId()).get().getMoney()).isEqualTo(Money.of(975, "USD"));
+    }
+
+    @Test
+    @DisplayName("Test recovery keeps a checkpointed account store and replays only the journal tail into it")
+    void testAccountStoreKept() throws IOException {
+        final var storeDirectory = directory.resolve("accounts");
+        final var store = new FileAccountRepository(storeDirectory);
+        final var transferRepository = new TransferStore();
+        final var account = new Account().setName("Test Account").setMoney(Money.of(1000, "USD"));
+        final var account2 = new Account().setName("Test Account 2").setMoney(Money.of(1000, "USD"));
+        final var account3 = new Account().setName("Test Account 3").setMoney(Money.of(1000, "USD"));
+        final var account4 = new Account().setName("Test Account 4").setMoney(Money.of(1000, "USD"));
+        final long snapshotLsn;
+        try (var journal = open(new Recovery(store, transferRepository))) {
+            store.writeBehind(journal);
+            final var ledger = new Ledger(store, transferRepository, journal);
+            ledger.create(account).join();
+            ledger.create(account2).join();
+            ledger.create(account3).join();
+            ledger.commit(transfer(account, account2, 100)).join();
+            snapshotLsn = ledger.lastLsn();
+            new Snapshots(directory, store).write(ledger, journal);
+            ledger.create(account4).join();
+            ledger.commit(transfer(account2, account4, 30)).join();
+            store.close();
+        }
+        final var untouched = fileKey(storeDirectory, account3);
+
+        final var recoveredAccounts = new FileAccountRepository(storeDirectory);
+        final var recoveredTransfers = new TransferStore();
+        assertThat(recoveredAccounts.checkpointLsn()).isEqualTo(snapshotLsn);
+        final var recovery = new Recovery(recoveredAccounts, recoveredTransfers,
+                new Snapshots(directory, recoveredAccounts).load(recoveredAccounts, recoveredTransfers));
+        open(recovery).close();
+        assertThat(fileKey(storeDirectory, account3)).isEqualTo(untouched);
+        assertThat(recoveredAccounts.readAll().get()).extracting(Account::getId)
+                .containsExactlyInAnyOrder(account.getId(), account2.getId(), account3.getId(), account4.getId());
+        assertThat(recoveredAccounts.get(account2.getId()).getMoney()).isEqualTo(Money.of(1070, "USD"));
+        assertThat(recoveredTransfers.readAll()).isEqualTo(transferRepository.readAll());
+    }
+
+    @Test
+    @DisplayName("Test recovery rebuilds an account store older than the snapshot from it")
+    void testAccountStoreRebuilt() throws IOException {
+        final var accountRepository = new InMemoryRepository<Account>();
+        final var transferRepository = new TransferStore();
+        final var account = new Account().setName("Test Account").setMoney(Money.of(1000, "USD"));
+        final var account2 = new Account().setName("Test Account 2").setMoney(Money.of(1000, "USD"));
+        try (var journal = open(new Recovery(accountRepository, transferRepository))) {
+            final var ledger = new Ledger(accountRepository, transferRepository, journal);
+            ledger.create(account).join();
+            ledger.create(account2).join();
+            ledger.commit(transfer(account, account2, 100)).join();
+            new Snapshots(directory).write(ledger, journal);
+            ledger.commit(transfer(account2, account, 30)).join();
+        }
+        final var store = new FileAccountRepository(directory.resolve("accounts"));
+        final var stale = new Account().setName("Stale Account").setMoney(Money.of(1, "USD"));
+        store.create(stale);
+
+        final var recovery = new Recovery(store, new TransferStore(),
+                new Snapshots(directory, store).load(store, new TransferStore()));
+        open(recovery).close();
+        assertThat(store.readAll().get()).containsExactlyInAnyOrder(account, account2);
+        assertThat(store.get(account.getId()).getMoney()).isEqualTo(Money.of(930, "USD"));
+    }
+
+    private static Object fileKey(Path storeDirectory, Account account) throws IOException {
+        return Files.readAttributes(storeDirectory.resolve(account.getId() + ".account"), BasicFileAttributes.class)
+                .fileKey();
+    }
+
+    private FileJournal open(Recovery recovery) throws IOException {
+        return FileJournal.open(directory, FileJournal.DEFAULT_BATCH_SIZE, true, recovery);
+    }
+
+    private static Transfer transfer(Account from, Account to, long amount) {
+        return new Transfer()
+                .setFromAccount(from.getId())
+                .setToAccount(to.getId())
+                .setAmount(Money.of(amount, "USD"));
+    }
+}
@@ -0,0 +1,379 @@
+package com.moneytransferservice.ledger;
+
+import com.moneytransferservice.fx.RateTable;
+import com.moneytransferservice.journal.Journal;
+import com.moneytransferservice.model.Account;
+import com.moneytransferservice.model.Currencies;
+import com.moneytransferservice.model.Transfer;
+import com.moneytransferservice.repository.InMemoryRepository;
+import com.moneytransferservice.repository.Repository;
+import com.moneytransferservice.repository.TransferStore;
+import org.javamoney.moneta.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Test Ledger transfer engine")
+class LedgerTest {
+
+    private Account testAccount;
+    private Account testAccount2;
+    private Repository<Account> testAccountRepository;
+    private TransferStore testTransferRepository;
+    private Ledger ledger;
+
+    @BeforeEach
+    void testDataPreparation() {
+        testAccount = new Account()
+                .setName("Test Account")
+                .setMoney(Money.of(1000, "USD"));
+        testAccount2 = new Account()
+                .setName("Test Account 2")
+                .setMoney(Money.of(1000, "USD"));
+        testAccountRepository = new InMemoryRepository<>();
+        testTransferRepository = new TransferStore();
+        testAccount.setId(testAccountRepository.create(testAccount));
+        testAccount2.setId(testAccountRepository.create(testAccount2));
+        ledger = new Ledger(testAccountRepository, testTransferRepository);
+    }
+
+    @Test
+    @DisplayName("Test committing transfer stores it and moves money")
+    void testCommit() {
+        final var transfer = transfer(testAccount, testAccount2, Money.of(100, "USD"));
+        assertThat(ledger.commit(transfer).join()).isEqualTo(TransferResult.COMMITTED);
+        assertThat(testTransferRepository.read(transfer.getId())).contains(transfer);
+        assertThat(testAccount.getMoney()).isEqualTo(Money.of(900, "USD"));
+        assertThat(testAccount2.getMoney()).isEqualTo(Money.of(1100, "USD"));
+    }
+
+    @Test
+    @DisplayName("Test rejected transfers leave balances untouched")
+    void testRejections() {
+        assertThat(ledger.commit(transfer(testAccount, testAccount2, Money.of(5000, "USD"))).join())
+                .isEqualTo(TransferResult.INVALID_AMOUNT);
+        assertThat(ledger.commit(transfer(testAccount, testAccount2, Money.of(-100, "USD"))).join())
+                .isEqualTo(TransferResult.INVALID_AMOUNT);
+        assertThat(ledger.commit(transfer(testAccount, testAccount2, Money.of(100, "EUR"))).join())
+                .isEqualTo(TransferResult.INVALID_CURRENCY);
+        assertThat(ledger.commit(new Transfer()
+                .setFromAccount(UUID.randomUUID())
+                .setToAccount(testAccount2.getId())
+                .setAmount(Money.of(100, "USD"))).join())
+                .isEqualTo(TransferResult.FROM_ACCOUNT_NOT_FOUND);
+        assertThat(ledger.commit(new Transfer()
+                .setFromAccount(testAccount.getId())
+                .setToAccount(UUID.randomUUID())
+                .setAmount(Money.of(100, "USD"))).join())
+                .isEqualTo(TransferResult.TO_ACCOUNT_NOT_FOUND);
+        assertThat(testAccount.getMoney()).isEqualTo(Money.of(1000, "USD"));
+        assertThat(testAccount2.getMoney()).isEqualTo(Money.of(1000, "USD"));
+    }
+
+    @Test
+    @DisplayName("Test atomic batch is reverted by a rejected transfer")
+    void testAtomicBatch() {
+        final var results = ledger.commitAll(List.of(
+                transfer(testAccount, testAccount2, Money.of(600, "USD")),
+                transfer(testAccount, testAccount2, Money.of(600, "USD")),
+                transfer(testAccount2, testAccount, Money.of(100, "USD"))), true).join();
+        assertThat(results).containsExactly(
+                TransferResult.ABORTED, TransferResult.INVALID_AMOUNT, TransferResult.ABORTED);
+        assertThat(testAccount.getMoney()).isEqualTo(Money.of(1000, "USD"));
+        assertThat(testAccount2.getMoney()).isEqualTo(Money.of(1000, "USD"));
+        assertThat(testTransferRepository.readAll()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Test best-effort batch applies every valid transfer")
+    void testBestEffortBatch() {
+        final var results = ledger.commitAll(List.of(
+                transfer(testAccount, testAccount2, Money.of(600, "USD")),
+                transfer(testAccount, testAccount2, Money.of(600, "USD")),
+                transfer(testAccount2, testAccount, Money.of(100, "USD"))), false).join();
+        assertThat(results).containsExactly(
+                TransferResult.COMMITTED, TransferResult.INVALID_AMOUNT, TransferResult.COMMITTED);
+        assertThat(testAccount.getMoney()).isEqualTo(Money.of(500, "USD"));
+        assertThat(testAccount2.getMoney()).isEqualTo(Money.of(1500, "USD"));
+        assertThat(testTransferRepository.readAll()).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("Test a failed journal append stops the ledger")
+    void testJournalFailure() {
+        ledger = new Ledger(testAccountRepository, testTransferRepository, new Journal() {
+            @Override
+            public CompletableFuture<Void> appendAccount(long lsn, Account account) {
+                return CompletableFuture.completedFuture(null);
+            }
+
+            @Override
+            public CompletableFuture<Void> appendAccountDeletion(long lsn, UUID uuid) {
+                return CompletableFuture.completedFuture(null);
+            }
+
+            @Override
+            public CompletableFuture<Void> appendTransfer(long lsn, Transfer transfer) {
+                return CompletableFuture.failedFuture(new IOException("No space left on device"));
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        assertThat(ledger.create(new Account().setName("Account").setMoney(Money.of(1, "USD"))).join())
+                .isNotNull();
+        assertThatThrownBy(() -> ledger.commit(transfer(testAccount, testAccount2, Money.of(100, "USD"))).join())
+                .hasRootCauseInstanceOf(IOException.class);
+        assertThat(ledger.isStopped()).isTrue();
+
+        assertThatThrownBy(() -> ledger.commit(transfer(testAccount, testAccount2, Money.of(100, "USD"))).join())
+                .hasMessageContaining("Ledger stopped");
+        assertThatThrownBy(() -> ledger.create(new Account().setName("Account").setMoney(Money.of(1, "USD"))).join())
+                .hasMessageContaining("Ledger stopped");
+        assertThatThrownBy(() -> ledger.delete(testAccount2.getId()).join())
+                .hasMessageContaining("Ledger stopped");
+        assertThat(testAccount.getMoney()).isEqualTo(Money.of(900, "USD"));
+        assertThat(testAccountRepository.get(testAccount2.getId())).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Test transfers between currencies debit and credit converted amounts")
+    void testConvertedTransfers() throws IOException {
+        final var euroAccount = new Account().setName("Euro Account").setMoney(Money.of(1000, "EUR"));
+        euroAccount.setId(testAccountRepository.create(euroAccount));
+        final var rates = Files.createTempFile("rates", ".properties");
+        try {
+            Files.writeString(rates, "EUR/USD = 1.25\n");
+            ledger.rates(RateTable.load(rates));
+        } finally {
+            Files.delete(rates);
+        }
+
+        final var transfer = transfer(testAccount, euroAccount, Money.of(100, "USD"));
+        assertThat(ledger.commit(transfer).join()).isEqualTo(TransferResult.COMMITTED);
+        assertThat(transfer.debited()).isEqualTo(10_000);
+        assertThat(transfer.credited()).isEqualTo(8_000);
+        assertThat(testAccount.getMoney()).isEqualTo(Money.of(900, "USD"));
+        assertThat(euroAccount.getMoney()).isEqualTo(Money.of(1080, "EUR"));
+
+        final var results = ledger.commitAll(List.of(
+                transfer(euroAccount, testAccount2, Money.of(100, "EUR")),
+                transfer(euroAccount, testAccount, Money.of(5000, "USD"))), true).join();
+        assertThat(results).containsExactly(TransferResult.ABORTED, TransferResult.INVALID_AMOUNT);
+        assertThat(euroAccount.getMoney()).isEqualTo(Money.of(1080, "EUR"));
+        assertThat(testAccount2.getMoney()).isEqualTo(Money.of(1000, "USD"));
+        assertThat(ledger.commit(transfer(testAccount, euroAccount, Money.of(100, "GBP"))).join())
+                .isEqualTo(TransferResult.INVALID_CURRENCY);
+    }
+
+    @Test
+    @DisplayName("Test concurrent transfers neither overdraw nor lose money")
+    void testConcurrentTransfers() throws InterruptedException {
+        final var threads = 8;
+        final var transfersPerThread = 1000;
+        final var executor = Executors.newFixedThreadPool(threads);
+        final var start = new CountDownLatch(1);
+        final var committed = new AtomicInteger();
+        for (int i = 0; i < threads; i++) {
+            final var forward = i % 2 == 0;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int j = 0; j < transfersPerThread; j++) {
+                    final var transfer = forward
+                            ? transfer(testAccount, testAccount2, Money.of(7, "USD"))
+                            : transfer(testAccount2, testAccount, Money.of(5, "USD"));
+                    if (ledger.commit(transfer).join().isCommitted()) {
+                        committed.incrementAndGet();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        assertThat(testAccount.getMoney().isPositive()).isTrue();
+        assertThat(testAccount2.getMoney().isPositive()).isTrue();
+        assertThat(testAccount.getMoney().add(testAccount2.getMoney()))
+                .isEqualTo(Money.of(2000, "USD"));
+        assertThat(testTransferRepository.readAll()).hasSize(committed.get());
+    }
+
+    @Test
+    @DisplayName("Test transfer history of an account is ordered, paginated and rebuilt")
+    void testTransferHistory() {
+        final var testAccount3 = new Account().setName("Test Account 3").setMoney(Money.of(1000, "USD"));
+        testAccount3.setId(testAccountRepository.create(testAccount3));
+        final var first = transfer(testAccount, testAccount2, Money.of(1, "USD"));
+        final var second = transfer(testAccount2, testAccount3, Money.of(2, "USD"));
+        final var third = transfer(testAccount3, testAccount, Money.of(3, "USD"));
+        final var rejected = transfer(testAccount, testAccount2, Money.of(5000, "USD"));
+        ledger.commit(first).join();
+        ledger.commit(second).join();
+        ledger.commit(third).join();
+        ledger.commit(rejected).join();
+
+        assertThat(ledger.transfersOf(testAccount.getId(), 0, 10)).containsExactly(first, third);
+        assertThat(ledger.transfersOf(testAccount2.getId(), 0, 10)).containsExactly(first, second);
+        assertThat(ledger.transfersOf(testAccount3.getId(), 0, 1)).containsExactly(second);
+        assertThat(ledger.transfersOf(testAccount3.getId(), second.lsn(), 1)).containsExactly(third);
+        assertThat(ledger.transfersOf(testAccount3.getId(), third.lsn(), 1)).isEmpty();
+        assertThat(ledger.transfersOf(UUID.randomUUID(), 0, 10)).isEmpty();
+
+        final var rebuilt = new Ledger(testAccountRepository, testTransferRepository);
+        assertThat(rebuilt.transfersOf(testAccount.getId(), 0, 10)).containsExactly(first, third);
+        rebuilt.delete(testAccount.getId()).join();
+        assertThat(rebuilt.transfersOf(testAccount.getId(), 0, 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Test concurrent credits to a split account and debits from it keep balances consistent")
+    void testSplitAccount() throws InterruptedException {
+        assertThat(ledger.split(testAccount2.getId(), 4)).isTrue();
+        assertThat(ledger.split(UUID.randomUUID(), 4)).isFalse();
+        final var senders = new Account[8];
+        for (int i = 0; i < senders.length; i++) {
+            senders[i] = new Account().setName("Sender " + i).setMoney(Money.of(1000, "USD"));
+            senders[i].setId(testAccountRepository.create(senders[i]));
+        }
+        final var executor = Executors.newFixedThreadPool(senders.length);
+        final var start = new CountDownLatch(1);
+        for (Account sender : senders) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = 0; i < 100; i++) {
+                    ledger.commit(transfer(sender, testAccount2, Money.of(1, "USD"))).join();
+                    if (i % 10 == 0) {
+                        ledger.commit(transfer(testAccount2, sender, Money.of(5, "USD"))).join();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(testAccount2.subBalances()).isEqualTo(4);
+        assertThat(testAccount2.getMoney()).isEqualTo(Money.of(1000 + 8 * (100 - 50), "USD"));
+        for (Account sender : senders) {
+            assertThat(sender.getMoney()).isEqualTo(Money.of(1000 - 100 + 50, "USD"));
+        }
+        assertThat(ledger.transfersOf(testAccount2.getId(), 0, 1000)).hasSize(8 * 110)
+                .isSortedAccordingTo(Comparator.comparingLong(Transfer::lsn));
+        assertThat(ledger.commit(transfer(testAccount2, testAccount, Money.of(1399, "USD"))).join())
+                .isEqualTo(TransferResult.COMMITTED);
+        assertThat(ledger.commit(transfer(testAccount2, testAccount, Money.of(1, "USD"))).join())
+                .isEqualTo(TransferResult.INVALID_AMOUNT);
+    }
+
+    @Test
+    @DisplayName("Test reconciliation matches balances with issued money across currencies")
+    void testReconciliation() throws IOException {
+        final var usd = Currencies.indexOf("USD");
+        final var eur = Currencies.indexOf("EUR");
+        final var euroAccount = new Account().setName("Euro Account").setMoney(Money.of(1000, "EUR"));
+        ledger.create(euroAccount).join();
+        final var rates = Files.createTempFile("rates", ".properties");
+        try {
+            Files.writeString(rates, "EUR/USD = 1.25\n");
+            ledger.rates(RateTable.load(rates));
+        } finally {
+            Files.delete(rates);
+        }
+        ledger.commit(transfer(testAccount, euroAccount, Money.of(100, "USD"))).join();
+        ledger.update(testAccount2.getId(), new Account()
+                .setId(testAccount2.getId())
+                .setName("Test Account 2")
+                .setMoney(Money.of(500, "USD"))).join();
+        ledger.delete(testAccount.getId()).join();
+        assertThat(ledger.lastReconciliation()).isNull();
+
+        final var reconciliation = ledger.reconcile(ForkJoinPool.commonPool());
+        assertThat(reconciliation.isBalanced()).isTrue();
+        assertThat(reconciliation.accounts()).isEqualTo(2);
+        assertThat(reconciliation.balance(usd)).isEqualTo(50_000);
+        assertThat(reconciliation.balance(eur)).isEqualTo(108_000);
+        assertThat(reconciliation.issued(eur)).isEqualTo(108_000);
+        assertThat(reconciliation.involves(Currencies.indexOf("GBP"))).isFalse();
+        assertThat(ledger.lastReconciliation()).isSameAs(reconciliation);
+
+        testAccountRepository.get(testAccount2.getId()).acceptMoney(1);
+        assertThat(ledger.reconcile(ForkJoinPool.commonPool()).drift(usd)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Test reconciliations running during transfers, creations and deletions find no drift")
+    void testConcurrentReconciliation() throws InterruptedException {
+        final var usd = Currencies.indexOf("USD");
+        final var accounts = new Account[64];
+        for (int i = 0; i < accounts.length; i++) {
+            accounts[i] = new Account().setName("Account " + i).setMoney(Money.of(1000, "USD"));
+            ledger.create(accounts[i]).join();
+        }
+        ledger.split(accounts[0].getId(), 4);
+        final var threads = 4;
+        final var executor = Executors.newFixedThreadPool(threads);
+        final var running = new AtomicBoolean(true);
+        for (int i = 0; i < threads; i++) {
+            executor.execute(() -> {
+                final var random = ThreadLocalRandom.current();
+                while (running.get()) {
+                    final var from = accounts[1 + random.nextInt(accounts.length - 1)];
+                    final var to = accounts[random.nextInt(accounts.length)];
+                    ledger.commit(transfer(from, to, Money.of(random.nextInt(1, 10), "USD"))).join();
+                    if (random.nextInt(100) == 0) {
+                        final var account = new Account().setName("Temporary").setMoney(Money.of(10, "USD"));
+                        ledger.create(account).join();
+                        ledger.commit(transfer(from, account, Money.of(1, "USD"))).join();
+                        ledger.delete(account.getId()).join();
+                    }
+                }
+            });
+        }
+        try {
+            for (int i = 0; i < 50; i++) {
+                final var reconciliation = ledger.reconcile(ForkJoinPool.commonPool());
+                assertThat(reconciliation.drift(usd)).isZero();
+            }
+        } finally {
+            running.set(false);
+            executor.shutdown();
+        }
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(ledger.reconcile(ForkJoinPool.commonPool()).isBalanced()).isTrue();
+    }
+
+    private static Transfer transfer(Account from, Account to, Money amount) {
+        return new Transfer()
+                .setFromAccount(from.getId())
+                .setToAccount(to.getId())
+                .setAmount(amount);
+    }
+}
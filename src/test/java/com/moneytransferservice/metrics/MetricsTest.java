@@ -0,0 +1,87 @@
+package com.moneytransferservice.metrics;
+
+import com.moneytransferservice.ledger.TransferResult;
+import com.moneytransferservice.repository.CachingRepository;
+import com.moneytransferservice.repository.InMemoryRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Test metrics")
+class MetricsTest {
+
+    @Test
+    @DisplayName("Test latencies fall into a bucket no wider than the configured relative error")
+    void testHistogramBuckets() {
+        for (int subBuckets : new int[]{1, 8, 128}) {
+            final var histogram = new LatencyHistogram(subBuckets);
+            assertThat(histogram.index(0)).isEqualTo(0);
+            for (long value = 1; value > 0 && value < Long.MAX_VALUE / 3; value = value * 3 + 1) {
+                final var index = histogram.index(value);
+                final var lowest = index == 0 ? 0 : histogram.highestValue(index - 1) + 1;
+                assertThat(histogram.highestValue(index)).isGreaterThanOrEqualTo(value);
+                assertThat(lowest).isLessThanOrEqualTo(value);
+                assertThat((double) (histogram.highestValue(index) - lowest)).isLessThanOrEqualTo(
+                        Math.max(1.0, (double) lowest / subBuckets));
+                assertThat(histogram.index(histogram.highestValue(index) + 1)).isEqualTo(index + 1);
+            }
+            assertThat(histogram.highestValue(histogram.index(Long.MAX_VALUE))).isEqualTo(Long.MAX_VALUE);
+        }
+    }
+
+    @Test
+    @DisplayName("Test percentiles are reported within the relative error")
+    void testHistogramPercentiles() {
+        final var histogram = new LatencyHistogram(8);
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value * 1_000_000);
+        }
+        assertThat(histogram.count()).isEqualTo(1000);
+        assertThat(histogram.max()).isEqualTo(1_000_000_000);
+        assertThat(histogram.mean()).isEqualTo(500_500_000);
+        assertThat(histogram.percentile(50)).isBetween(500_000_000L, 562_500_000L);
+        assertThat(histogram.percentile(99)).isBetween(990_000_000L, 1_000_000_000L);
+        assertThat(histogram.percentile(100)).isEqualTo(1_000_000_000);
+    }
+
+    @Test
+    @DisplayName("Test metrics are exposed in the Prometheus text format")
+    void testScrape() {
+        final var metrics = new Metrics();
+        final var histogram = metrics.histogram("POST", "/transfer/commit");
+        histogram.record(1_000);
+        histogram.record(1_500_000);
+        histogram.record(Long.MAX_VALUE / 2);
+        metrics.recordRejection(TransferResult.INVALID_AMOUNT);
+        metrics.recordRejection(TransferResult.INVALID_AMOUNT);
+        metrics.recordMalformedTransfer();
+        metrics.eventLoopLag("vert.x-eventloop-thread-0").record(2_000_000);
+        final var cache = new CachingRepository<>(new InMemoryRepository<String>(), 16);
+        final var uuid = cache.create("value");
+        for (int i = 0; i < 4; i++) {
+            cache.get(uuid);
+        }
+        metrics.cache("accounts", cache);
+
+        final var scrape = metrics.scrape();
+        assertThat(scrape).contains(
+                "# TYPE http_server_request_duration_seconds histogram\n",
+                "http_server_request_duration_seconds_bucket{method=\"POST\",route=\"/transfer/commit\",le=\"1.023E-6\"} 1\n",
+                "http_server_request_duration_seconds_bucket{method=\"POST\",route=\"/transfer/commit\",le=\"0.001572863\"} 2\n",
+                "http_server_request_duration_seconds_bucket{method=\"POST\",route=\"/transfer/commit\",le=\"+Inf\"} 3\n",
+                "http_server_request_duration_seconds_count{method=\"POST\",route=\"/transfer/commit\"} 3\n",
+                "transfer_rejections_total{cause=\"INVALID_AMOUNT\"} 2\n",
+                "transfer_rejections_total{cause=\"FROM_ACCOUNT_NOT_FOUND\"} 0\n",
+                "transfer_rejections_total{cause=\"MALFORMED_REQUEST\"} 1\n",
+                "vertx_event_loop_lag_seconds{loop=\"vert.x-eventloop-thread-0\"} 0.002\n",
+                "vertx_event_loop_lag_max_seconds{loop=\"vert.x-eventloop-thread-0\"} 0.002\n",
+                "cache_requests_total{cache=\"accounts\",result=\"hit\"} 3\n",
+                "cache_requests_total{cache=\"accounts\",result=\"miss\"} 1\n",
+                "cache_hit_ratio{cache=\"accounts\"} 0.75\n",
+                "cache_evictions_total{cache=\"accounts\"} 0\n");
+        assertThat(scrape).doesNotContain("COMMITTED");
+        assertThat(metrics.scrape())
+                .contains("vertx_event_loop_lag_max_seconds{loop=\"vert.x-eventloop-thread-0\"} 0.0\n");
+    }
+}
@@ -49,4 +49,36 @@ class AccountTest {
                 )
         );
     }
+
+    @Test
+    void testMinorUnits() {
+        assertAll(
+                () -> assertEquals(10000, testAccount.minorUnits()),
+                () -> assertEquals(Currencies.indexOf("USD"), testAccount.currency()),
+                () -> assertEquals(
+                        Money.of(100.25, "USD"),
+                        testAccount.acceptMoney(25).getMoney()
+                )
+        );
+    }
+
+    @Test
+    void testBalanceOverflow() {
+        testAccount.acceptMoney(Long.MAX_VALUE - testAccount.minorUnits());
+        assertThrows(ArithmeticException.class, () -> testAccount.acceptMoney(1));
+    }
+
+    @Test
+    void testSubBalances() {
+        testAccount.split(4).acceptMoney(10, 0).acceptMoney(20, 3).withdrawMoney(50);
+        assertAll(
+                () -> assertEquals(4, testAccount.subBalances()),
+                () -> assertEquals(9980, testAccount.minorUnits()),
+                () -> assertEquals(Money.of(99.80, "USD"), testAccount.getMoney()),
+                () -> assertEquals(
+                        new Account().setName(testAccount.getName()).setMoney(Money.of(99.80, "USD")),
+                        new Account().setName(testAccount.getName()).setMoney(testAccount.getMoney())),
+                () -> assertEquals(500, testAccount.setMoney(Currencies.indexOf("USD"), 500).minorUnits())
+        );
+    }
 }
@@ -0,0 +1,33 @@
+package com.moneytransferservice.model;
+
+import org.javamoney.moneta.Money;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CurrenciesTest {
+
+    @Test
+    void testMinorUnitsRoundTrip() {
+        assertAll(
+                () -> assertEquals(12345, Currencies.toMinorUnits(Money.of(123.45, "USD"))),
+                () -> assertEquals(500, Currencies.toMinorUnits(Money.of(500, "JPY"))),
+                () -> assertEquals(
+                        Money.of(123.45, "USD"),
+                        Currencies.toMoney(12345, Currencies.indexOf("USD"))
+                )
+        );
+    }
+
+    @Test
+    void testUnrepresentableAmounts() {
+        assertAll(
+                () -> assertThrows(IllegalArgumentException.class,
+                        () -> Currencies.toMinorUnits(Money.of(0.001, "USD"))),
+                () -> assertThrows(IllegalArgumentException.class,
+                        () -> Currencies.toMinorUnits(Money.of(Long.MAX_VALUE, "USD"))),
+                () -> assertThrows(IllegalArgumentException.class,
+                        () -> Currencies.indexOf("???"))
+        );
+    }
+}
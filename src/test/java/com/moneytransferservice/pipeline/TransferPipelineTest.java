@@ -0,0 +1,79 @@
+package com.moneytransferservice.pipeline;
+
+import com.moneytransferservice.ledger.Ledger;
+import com.moneytransferservice.ledger.TransferResult;
+import com.moneytransferservice.model.Account;
+import com.moneytransferservice.model.Transfer;
+import com.moneytransferservice.repository.InMemoryRepository;
+import com.moneytransferservice.repository.TransferStore;
+import org.javamoney.moneta.Money;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Test asynchronous transfer pipeline")
+class TransferPipelineTest {
+
+    @Test
+    @DisplayName("Test queued transfers are committed and a full queue refuses new ones")
+    void testBackpressure() throws InterruptedException {
+        final var accountRepository = new InMemoryRepository<Account>();
+        final var transferRepository = new TransferStore();
+        final var account = new Account().setName("Test Account").setMoney(Money.of(1000, "USD"));
+        final var account2 = new Account().setName("Test Account 2").setMoney(Money.of(1000, "USD"));
+        account.setId(accountRepository.create(account));
+        account2.setId(accountRepository.create(account2));
+        final var committing = new CountDownLatch(1);
+        final var release = new CountDownLatch(1);
+        final var ledger = new Ledger(accountRepository, transferRepository) {
+            @Override
+            public CompletableFuture<List<TransferResult>> commitAll(List<Transfer> transfers, boolean atomic) {
+                committing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.commitAll(transfers, atomic);
+            }
+        };
+
+        try (var pipeline = new TransferPipeline(ledger, 1, 16)) {
+            final var first = transfer(account, account2, 100);
+            final var firstOutcome = pipeline.submit(first);
+            committing.await();
+            final var second = transfer(account, account2, 2000);
+            final var secondOutcome = pipeline.submit(second);
+            final var third = transfer(account, account2, 100);
+            assertThat(pipeline.submit(third)).isNull();
+            assertThat(third.getId()).isNull();
+            assertThat(pipeline.outcome(first.getId())).isSameAs(firstOutcome);
+            assertThat(firstOutcome).isNotDone();
+            release.countDown();
+
+            assertThat(firstOutcome.join()).isEqualTo(TransferResult.COMMITTED);
+            assertThat(secondOutcome.join()).isEqualTo(TransferResult.INVALID_AMOUNT);
+            assertThat(transferRepository.read(first.getId())).contains(first);
+            assertThat(transferRepository.read(second.getId())).isEmpty();
+            assertThat(pipeline.outcome(second.getId())).isSameAs(secondOutcome);
+            assertThat(pipeline.outcome(UUID.randomUUID())).isNull();
+            assertThat(account.getMoney()).isEqualTo(Money.of(900, "USD"));
+            assertThatThrownBy(() -> pipeline.submit(new Transfer().setAmount(Money.of(1, "USD"))))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    private static Transfer transfer(Account from, Account to, long amount) {
+        return new Transfer()
+                .setFromAccount(from.getId())
+                .setToAccount(to.getId())
+                .setAmount(Money.of(amount, "USD"));
+    }
+}
@@ -0,0 +1,115 @@
+package com.moneytransferservice.repository;
+
+import com.moneytransferservice.journal.FileAccountRepository;
+import com.moneytransferservice.ledger.Ledger;
+import com.moneytransferservice.ledger.TransferResult;
+import com.moneytransferservice.model.Account;
+import com.moneytransferservice.model.Transfer;
+import org.javamoney.moneta.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Test read-through cache in front of a file-backed account store")
+class CachingRepositoryTest {
+
+    private Path directory;
+    private FileAccountRepository store;
+
+    @BeforeEach
+    void createStoreDirectory() throws IOException {
+        directory = Files.createTempDirectory("accounts");
+        store = new FileAccountRepository(directory);
+    }
+
+    @AfterEach
+    void deleteStoreDirectory() throws IOException {
+        try (var files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test transfers write through to the store, also when accounts are evicted")
+    void testWriteThrough() throws IOException {
+        final var cache = new CachingRepository<>(store, 2);
+        final var ledger = new Ledger(cache, new TransferStore());
+        final var accounts = new ArrayList<Account>();
+        for (int i = 0; i < 4; i++) {
+            final var account = new Account().setName("Test Account " + i).setMoney(Money.of(1000, "USD"));
+            ledger.create(account).join();
+            accounts.add(account);
+        }
+        for (int i = 0; i < 8; i++) {
+            final var transfer = new Transfer()
+                    .setFromAccount(accounts.get(i % 4).getId())
+                    .setToAccount(accounts.get((i + 1) % 4).getId())
+                    .setAmount(Money.of(100 * (i + 1), "USD"));
+            assertThat(ledger.commit(transfer).join()).isEqualTo(TransferResult.COMMITTED);
+        }
+
+        assertThat(cache.size()).isLessThanOrEqualTo(2);
+        assertThat(cache.evictions()).isPositive();
+        assertThat(cache.hits()).isPositive();
+        final var reopened = new FileAccountRepository(directory);
+        assertThat(reopened.get(accounts.get(0).getId()).getMoney()).isEqualTo(Money.of(1000 - 100 - 500 + 400 + 800, "USD"));
+        assertThat(reopened.get(accounts.get(1).getId()).getMoney()).isEqualTo(Money.of(1000 + 100 - 200 + 500 - 600, "USD"));
+        assertThat(reopened.get(accounts.get(3).getId()).lsn()).isEqualTo(ledger.lastLsn());
+        assertThat(reopened.readAll().get()).extracting(Account::getName)
+                .hasSameElementsAs(accounts.stream().map(Account::getName).collect(Collectors.toList()));
+    }
+
+    @Test
+    @DisplayName("Test updates and deletions invalidate cached accounts")
+    void testInvalidation() {
+        final var cache = new CachingRepository<>(store, 16);
+        final var uuid = cache.create(new Account().setName("Test Account").setMoney(Money.of(1000, "USD")));
+        final var cached = cache.get(uuid);
+        assertThat(cache.get(uuid)).isSameAs(cached);
+
+        cache.update(uuid, new Account().setId(uuid).setName("Renamed Account").setMoney(Money.of(10, "EUR")));
+        assertThat(cache.get(uuid)).isNotSameAs(cached);
+        assertThat(cache.get(uuid).getName()).isEqualTo("Renamed Account");
+        assertThat(cache.get(uuid).getMoney()).isEqualTo(Money.of(10, "EUR"));
+
+        cache.delete(uuid);
+        assertThat(cache.get(uuid)).isNull();
+        assertThat(store.get(uuid)).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Test a frequently read account is not evicted by a scan of others")
+    void testFrequencyBasedAdmission() {
+        final var cache = new CachingRepository<>(new InMemoryRepository<Account>(), 64);
+        final var hot = cache.create(new Account().setName("Hot Account"));
+        for (int i = 0; i < 20; i++) {
+            cache.get(hot);
+        }
+        final var others = new ArrayList<UUID>();
+        for (int i = 0; i < 200; i++) {
+            others.add(cache.create(new Account().setName("Test Account " + i)));
+        }
+        others.forEach(cache::get);
+
+        final var hits = cache.hits();
+        cache.get(hot);
+        assertThat(cache.hits()).isEqualTo(hits + 1);
+        assertThat(cache.size()).isEqualTo(64);
+        assertThat(cache.misses()).isEqualTo(201);
+        assertThat(cache.evictions()).isEqualTo(137);
+    }
+}
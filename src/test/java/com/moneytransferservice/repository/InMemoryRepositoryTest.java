@@ -0,0 +1,52 @@
+package com.moneytransferservice.repository;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Test in-memory repository")
+class InMemoryRepositoryTest {
+
+    @Test
+    @DisplayName("Test paging visits every value once while values are added and removed")
+    void testPaging() {
+        final var repository = new InMemoryRepository<UUID>();
+        final var ids = new HashSet<UUID>();
+        for (int i = 0; i < 10_000; i++) {
+            final var uuid = UUID.randomUUID();
+            ids.add(uuid);
+            repository.update(uuid, uuid);
+        }
+        final var visited = new ArrayList<UUID>();
+        var page = repository.readPage(null, 100);
+        while (!page.isEmpty()) {
+            visited.addAll(page);
+            for (int i = 0; i < 200; i++) {
+                final var uuid = repository.create(null);
+                repository.delete(uuid);
+            }
+            page = repository.readPage(page.get(page.size() - 1), 100);
+        }
+        assertThat(visited).doesNotHaveDuplicates().hasSameElementsAs(ids).hasSize(ids.size());
+    }
+
+    @Test
+    @DisplayName("Test a deleted cursor still continues with the following values")
+    void testDeletedCursor() {
+        final var repository = new InMemoryRepository<UUID>();
+        final var ids = new ArrayList<UUID>();
+        for (int i = 0; i < 10; i++) {
+            final var uuid = UUID.randomUUID();
+            repository.update(uuid, uuid);
+        }
+        repository.readPage(null, 10).forEach(ids::add);
+        repository.delete(ids.get(4));
+
+        assertThat(repository.readPage(ids.get(4), 3)).containsExactlyElementsOf(ids.subList(5, 8));
+    }
+}
@@ -0,0 +1,67 @@
+package com.moneytransferservice.repository;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Test time ordered id generation")
+class TimeOrderedIdGeneratorTest {
+
+    @Test
+    @DisplayName("Test ids are version 7, carry the time and increase while the clock stalls or goes back")
+    void testOrdering() {
+        final var time = new long[]{1_700_000_000_000L};
+        final var generator = new TimeOrderedIdGenerator(() -> time[0]);
+        final var ids = new ArrayList<UUID>();
+        for (int i = 0; i < 5_000; i++) {
+            ids.add(generator.next());
+        }
+        time[0] -= 1_000;
+        ids.add(generator.next());
+        time[0] += 10_000;
+        ids.add(generator.next());
+
+        for (UUID uuid : ids) {
+            assertThat(uuid.version()).isEqualTo(7);
+            assertThat(uuid.variant()).isEqualTo(2);
+        }
+        assertThat(ids.get(0).getMostSignificantBits() >>> 16).isEqualTo(1_700_000_000_000L);
+        assertThat(ids.get(ids.size() - 1).getMostSignificantBits() >>> 16).isEqualTo(1_700_000_009_000L);
+        for (int i = 1; i < ids.size(); i++) {
+            assertThat(Long.compareUnsigned(ids.get(i).getMostSignificantBits(),
+                    ids.get(i - 1).getMostSignificantBits())).isPositive();
+        }
+    }
+
+    @Test
+    @DisplayName("Test ids generated concurrently are unique")
+    void testUniqueness() throws InterruptedException, ExecutionException {
+        final var executor = Executors.newFixedThreadPool(4);
+        final var tasks = new ArrayList<Callable<List<UUID>>>();
+        for (int i = 0; i < 4; i++) {
+            tasks.add(() -> {
+                final var ids = new ArrayList<UUID>();
+                for (int j = 0; j < 100_000; j++) {
+                    ids.add(IdGenerator.TIME_ORDERED.next());
+                }
+                return ids;
+            });
+        }
+        final var unique = new HashSet<UUID>();
+        for (Future<List<UUID>> result : executor.invokeAll(tasks)) {
+            unique.addAll(result.get());
+        }
+        executor.shutdown();
+        assertThat(unique).hasSize(400_000);
+    }
+}
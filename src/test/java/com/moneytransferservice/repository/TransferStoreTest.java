@@ -0,0 +1,59 @@
+package com.moneytransferservice.repository;
+
+import com.moneytransferservice.model.Transfer;
+import org.javamoney.moneta.Money;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Test off-heap transfer store")
+class TransferStoreTest {
+
+    @Test
+    @DisplayName("Test transfers are read back by id and by sequence number across chunks")
+    void testReadBack() {
+        final var store = new TransferStore();
+        final var transfers = new ArrayList<Transfer>();
+        for (int i = 0; i < TransferStore.CHUNK_SIZE + 10; i++) {
+            final var transfer = new Transfer()
+                    .setFromAccount(UUID.randomUUID())
+                    .setToAccount(UUID.randomUUID())
+                    .setAmount(i % 2 == 0 ? Money.of(i + 0.25, "USD") : Money.of(i, "JPY"))
+                    .lsn(i + 1);
+            transfer.setId(store.append(transfer));
+            transfers.add(transfer);
+        }
+        assertThat(store.size()).isEqualTo(transfers.size());
+        for (int i = 0; i < transfers.size(); i += 997) {
+            final var transfer = transfers.get(i);
+            assertThat(store.read(transfer.getId())).contains(transfer);
+            assertThat(store.read(i)).isEqualTo(transfer);
+            assertThat(store.read(i).lsn()).isEqualTo(i + 1);
+        }
+        assertThat(store.read(UUID.randomUUID())).isEmpty();
+        assertThat(store.readAll()).isEqualTo(transfers);
+        assertThat(store.readPage(transfers.get(4).getId(), 3)).containsExactlyElementsOf(transfers.subList(5, 8));
+        assertThat(store.readPage(UUID.randomUUID(), 3)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Test updating a stored transfer overwrites it in place")
+    void testUpdate() {
+        final var store = new TransferStore();
+        final var uuid = UUID.randomUUID();
+        final var transfer = new Transfer()
+                .setId(uuid)
+                .setFromAccount(UUID.randomUUID())
+                .setToAccount(UUID.randomUUID())
+                .setAmount(Money.of(10, "EUR"))
+                .lsn(7);
+        store.put(uuid, transfer);
+        store.put(uuid, transfer.setAmount(Money.of(20, "EUR")));
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(store.read(uuid)).contains(transfer);
+    }
+}
@@ -0,0 +1,100 @@
+package com.moneytransferservice.repository;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Test UUID keyed open addressing map")
+class UuidMapTest {
+
+    @Test
+    @DisplayName("Test values are found, replaced and removed across resizes")
+    void testPutGetRemove() {
+        final var map = new UuidMap<UUID>();
+        final var keys = new ArrayList<UUID>();
+        for (int i = 0; i < 100_000; i++) {
+            final var uuid = UUID.randomUUID();
+            keys.add(uuid);
+            map.put(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), uuid);
+        }
+        for (int i = 0; i < keys.size(); i += 2) {
+            final var uuid = keys.get(i);
+            map.remove(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        }
+        final var replaced = keys.get(1);
+        map.put(replaced.getMostSignificantBits(), replaced.getLeastSignificantBits(), keys.get(0));
+
+        assertThat(map.size()).isEqualTo(keys.size() / 2);
+        for (int i = 0; i < keys.size(); i++) {
+            final var uuid = keys.get(i);
+            final var value = map.get(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+            assertThat(value).isEqualTo(i % 2 == 0 ? null : i == 1 ? keys.get(0) : uuid);
+        }
+        final var values = new ArrayList<UUID>();
+        map.values().forEachRemaining(values::add);
+        assertThat(values).hasSize(keys.size() / 2);
+    }
+
+    @Test
+    @DisplayName("Test structured keys and tombstones of removed keys do not make the map grow without bound")
+    void testStructuredKeys() {
+        final var map = new UuidMap<Long>();
+        for (long i = 0; i < 100_000; i++) {
+            map.put(42, i << 32, i);
+        }
+        for (long i = 0; i < 1_000_000; i++) {
+            map.put(7, i, i);
+            map.remove(7, i);
+        }
+
+        assertThat(map.size()).isEqualTo(100_000);
+        for (long i = 0; i < 100_000; i++) {
+            assertThat(map.get(42, i << 32)).isEqualTo(i);
+        }
+        assertThat(map.get(7, 0)).isNull();
+    }
+
+    @Test
+    @DisplayName("Test lock-free readers always find keys inserted before they started")
+    void testConcurrentReads() throws InterruptedException {
+        final var map = new UuidMap<UUID>();
+        final var stable = new ArrayList<UUID>();
+        for (int i = 0; i < 1_000; i++) {
+            final var uuid = UUID.randomUUID();
+            stable.add(uuid);
+            map.put(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), uuid);
+        }
+        final var executor = Executors.newFixedThreadPool(4);
+        final var done = new CountDownLatch(4);
+        final var misses = new AtomicInteger();
+        for (int thread = 0; thread < 4; thread++) {
+            final var writer = thread == 0;
+            executor.execute(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    if (writer) {
+                        final var uuid = UUID.randomUUID();
+                        map.put(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), uuid);
+                    } else {
+                        final var uuid = stable.get(i % stable.size());
+                        if (!uuid.equals(map.get(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()))) {
+                            misses.incrementAndGet();
+                        }
+                    }
+                }
+                done.countDown();
+            });
+        }
+        assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+        assertThat(misses.get()).isZero();
+        assertThat(map.size()).isEqualTo(51_000);
+    }
+}